@@ -54,17 +54,19 @@ public abstract class GameInstance implements IGameInstance {
         if (this.mainMenuController != null) {
             this.mainMenuController.addConsoleEntry(message);
         } else {
-            if (this.cachedLogging == null)
-                this.cachedLogging = new StringBuilder();
+            synchronized (this) { // Messages may be logged from multiple threads while the game loads.
+                if (this.cachedLogging == null)
+                    this.cachedLogging = new StringBuilder();
 
-            this.cachedLogging.append(message).append(System.lineSeparator());
+                this.cachedLogging.append(message).append(System.lineSeparator());
+            }
         }
     }
 
     /**
      * Gets and clears the logging cache for the main menu UI.
      */
-    public String getAndClearQueuedLogMessages() {
+    public synchronized String getAndClearQueuedLogMessages() {
         if (this.cachedLogging != null) {
             String cachedLogging = this.cachedLogging.toString();
             this.cachedLogging = null;
@@ -93,6 +95,7 @@ public abstract class GameInstance implements IGameInstance {
             // So, this is our hack for now (or indefinitely), until it's the right time to dig into JavaFX to figure out why.
             stage.setOnCloseRequest(event -> {
                 FrogLordApplication.getActiveGameInstances().remove(this); // Window getting closed.
+                onClose();
                 if (FrogLordApplication.getActiveGameInstances().isEmpty()) {
                     Platform.runLater(() -> {
                         Platform.exit(); // For some reason, this isn't enough to shut down even though it should be.
@@ -235,6 +238,14 @@ public abstract class GameInstance implements IGameInstance {
         // Does nothing by default.
     }
 
+    /**
+     * Called when the main menu window is closed, and the game instance is no longer active.
+     * Any data held only for use by this instance should be released here.
+     */
+    protected void onClose() {
+        // Does nothing by default.
+    }
+
     /**
      * Shows a warning to the user in the form of a popup, while also logging it to the provided logger.
      * @param logger the logger to log the message to
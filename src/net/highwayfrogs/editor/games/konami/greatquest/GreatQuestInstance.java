@@ -47,6 +47,7 @@ import net.highwayfrogs.editor.system.Config.ConfigValueNode;
 import net.highwayfrogs.editor.utils.*;
 import net.highwayfrogs.editor.utils.data.reader.DataReader;
 import net.highwayfrogs.editor.utils.data.reader.FileSource;
+import net.highwayfrogs.editor.utils.data.reader.MappedFileSource;
 import net.highwayfrogs.editor.utils.data.writer.DataWriter;
 import net.highwayfrogs.editor.utils.data.writer.LargeFileReceiver;
 
@@ -131,8 +132,8 @@ public class GreatQuestInstance extends GameInstance {
         loadSoundFolder();
 
         // Load the main file.
-        try {
-            DataReader reader = new DataReader(new FileSource(binFile));
+        try (MappedFileSource fileSource = new MappedFileSource(binFile)) {
+            DataReader reader = new DataReader(fileSource);
             this.mainArchive = new GreatQuestAssetBinFile(this);
             this.mainArchive.load(reader, progressBar);
             this.allFiles.addAll(this.mainArchive.getFiles());
@@ -16,6 +16,7 @@ import net.highwayfrogs.editor.gui.components.propertylist.PropertyListNode;
 import net.highwayfrogs.editor.utils.NumberUtils;
 import net.highwayfrogs.editor.utils.data.reader.DataReader;
 import net.highwayfrogs.editor.utils.data.writer.DataWriter;
+import net.highwayfrogs.editor.utils.data.writer.FixedArrayReceiver;
 
 import java.io.File;
 import java.io.IOException;
@@ -415,9 +416,11 @@ public class kcCResOctTreeSceneMgr extends kcCResource implements IMultiLineInfo
             if (this.primitiveType != kcPrimitiveType.TRIANGLE_LIST) // This never occurs in any known version of the game.
                 throw new RuntimeException("Cannot read mesh with " + this.primitiveType + " yet.");
 
+            // The vertex components are interleaved, so they are read from a reader limited to the vertex data instead of as a single primitive array.
+            DataReader vertexReader = reader.readBytesAndCreateNewReader(byteLength);
             for (int i = 0; i < numOfVertices; i++) {
                 kcVertex vertex = new kcVertex();
-                vertex.load(reader, this.components, this.fvf, false, false);
+                vertex.load(vertexReader, this.components, this.fvf, false, false);
                 this.vertices.add(vertex);
             }
 
@@ -463,14 +466,18 @@ public class kcCResOctTreeSceneMgr extends kcCResource implements IMultiLineInfo
             for (int j = 0; j < RESERVED_PRIM_HEADER_FIELDS; j++)
                 writer.writeInt(0); // These are known to be empty.
 
-            // Write vertices.
+            // Write vertices. They are written to an array first, so they reach the writer as a single bulk copy.
+            byte[] vertexData = new byte[this.vertices.size() * this.fvfStride];
+            DataWriter vertexWriter = new DataWriter(new FixedArrayReceiver(vertexData));
+            vertexWriter.setEndian(writer.getEndian());
             for (int i = 0; i < this.vertices.size(); i++) {
-                int vertexWriteStartIndex = writer.getIndex();
-                this.vertices.get(i).save(writer, this.components, this.fvf, false);
-                int vertexBytesWritten = writer.getIndex() - vertexWriteStartIndex;
+                int vertexWriteStartIndex = vertexWriter.getIndex();
+                this.vertices.get(i).save(vertexWriter, this.components, this.fvf, false);
+                int vertexBytesWritten = vertexWriter.getIndex() - vertexWriteStartIndex;
                 if (vertexBytesWritten != this.fvfStride)
                     throw new RuntimeException("The fvfStride expected us to write " + this.fvfStride + " per vertex, but we actually wrote " + vertexBytesWritten + ".");
             }
+            writer.writeBytes(vertexData);
 
             // Write lengths.
             writer.writeIntAtPos(otaPrimHeaderSizeAddress, (writer.getIndex() - otaPrimHeaderSizeAddress));
@@ -81,22 +81,22 @@ public class RwGeometryChunk extends RwStreamChunk implements IRwGeometryMesh {
                 // Read texture coordinate sets.
                 int texCoordSets = getTexCoordSetsCount();
                 if (texCoordSets > 0) {
+                    float[] texCoordData = new float[sectorInfo.getVertexCount() * 2];
                     for (int i = 0; i < texCoordSets; i++) {
+                        reader.readFloats(texCoordData);
                         List<RwTexCoords> texCoordSet = new ArrayList<>();
-                        for (int j = 0; j < sectorInfo.getVertexCount(); j++) {
-                            RwTexCoords newTexCoords = new RwTexCoords(getGameInstance());
-                            newTexCoords.load(reader, version, dataLength);
-                            texCoordSet.add(newTexCoords);
-                        }
+                        for (int j = 0; j < sectorInfo.getVertexCount(); j++)
+                            texCoordSet.add(new RwTexCoords(getGameInstance(), texCoordData[(j * 2)], texCoordData[(j * 2) + 1]));
 
                         this.texCoordSets.add(texCoordSet);
                     }
                 }
 
                 // Read triangles.
+                short[] triangleData = reader.readShorts(new short[sectorInfo.getTriangleCount() * RpTriangle.GEOMETRY_FORMAT_SHORT_COUNT]);
                 for (int i = 0; i < sectorInfo.getTriangleCount(); i++) {
                     RpTriangle newTriangle = new RpTriangle(this);
-                    newTriangle.loadGeometryFormat(reader);
+                    newTriangle.loadGeometryFormat(triangleData, i * RpTriangle.GEOMETRY_FORMAT_SHORT_COUNT);
                     this.triangles.add(newTriangle);
                 }
             }
@@ -132,18 +132,26 @@ public class RwGeometryChunk extends RwStreamChunk implements IRwGeometryMesh {
             }
 
             // Write texture coordinate sets.
+            float[] texCoordData = new float[this.vertexCount * 2];
             for (int i = 0; i < this.texCoordSets.size(); i++) {
                 List<RwTexCoords> texCoords = this.texCoordSets.get(i);
                 if (texCoords.size() != this.vertexCount)
                     throw new IllegalStateException("Cannot save texCoordSet " + i + " with " + texCoords.size() + " entries, when there are a different number of vertices. (" + this.vertexCount + ")");
 
-                for (int j = 0; j < texCoords.size(); j++)
-                    texCoords.get(j).save(writer, getVersion());
+                for (int j = 0; j < texCoords.size(); j++) {
+                    RwTexCoords texCoord = texCoords.get(j);
+                    texCoordData[(j * 2)] = texCoord.getU();
+                    texCoordData[(j * 2) + 1] = texCoord.getV();
+                }
+
+                writer.writeFloats(texCoordData);
             }
 
             // Write triangles.
+            short[] triangleData = new short[this.triangles.size() * RpTriangle.GEOMETRY_FORMAT_SHORT_COUNT];
             for (int i = 0; i < this.triangles.size(); i++)
-                this.triangles.get(i).saveGeometryFormat(writer);
+                this.triangles.get(i).saveGeometryFormat(triangleData, i * RpTriangle.GEOMETRY_FORMAT_SHORT_COUNT);
+            writer.writeShorts(triangleData);
         }
 
         // Write morph targets. (Doesn't seem to exist in Frogger Beyond?)
@@ -319,23 +327,36 @@ public class RwGeometryChunk extends RwStreamChunk implements IRwGeometryMesh {
 
             // Read vertices.
             this.vertices.clear();
-            if (this.pointsPresent) {
-                for (int i = 0; i < this.geometry.getVertexCount(); i++) {
-                    RwV3d newVertex = new RwV3d(getGameInstance());
-                    newVertex.load(reader, version, byteLength);
-                    this.vertices.add(newVertex);
-                }
-            }
+            if (this.pointsPresent)
+                readVectors(reader, this.vertices, this.geometry.getVertexCount());
 
             // Read normals.
             this.normals.clear();
-            if (this.normalsPresent) {
-                for (int i = 0; i < this.geometry.getVertexCount(); i++) {
-                    RwV3d newNormal = new RwV3d(getGameInstance());
-                    newNormal.load(reader, version, byteLength);
-                    this.normals.add(newNormal);
-                }
+            if (this.normalsPresent)
+                readVectors(reader, this.normals, this.geometry.getVertexCount());
+        }
+
+        private void readVectors(DataReader reader, List<RwV3d> output, int vectorCount) {
+            float[] vectorData = reader.readFloats(new float[vectorCount * 3]);
+            for (int i = 0; i < vectorCount; i++) {
+                RwV3d newVector = new RwV3d(getGameInstance());
+                newVector.setX(vectorData[(i * 3)]);
+                newVector.setY(vectorData[(i * 3) + 1]);
+                newVector.setZ(vectorData[(i * 3) + 2]);
+                output.add(newVector);
+            }
+        }
+
+        private static void writeVectors(DataWriter writer, List<RwV3d> vectors) {
+            float[] vectorData = new float[vectors.size() * 3];
+            for (int i = 0; i < vectors.size(); i++) {
+                RwV3d vector = vectors.get(i);
+                vectorData[(i * 3)] = vector.getX();
+                vectorData[(i * 3) + 1] = vector.getY();
+                vectorData[(i * 3) + 2] = vector.getZ();
             }
+
+            writer.writeFloats(vectorData);
         }
 
         @Override
@@ -353,13 +374,11 @@ public class RwGeometryChunk extends RwStreamChunk implements IRwGeometryMesh {
 
             // Write vertices.
             if (this.pointsPresent)
-                for (int i = 0; i < this.vertices.size(); i++)
-                    this.vertices.get(i).save(writer, version);
+                writeVectors(writer, this.vertices);
 
             // Write normals.
             if (this.normalsPresent)
-                for (int i = 0; i < this.normals.size(); i++)
-                    this.normals.get(i).save(writer, version);
+                writeVectors(writer, this.normals);
         }
 
         @Override
@@ -17,6 +17,7 @@ import net.highwayfrogs.editor.games.renderware.struct.RwStructType;
 import net.highwayfrogs.editor.games.sony.shared.SCByteTextureUV;
 import net.highwayfrogs.editor.gui.components.propertylist.PropertyListNode;
 import net.highwayfrogs.editor.gui.mesh.PSXShadedDynamicMesh;
+import net.highwayfrogs.editor.utils.DataUtils;
 import net.highwayfrogs.editor.utils.data.reader.DataReader;
 import net.highwayfrogs.editor.utils.data.writer.DataWriter;
 
@@ -36,6 +37,7 @@ public class RpTriangle extends RwStruct {
 
     public static final int VERTEX_COUNT = 3;
     public static final int SIZE_IN_BYTES = 4 * Constants.SHORT_SIZE;
+    public static final int GEOMETRY_FORMAT_SHORT_COUNT = SIZE_IN_BYTES / Constants.SHORT_SIZE;
 
     public RpTriangle(IRwGeometryMesh parentMesh) {
         super(parentMesh.getGameInstance(), RwStructType.TRIANGLE);
@@ -57,13 +59,15 @@ public class RpTriangle extends RwStruct {
 
     /**
      * Loads the triangle using the RpGeometry format seen in bageomet.c
-     * @param reader the reader to read the data from
+     * The triangles are stored one after another, so they are read into an array of shorts together.
+     * @param triangleData the triangle data to read from
+     * @param offset the index into the array where this triangle's data starts
      */
-    public void loadGeometryFormat(DataReader reader) {
-        this.vertexIndices[1] = reader.readUnsignedShortAsInt();
-        this.vertexIndices[0] = reader.readUnsignedShortAsInt();
-        this.materialIndex = reader.readUnsignedShortAsInt();
-        this.vertexIndices[2] = reader.readUnsignedShortAsInt();
+    public void loadGeometryFormat(short[] triangleData, int offset) {
+        this.vertexIndices[1] = DataUtils.shortToUnsignedInt(triangleData[offset]);
+        this.vertexIndices[0] = DataUtils.shortToUnsignedInt(triangleData[offset + 1]);
+        this.materialIndex = DataUtils.shortToUnsignedInt(triangleData[offset + 2]);
+        this.vertexIndices[2] = DataUtils.shortToUnsignedInt(triangleData[offset + 3]);
     }
 
     @Override
@@ -79,13 +83,15 @@ public class RpTriangle extends RwStruct {
 
     /**
      * Saves the triangle using the RpGeometry format seen in bageomet.c
-     * @param writer the writer to write the data to
+     * The triangles are stored one after another, so they are written from an array of shorts together.
+     * @param triangleData the array to write the triangle data to
+     * @param offset the index into the array where this triangle's data starts
      */
-    public void saveGeometryFormat(DataWriter writer) {
-        writer.writeUnsignedShort(this.vertexIndices[1]);
-        writer.writeUnsignedShort(this.vertexIndices[0]);
-        writer.writeUnsignedShort(this.materialIndex);
-        writer.writeUnsignedShort(this.vertexIndices[2]);
+    public void saveGeometryFormat(short[] triangleData, int offset) {
+        triangleData[offset] = DataUtils.unsignedIntToShort(this.vertexIndices[1]);
+        triangleData[offset + 1] = DataUtils.unsignedIntToShort(this.vertexIndices[0]);
+        triangleData[offset + 2] = DataUtils.unsignedIntToShort(this.materialIndex);
+        triangleData[offset + 3] = DataUtils.unsignedIntToShort(this.vertexIndices[2]);
     }
 
     @Override
@@ -21,6 +21,12 @@ public class RwTexCoords extends RwStruct {
         super(instance, RwStructType.TEXCOORDS);
     }
 
+    public RwTexCoords(GameInstance instance, float u, float v) {
+        this(instance);
+        this.u = u;
+        this.v = v;
+    }
+
     @Override
     public void load(DataReader reader, int version, int byteLength) {
         this.u = reader.readFloat();
@@ -13,8 +13,9 @@ import net.highwayfrogs.editor.gui.components.ProgressBarComponent;
 import net.highwayfrogs.editor.system.Config;
 import net.highwayfrogs.editor.utils.FileUtils;
 import net.highwayfrogs.editor.utils.Utils;
+import net.highwayfrogs.editor.utils.data.reader.ArraySource;
 import net.highwayfrogs.editor.utils.data.reader.DataReader;
-import net.highwayfrogs.editor.utils.data.reader.FileSource;
+import net.highwayfrogs.editor.utils.data.reader.MappedFileSource;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -30,6 +31,8 @@ public abstract class BasicGameInstance extends GameInstance {
     @Getter protected final List<BasicGameFile<?>> allFiles = new ArrayList<>(); // Includes nested files.
     protected File rootFolder;
 
+    private static final int FILE_SIGNATURE_TEST_SIZE = 0x800;
+
     public BasicGameInstance(IGameType gameType) {
         super(gameType);
     }
@@ -104,12 +107,24 @@ public abstract class BasicGameInstance extends GameInstance {
             progressBar.setStatusMessage("Loading '" + file.getName() + "'...");
 
         BasicGameFile<?> gameFile = null;
-        try {
-            FileSource fileSource = new FileSource(file);
+        try (MappedFileSource fileSource = new MappedFileSource(file)) {
             DataReader reader = new DataReader(fileSource);
 
-            gameFile = createGameFile(fileDefinition, fileSource.getFileData());
-            gameFile.setRawData(fileSource.getFileData());
+            // File systems are large archives, so only the start of the file is read to test the file signature.
+            // This allows the archive to be read directly from the mapped file, without copying it onto the heap.
+            byte[] rawData = reader.readBytes(Math.min(reader.getSize(), FILE_SIGNATURE_TEST_SIZE));
+            reader.setIndex(0);
+            gameFile = createGameFile(fileDefinition, rawData);
+            if (!(gameFile instanceof IVirtualFileSystem)) {
+                if (rawData.length != reader.getSize()) {
+                    rawData = reader.readBytes(reader.getSize());
+                    gameFile = createGameFile(fileDefinition, rawData);
+                }
+
+                gameFile.setRawData(rawData);
+                reader = new DataReader(new ArraySource(rawData));
+            }
+
             if (singleGameDataFile && gameFile instanceof IVirtualFileSystem) {
                 ((IVirtualFileSystem) gameFile).load(reader, progressBar);
             } else {
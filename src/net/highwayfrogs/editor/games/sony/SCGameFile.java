@@ -6,12 +6,13 @@ import javafx.scene.control.ContextMenu;
 import javafx.scene.control.MenuItem;
 import javafx.scene.image.Image;
 import lombok.Getter;
+import lombok.RequiredArgsConstructor;
 import lombok.Setter;
+import net.highwayfrogs.editor.games.sony.shared.mwd.MWDFile;
 import net.highwayfrogs.editor.games.sony.shared.mwd.WADFile;
 import net.highwayfrogs.editor.games.sony.shared.mwd.WADFile.WADEntry;
 import net.highwayfrogs.editor.games.sony.shared.mwd.mwi.ISCFileDefinition;
 import net.highwayfrogs.editor.games.sony.shared.mwd.mwi.MWIResourceEntry;
-import net.highwayfrogs.editor.games.sony.shared.pp20.PP20Packer;
 import net.highwayfrogs.editor.games.sony.shared.pp20.PP20Packer.PackResult;
 import net.highwayfrogs.editor.games.sony.shared.ui.SCFileEditorUIController;
 import net.highwayfrogs.editor.gui.DefaultFileUIController;
@@ -24,6 +25,7 @@ import net.highwayfrogs.editor.utils.FXUtils;
 import net.highwayfrogs.editor.utils.FileUtils;
 import net.highwayfrogs.editor.utils.FileUtils.BrowserFileType;
 import net.highwayfrogs.editor.utils.FileUtils.SavedFilePath;
+import net.highwayfrogs.editor.utils.ThreadUtils;
 import net.highwayfrogs.editor.utils.Utils;
 import net.highwayfrogs.editor.utils.data.writer.ArrayReceiver;
 import net.highwayfrogs.editor.utils.data.writer.DataWriter;
@@ -32,6 +34,8 @@ import net.highwayfrogs.editor.utils.logging.ILogger;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  * Represents a file (data corresponding to MWI entry or contents of a filesystem entity).
@@ -92,6 +96,7 @@ public abstract class SCGameFile<TGameInstance extends SCGameInstance> extends S
 
     @Override
     public void setupRightClickMenuItems(ContextMenu contextMenu) {
+        ensureLoaded(); // The menu is only built once it is requested, and the menu items may use the file contents.
         String fileName = getFileDisplayName();
 
         if (this.rawFileData != null) {
@@ -129,6 +134,7 @@ public abstract class SCGameFile<TGameInstance extends SCGameInstance> extends S
         if (original) {
             success = FileUtils.writeBytesToFile(getLogger(), outputFile, this.rawFileData, showPopupOnError);
         } else {
+            ensureLoaded();
             success = writeDataToFile(getLogger(), outputFile, showPopupOnError);
         }
 
@@ -146,8 +152,17 @@ public abstract class SCGameFile<TGameInstance extends SCGameInstance> extends S
     /**
      * Performs the default UI action for interacting with this file.
      * Generally this means opening more advanced UI such as a 3D preview.
+     * The file is loaded first if loading was deferred, so subclasses should override onDefaultUIAction() instead.
      */
-    public void performDefaultUIAction() {
+    public final void performDefaultUIAction() {
+        ensureLoaded();
+        onDefaultUIAction();
+    }
+
+    /**
+     * Called to perform the default UI action for interacting with this file, once the file has been loaded.
+     */
+    protected void onDefaultUIAction() {
         GameUIController<?> uiController = makeEditorUI();
         if (uiController != null) {
             getGameInstance().getMainMenuController().showEditor(uiController);
@@ -158,6 +173,16 @@ public abstract class SCGameFile<TGameInstance extends SCGameInstance> extends S
         }
     }
 
+    /**
+     * Loads the file contents if loading was deferred until the file was first used.
+     * This only happens when lazy file loading is enabled, see SCGameInstance.CONFIG_KEY_LAZY_FILE_LOADING.
+     * @return false iff the file contents failed to load
+     */
+    public boolean ensureLoaded() {
+        MWDFile archive = getArchive();
+        return archive == null || archive.ensureFileLoaded(this);
+    }
+
     /**
      * Ask the user to provide a file they'd like to replace the selected file with, then imports it if valid.
      */
@@ -245,52 +270,54 @@ public abstract class SCGameFile<TGameInstance extends SCGameInstance> extends S
      * @param progressBar The progress bar to update, if there is one.
      */
     public void saveFile(DataWriter writer, ProgressBarComponent progressBar) {
+        startSaveFile(progressBar, false).writeTo(writer, progressBar);
+    }
+
+    /**
+     * Saves the file contents to a byte array, then compresses them if the file is compressed.
+     * The result is not written anywhere until SCGameFileSaveTask.writeTo() is called.
+     * @param progressBar The progress bar to update, if there is one.
+     * @param compressAsync If true, compression will run on the worker threads instead of the calling thread.
+     * @return saveTask
+     */
+    public SCGameFileSaveTask startSaveFile(ProgressBarComponent progressBar, boolean compressAsync) {
         if (progressBar != null)
             progressBar.setStatusMessage("Saving '" + getFileDisplayName() + "'");
+
+        SCGameFileSaveTask saveTask = new SCGameFileSaveTask(this);
         long startTime = System.currentTimeMillis();
-        long compressionTime;
 
         try {
             // Save the file contents to a byte array.
-            ArrayReceiver receiver = new ArrayReceiver();
-            this.save(new DataWriter(receiver));
-
-            // Potentially compress the saved byte array.
-            byte[] fileBytes = receiver.toArray();
-
-            PackResult packResult;
-            if (getFileDefinition().isCompressed()) {
-                long compressionStartTime = System.currentTimeMillis();
-                packResult = PP20Packer.packData(fileBytes);
-                compressionTime = System.currentTimeMillis() - compressionStartTime;
+            // Files which were never loaded cannot have changed, so their original contents are saved instead.
+            MWDFile archive = getArchive();
+            byte[] unloadedFileData = archive != null ? archive.getUnloadedFileData(this) : null;
+            if (unloadedFileData != null) {
+                saveTask.fileBytes = unloadedFileData;
             } else {
-                packResult = null;
-                compressionTime = 0;
+                ArrayReceiver receiver = new ArrayReceiver();
+                this.save(new DataWriter(receiver));
+                saveTask.fileBytes = receiver.toArray();
             }
-
-            MWIResourceEntry mwiEntry = getIndexEntry();
-            if (mwiEntry != null)
-                mwiEntry.onSaveData(fileBytes, packResult);
-
-            writer.writeBytes(packResult != null ? packResult.getPackedBytes() : fileBytes);
         } catch (Throwable th) {
-            Utils.handleError(getLogger(), th, true, "Failed to save file '%s' to MWD.", getFileDisplayName());
-            return;
+            saveTask.saveError = th;
+            return saveTask;
         }
 
-        // Report timing.
-        long endTime = System.currentTimeMillis();
-        if (progressBar != null)
-            progressBar.addCompletedProgress(1);
-        long timeTaken = (endTime - startTime);
-        if (timeTaken >= 10) {
-            // No need to include the file name, as that's already part of the logger info.
-            if (compressionTime > 0) {
-                getLogger().warning("Saving took %d ms. (Save Logic: %d ms, Compression: %d ms)", timeTaken, timeTaken - compressionTime, compressionTime);
+        saveTask.saveTime = System.currentTimeMillis() - startTime;
+
+        // Potentially compress the saved byte array.
+        if (getFileDefinition().isCompressed()) {
+            if (compressAsync) {
+                saveTask.packTask = ThreadUtils.submitWorkerTask(saveTask::packData);
             } else {
-                getLogger().warning("Saving took %d ms.", timeTaken);
+                FutureTask<PackResult> packTask = new FutureTask<>(saveTask::packData);
+                saveTask.packTask = packTask;
+                packTask.run();
             }
         }
+
+        return saveTask;
     }
 
     /**
@@ -344,4 +371,83 @@ public abstract class SCGameFile<TGameInstance extends SCGameInstance> extends S
             super(instance);
         }
     }
+
+    /**
+     * Represents a file which has been saved to a byte array, but which may still be compressing.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class SCGameFileSaveTask {
+        private final SCGameFile<?> file;
+        private byte[] fileBytes;
+        private Future<PackResult> packTask;
+        private PackResult packResult;
+        private Throwable saveError;
+        private long saveTime;
+        private long compressionTime;
+
+        private PackResult packData() {
+            long compressionStartTime = System.currentTimeMillis();
+            PackResult packResult = this.file.getArchive().packSaveFileData(this.fileBytes);
+            this.compressionTime = System.currentTimeMillis() - compressionStartTime;
+            return packResult;
+        }
+
+        /**
+         * Waits for compression to finish (if the file is compressed), then gets the bytes which should be written for the file.
+         * The MWI entry is not updated until onWritten() is called.
+         * @return writtenBytes
+         */
+        public byte[] getWrittenBytes() {
+            if (this.saveError != null)
+                throw new RuntimeException("Failed to save file '" + this.file.getFileDisplayName() + "'.", this.saveError);
+
+            if (this.packTask != null && this.packResult == null)
+                this.packResult = ThreadUtils.waitForTask(this.packTask);
+
+            return this.packResult != null ? this.packResult.getPackedBytes() : this.fileBytes;
+        }
+
+        /**
+         * Waits for compression to finish (if the file is compressed), then writes the saved file contents to the writer.
+         * @param writer The data writer to write the data to.
+         * @param progressBar The progress bar to update, if there is one.
+         */
+        public void writeTo(DataWriter writer, ProgressBarComponent progressBar) {
+            try {
+                if (this.saveError != null)
+                    throw this.saveError;
+
+                writer.writeBytes(getWrittenBytes());
+            } catch (Throwable th) {
+                Utils.handleError(this.file.getLogger(), th, true, "Failed to save file '%s' to MWD.", this.file.getFileDisplayName());
+                return;
+            }
+
+            onWritten(progressBar);
+        }
+
+        /**
+         * Updates the MWI entry & reports timing once the bytes from getWrittenBytes() have been written.
+         * @param progressBar The progress bar to update, if there is one.
+         */
+        public void onWritten(ProgressBarComponent progressBar) {
+            MWIResourceEntry mwiEntry = this.file.getIndexEntry();
+            if (mwiEntry != null)
+                mwiEntry.onSaveData(this.fileBytes, this.packResult);
+
+            // Report timing.
+            if (progressBar != null)
+                progressBar.addCompletedProgress(1);
+            long timeTaken = this.saveTime + this.compressionTime;
+            if (timeTaken >= 10) {
+                // No need to include the file name, as that's already part of the logger info.
+                if (this.compressionTime > 0) {
+                    this.file.getLogger().warning("Saving took %d ms. (Save Logic: %d ms, Compression: %d ms)", timeTaken, this.saveTime, this.compressionTime);
+                } else {
+                    this.file.getLogger().warning("Saving took %d ms.", timeTaken);
+                }
+            }
+        }
+    }
 }
\ No newline at end of file
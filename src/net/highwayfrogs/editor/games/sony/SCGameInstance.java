@@ -17,15 +17,18 @@ import net.highwayfrogs.editor.games.sony.shared.mof2.animation.MRAnimatedMof;
 import net.highwayfrogs.editor.games.sony.shared.mof2.mesh.MRStaticMof;
 import net.highwayfrogs.editor.games.sony.shared.mof2.utils.MRModelUtils;
 import net.highwayfrogs.editor.games.sony.shared.mwd.MWDFile;
+import net.highwayfrogs.editor.games.sony.shared.mwd.MWDLevelResourceGroup;
 import net.highwayfrogs.editor.games.sony.shared.mwd.WADFile;
 import net.highwayfrogs.editor.games.sony.shared.mwd.WADFile.WADEntry;
 import net.highwayfrogs.editor.games.sony.shared.mwd.mwi.MWIResourceEntry;
 import net.highwayfrogs.editor.games.sony.shared.mwd.mwi.MillenniumWadIndex;
 import net.highwayfrogs.editor.games.sony.shared.overlay.SCOverlayTable;
+import net.highwayfrogs.editor.games.sony.shared.pp20.PP20PackerEngine;
 import net.highwayfrogs.editor.games.sony.shared.ui.SCGameFileGroupedListViewComponent;
 import net.highwayfrogs.editor.games.sony.shared.ui.SCMainMenuUIController;
 import net.highwayfrogs.editor.games.sony.shared.vlo2.VloFile;
 import net.highwayfrogs.editor.games.sony.shared.vlo2.VloImage;
+import net.highwayfrogs.editor.games.sony.shared.vlo2.VloImageCache;
 import net.highwayfrogs.editor.games.sony.shared.vlo2.VloPadding;
 import net.highwayfrogs.editor.games.sony.shared.vlo2.vram.VloTree;
 import net.highwayfrogs.editor.gui.components.ProgressBarComponent;
@@ -36,10 +39,11 @@ import net.highwayfrogs.editor.utils.Utils;
 import net.highwayfrogs.editor.utils.Utils.ProblemResponse;
 import net.highwayfrogs.editor.utils.data.reader.ArraySource;
 import net.highwayfrogs.editor.utils.data.reader.DataReader;
-import net.highwayfrogs.editor.utils.data.reader.FileSource;
+import net.highwayfrogs.editor.utils.data.reader.MappedFileSource;
 import net.highwayfrogs.editor.utils.data.writer.ArrayReceiver;
 import net.highwayfrogs.editor.utils.data.writer.DataWriter;
 import net.highwayfrogs.editor.utils.data.writer.FixedArrayReceiver;
+import net.highwayfrogs.editor.utils.image.quantization.ImageQuantizer;
 import net.highwayfrogs.editor.utils.objects.CountMap;
 import net.highwayfrogs.editor.utils.objects.IndexBitArray;
 
@@ -70,6 +74,7 @@ public abstract class SCGameInstance extends GameInstance {
     @Getter private final IndexBitArray texturesFoundInRemap = new IndexBitArray();
     @Getter private VloTree vloTree; // This CANNOT be stored in the SCGameConfig, because it references MWIResourceEntries, which are only valid for an individual game instance.
     @Getter private int maximumTextureId = -1;
+    @Getter private final VloImageCache imageCache = new VloImageCache(); // Owned by the instance, so cached images don't keep a closed instance in memory.
 
     // Instance data read from game files:
     private boolean loadingAllRemaps;
@@ -81,9 +86,16 @@ public abstract class SCGameInstance extends GameInstance {
     private byte[] cachedExecutableBytes;
     private DataReader cachedExecutableReader;
 
+    public static final String CONFIG_KEY_LAZY_FILE_LOADING = "lazyFileLoading"; // When true, most MWD files are not loaded until they are first used.
+    public static final String CONFIG_KEY_PP20_PACKER_ENGINE = "pp20PackerEngine"; // The PP20PackerEngine used to compress files when saving the MWD.
+    public static final String CONFIG_KEY_PP20_BEST_FIT = "pp20BestFitCompression"; // When true, each file is compressed with whichever PP20 settings produce the smallest result.
+    public static final String CONFIG_KEY_MWD_DELTA_SAVE = "mwdDeltaSave"; // When true, saving over the previously saved MWD only rewrites the files which changed, if they still fit.
+    public static final String CONFIG_KEY_MWD_OPTIMIZE_LAYOUT = "mwdOptimizeLayout"; // When true, the files loaded by each level are placed next to each other when saving the MWD.
+    public static final String CONFIG_KEY_IMAGE_QUANTIZER = "imageQuantizer"; // The ImageQuantizer used to reduce the colors of images imported into CLUT-based textures.
+
     public SCGameInstance(SCGameType gameType) {
         super(gameType);
-        this.fileObjectsByFileEntries = new HashMap<>();
+        this.fileObjectsByFileEntries = Collections.synchronizedMap(new HashMap<>()); // Files are registered from worker threads while the MWD loads.
         this.overlayTable = new SCOverlayTable(this);
     }
 
@@ -146,6 +158,13 @@ public abstract class SCGameInstance extends GameInstance {
         resolveModelVloFiles();
     }
 
+    @Override
+    protected void onClose() {
+        super.onClose();
+        getLogger().info(this.imageCache.getStatisticsString());
+        this.imageCache.clear();
+    }
+
     @Override
     protected void onConfigLoad(net.highwayfrogs.editor.file.config.Config configObj) {
         super.onConfigLoad(configObj);
@@ -246,6 +265,86 @@ public abstract class SCGameInstance extends GameInstance {
      */
     public abstract SCGameFile<?> createFile(MWIResourceEntry resourceEntry, byte[] fileData);
 
+    /**
+     * Tests if lazy file loading has been enabled in the instance config.
+     * When enabled, MWD files are registered without being loaded, and are loaded the first time they are requested.
+     */
+    public boolean isLazyFileLoadingEnabled() {
+        return getConfigBoolean(CONFIG_KEY_LAZY_FILE_LOADING);
+    }
+
+    /**
+     * Gets the engine which files should be compressed with when saving the MWD, as configured in the instance config.
+     * By default, the original engine is used, so saved files match the retail files byte for byte.
+     */
+    public PP20PackerEngine getPackerEngine() {
+        return getConfigEnum(CONFIG_KEY_PP20_PACKER_ENGINE, PP20PackerEngine.ORIGINAL);
+    }
+
+    /**
+     * Gets the algorithm which imported images should be quantized with, as configured in the instance config.
+     * By default, the octree quantizer is used, so imported images match previous versions.
+     */
+    public ImageQuantizer getImageQuantizer() {
+        return getConfigEnum(CONFIG_KEY_IMAGE_QUANTIZER, ImageQuantizer.OCTREE);
+    }
+
+    /**
+     * Tests if best fit compression has been enabled in the instance config.
+     * When enabled, several PP20 compression settings are tried for each file when saving the MWD, and the smallest result is kept.
+     */
+    public boolean isBestFitCompressionEnabled() {
+        return getConfigBoolean(CONFIG_KEY_PP20_BEST_FIT);
+    }
+
+    /**
+     * Tests if delta saving has been enabled in the instance config.
+     * When enabled, saving to the same MWD & executable as the previous save only rewrites the parts of those files which changed.
+     */
+    public boolean isDeltaSaveEnabled() {
+        return getConfigBoolean(CONFIG_KEY_MWD_DELTA_SAVE);
+    }
+
+    /**
+     * Tests if MWD layout optimization has been enabled in the instance config.
+     * When enabled, the files returned by getLevelResourceGroups() are placed next to each other in the MWD, to reduce disc seeking when a level loads.
+     */
+    public boolean isMwdLayoutOptimizationEnabled() {
+        return getConfigBoolean(CONFIG_KEY_MWD_OPTIMIZE_LAYOUT);
+    }
+
+    private boolean getConfigBoolean(String key) {
+        Config instanceConfig = getConfig();
+        Config.ConfigValueNode node = instanceConfig != null ? instanceConfig.getOptionalKeyValueNode(key) : null;
+        return node != null && node.getAsBoolean(false);
+    }
+
+    private <TEnum extends Enum<TEnum>> TEnum getConfigEnum(String key, TEnum defaultValue) {
+        Config instanceConfig = getConfig();
+        Config.ConfigValueNode node = instanceConfig != null ? instanceConfig.getOptionalKeyValueNode(key) : null;
+        return node != null ? node.getAsEnum(defaultValue) : defaultValue;
+    }
+
+    /**
+     * Gets the groups of MWD files which are read together when a level is loaded, used to optimize the MWD layout.
+     * Games which do not have a known level table return an empty list.
+     * @return levelResourceGroups
+     */
+    public List<MWDLevelResourceGroup> getLevelResourceGroups() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Tests if loading the given file can be deferred until it is first requested, when lazy file loading is enabled.
+     * Files which register data used by other files while loading must always be loaded immediately.
+     * VLOs track their images by texture ID, WADs register the files they contain, and models decide which later models are incomplete.
+     * @param file the file to test
+     * @return true iff the file can be loaded lazily
+     */
+    public boolean isFileLoadDeferrable(SCGameFile<?> file) {
+        return !(file instanceof VloFile) && !(file instanceof WADFile) && !(file instanceof MRModel);
+    }
+
     /**
      * Finds and configures texture remap data.
      * @param exeReader The reader to read texture remap data from.
@@ -664,7 +763,7 @@ public abstract class SCGameInstance extends GameInstance {
      */
     @SuppressWarnings("unchecked")
     public <T extends SCGameFile<?>> T getGameFile(int resourceId) {
-        return (T) this.fileObjectsByFileEntries.get(getResourceEntryByID(resourceId));
+        return getGameFile(getResourceEntryByID(resourceId));
     }
 
     /**
@@ -681,7 +780,7 @@ public abstract class SCGameInstance extends GameInstance {
             throw new IllegalArgumentException("There was no file entry for resource ID: " + resourceId);
         }
 
-        SCGameFile<?> gameFile = this.fileObjectsByFileEntries.get(resourceEntry);
+        SCGameFile<?> gameFile = getGameFile(resourceEntry);
         if (!fileClass.isInstance(gameFile)) {
             if (allowNull)
                 return null;
@@ -699,7 +798,11 @@ public abstract class SCGameInstance extends GameInstance {
      */
     @SuppressWarnings("unchecked")
     public <T extends SCGameFile<?>> T getGameFile(MWIResourceEntry resourceEntry) {
-        return (T) this.fileObjectsByFileEntries.get(resourceEntry);
+        SCGameFile<?> gameFile = this.fileObjectsByFileEntries.get(resourceEntry);
+        if (gameFile != null)
+            gameFile.ensureLoaded();
+
+        return (T) gameFile;
     }
 
     /**
@@ -966,16 +1069,12 @@ public abstract class SCGameInstance extends GameInstance {
         if (this.getVersionConfig().isMwdLooseFiles()) {
             mwdFile.loadFilesFromDirectory(progressBar);
         } else {
-            FileSource fileSource;
-
-            try {
-                fileSource = new FileSource(this.mwdFile);
+            // The MWD is mapped into memory instead of read onto the heap, since only the files inside it need to be kept.
+            try (MappedFileSource fileSource = new MappedFileSource(this.mwdFile)) {
+                mwdFile.loadMwdFile(new DataReader(fileSource), progressBar);
             } catch (IOException ex) {
-                throw new RuntimeException("Failed to read MWD file '" + this.mwdFile + "'.");
+                throw new RuntimeException("Failed to read MWD file '" + this.mwdFile + "'.", ex);
             }
-
-            // Load the MWD file.
-            mwdFile.loadMwdFile(new DataReader(fileSource), progressBar);
         }
 
         this.onMWDLoad(mwdFile, progressBar);
@@ -1002,17 +1101,32 @@ public abstract class SCGameInstance extends GameInstance {
      * @throws IOException Thrown when writing to the file failed.
      */
     public void saveExecutable(File outputFile, boolean writeModifications) throws IOException {
-        if (writeModifications)
-            writeExecutableData(getArchiveIndex());
-
-        byte[] data = getExecutableBytes();
-        data = writeConfigToExecutable(data);
+        byte[] data = createExecutableFileBytes(writeModifications);
 
         // Write file.
         FileUtils.deleteFile(outputFile);
         Files.write(outputFile.toPath(), data);
     }
 
+    /**
+     * Saves the cached executable bytes with any modifications applied to a file, only rewriting the bytes which differ from the existing file.
+     * The existing file is still read in full to find the differences, but far fewer bytes are written when only a few MWI entries have changed.
+     * @param outputFile The file to save to.
+     * @return bytesWritten
+     * @throws IOException Thrown when writing to the file failed.
+     */
+    public long patchExecutable(File outputFile) throws IOException {
+        byte[] data = createExecutableFileBytes(true);
+        return FileUtils.writeChangedBytesToFile(outputFile, data);
+    }
+
+    private byte[] createExecutableFileBytes(boolean writeModifications) {
+        if (writeModifications)
+            writeExecutableData(getArchiveIndex());
+
+        return writeConfigToExecutable(getExecutableBytes());
+    }
+
     /**
      * Write potentially modified data from the instance object to the executable.
      * @param wadIndex The mwi file to write.
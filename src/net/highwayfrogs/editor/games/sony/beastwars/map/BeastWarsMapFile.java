@@ -400,7 +400,7 @@ public class BeastWarsMapFile extends SCGameFile<BeastWarsInstance> {
     }
 
     @Override
-    public void performDefaultUIAction() {
+    protected void onDefaultUIAction() {
         for (int i = 0; i < this.textureInfoEntries.length; i++) { // TODO: TOSS
             MapTextureInfoEntry infoEntry = this.textureInfoEntries[i];
             if (infoEntry.getFlags() != 0)
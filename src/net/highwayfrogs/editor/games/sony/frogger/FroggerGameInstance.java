@@ -40,6 +40,7 @@ import net.highwayfrogs.editor.games.sony.shared.ISCMWDHeaderGenerator;
 import net.highwayfrogs.editor.games.sony.shared.ISCTextureUser;
 import net.highwayfrogs.editor.games.sony.shared.TextureRemapArray;
 import net.highwayfrogs.editor.games.sony.shared.mof2.MRModel;
+import net.highwayfrogs.editor.games.sony.shared.mwd.MWDLevelResourceGroup;
 import net.highwayfrogs.editor.games.sony.shared.mwd.WADFile;
 import net.highwayfrogs.editor.games.sony.shared.mwd.mwi.MWIResourceEntry;
 import net.highwayfrogs.editor.games.sony.shared.mwd.mwi.MillenniumWadIndex;
@@ -262,6 +263,32 @@ public class FroggerGameInstance extends SCGameInstance implements ISCTextureUse
         fileListView.addGroup(new SCGameFileListTypeIdGroup("Unused Palettes (.PAL)", FILE_TYPE_PAL));
     }
 
+    @Override
+    public List<MWDLevelResourceGroup> getLevelResourceGroups() {
+        // Each map is loaded together with the VLO & WAD from its theme book, and the WAD from its map book.
+        List<MWDLevelResourceGroup> levelGroups = new ArrayList<>();
+        for (FroggerMapFile mapFile : getMainArchive().getAllFiles(FroggerMapFile.class)) {
+            MWDLevelResourceGroup levelGroup = new MWDLevelResourceGroup(mapFile.getFileDisplayName());
+            levelGroup.addFile(mapFile);
+
+            FroggerThemeBook themeBook = getThemeBook(mapFile.getMapTheme());
+            if (themeBook != null && themeBook.isValid()) {
+                levelGroup.addFile(themeBook.getVLO(mapFile));
+                levelGroup.addFile(themeBook.getWAD(mapFile));
+            }
+
+            FroggerMapLevelID levelId = mapFile.getMapLevelID();
+            FroggerMapBook mapBook = levelId != null ? getMapBook(levelId) : null;
+            if (mapBook != null && !mapBook.isDummy())
+                levelGroup.addFile(mapBook.execute(pcBook -> pcBook.getLevelWad(mapFile),
+                        psxBook -> psxBook.getWadId() >= 0 ? getGameFile(psxBook.getWadId()) : null));
+
+            levelGroups.add(levelGroup);
+        }
+
+        return levelGroups;
+    }
+
     @Override
     protected void setupFrameBuffers() {
         // Tested on many different versions, this seems consistent.
@@ -339,9 +366,13 @@ public class FroggerGameInstance extends SCGameInstance implements ISCTextureUse
      * @return skyLand
      */
     public FroggerSkyLand getSkyLand() {
-        for (SCGameFile<?> file : getMainArchive().getFiles())
-            if (file instanceof FroggerSkyLand)
+        for (SCGameFile<?> file : getMainArchive().getFiles()) {
+            if (file instanceof FroggerSkyLand) {
+                file.ensureLoaded();
                 return (FroggerSkyLand) file;
+            }
+        }
+
         throw new RuntimeException("Sky Land was not found.");
     }
 
@@ -165,7 +165,7 @@ public class FroggerMapFile extends SCChunkedFile<FroggerGameInstance> implement
     }
 
     @Override
-    public void performDefaultUIAction() {
+    protected void onDefaultUIAction() {
         MeshViewController.setupMeshViewer(getGameInstance(), new FroggerMapMeshController(getGameInstance()), new FroggerMapMesh(this));
     }
 
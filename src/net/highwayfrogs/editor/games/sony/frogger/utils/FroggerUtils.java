@@ -193,6 +193,9 @@ public class FroggerUtils {
             newEntry.setFile(newFile);
             target.getFiles().add(newEntry);
         }
+
+        if (target.getArchive() != null) // The wad entries were replaced.
+            target.getArchive().invalidateFileTypeIndex();
     }
 
     /**
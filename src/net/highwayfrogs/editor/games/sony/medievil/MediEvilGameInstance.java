@@ -15,6 +15,7 @@ import net.highwayfrogs.editor.games.sony.medievil.map.quadtree.MediEvilMapQuadT
 import net.highwayfrogs.editor.games.sony.shared.ISCMWDHeaderGenerator;
 import net.highwayfrogs.editor.games.sony.shared.TextureRemapArray;
 import net.highwayfrogs.editor.games.sony.shared.mof2.MRModel;
+import net.highwayfrogs.editor.games.sony.shared.mwd.MWDLevelResourceGroup;
 import net.highwayfrogs.editor.games.sony.shared.mwd.WADFile;
 import net.highwayfrogs.editor.games.sony.shared.mwd.mwi.MWIResourceEntry;
 import net.highwayfrogs.editor.games.sony.shared.mwd.mwi.MillenniumWadIndex;
@@ -205,6 +206,24 @@ public class MediEvilGameInstance extends SCGameInstance implements ISCMWDHeader
         fileListView.addGroup(new SCGameFileListTypeIdGroup("PGD [Collision Grid]", FILE_TYPE_PGD));
     }
 
+    @Override
+    public List<MWDLevelResourceGroup> getLevelResourceGroups() {
+        // Each level table entry loads a WAD (containing the map) and a VLO.
+        List<MWDLevelResourceGroup> levelGroups = new ArrayList<>();
+        for (MediEvilLevelTableEntry levelTableEntry : this.levelTable) {
+            WADFile wadFile = levelTableEntry.getWadFile();
+            if (wadFile == null)
+                continue;
+
+            MWDLevelResourceGroup levelGroup = new MWDLevelResourceGroup(wadFile.getFileDisplayName());
+            levelGroup.addFile(wadFile);
+            levelGroup.addFile(levelTableEntry.getVloFile());
+            levelGroups.add(levelGroup);
+        }
+
+        return levelGroups;
+    }
+
     @Override
     protected void setupFrameBuffers() {
         // Tested in ECTS Alpha, Build 0.28 PAL, Build 0.31, and Reviewable Version.
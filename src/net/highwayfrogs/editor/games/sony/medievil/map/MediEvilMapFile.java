@@ -78,7 +78,7 @@ public class MediEvilMapFile extends SCChunkedFile<MediEvilGameInstance> impleme
     }
 
     @Override
-    public void performDefaultUIAction() {
+    protected void onDefaultUIAction() {
         MeshViewController.setupMeshViewer(getGameInstance(), new MediEvilMapMeshController(getGameInstance()), new MediEvilMapMesh(this));
     }
 
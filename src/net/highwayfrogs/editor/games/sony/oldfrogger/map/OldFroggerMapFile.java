@@ -90,7 +90,7 @@ public class OldFroggerMapFile extends SCChunkedFile<OldFroggerGameInstance> imp
     }
 
     @Override
-    public void performDefaultUIAction() {
+    protected void onDefaultUIAction() {
         MeshViewController.setupMeshViewer(getGameInstance(), new OldFroggerMapMeshController(getGameInstance()), new OldFroggerMapMesh(this));
     }
 
@@ -45,6 +45,7 @@ public class LinkedTextureRemap<TFile extends SCGameFile<?>> extends TextureRema
         if (!this.fileClass.isInstance(file))
             throw new ClassCastException("The file was of type " + Utils.getSimpleName(file) + ", but a(n) " + Utils.getSimpleName(this.fileClass) + " was requested.");
 
+        file.ensureLoaded();
         return this.fileClass.cast(file);
     }
 }
\ No newline at end of file
@@ -105,8 +105,8 @@ public abstract class SCMapFile<TGameInstance extends SCGameInstance> extends SC
     }
 
     @Override
-    public void performDefaultUIAction() {
-        super.performDefaultUIAction();
+    protected void onDefaultUIAction() {
+        super.onDefaultUIAction();
         MeshViewController.setupMeshViewer(getGameInstance(), new SCMapMeshController<>(getGameInstance()), new SCMapMesh(this));
     }
 
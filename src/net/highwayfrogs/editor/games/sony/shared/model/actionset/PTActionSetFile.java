@@ -137,7 +137,7 @@ public class PTActionSetFile extends SCSharedGameFile {
     }
 
     @Override
-    public void performDefaultUIAction() {
+    protected void onDefaultUIAction() {
         PTStaticFile staticFile = getGameInstance().getMainArchive().getFileByName(FileUtils.stripExtension(getFileDisplayName()) + ".STAT");
         if (staticFile != null) {
             staticFile.performDefaultUIAction();
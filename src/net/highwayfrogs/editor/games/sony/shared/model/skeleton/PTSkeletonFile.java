@@ -81,7 +81,7 @@ public class PTSkeletonFile extends SCSharedGameFile implements IPropertyListCre
     }
 
     @Override
-    public void performDefaultUIAction() {
+    protected void onDefaultUIAction() {
         PTStaticFile staticFile = getGameInstance().getMainArchive().getFileByName(FileUtils.stripExtension(getFileDisplayName()) + ".STAT");
         if (staticFile != null) {
             staticFile.performDefaultUIAction();
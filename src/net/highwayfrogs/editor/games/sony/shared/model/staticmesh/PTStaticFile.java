@@ -166,7 +166,7 @@ public class PTStaticFile extends SCSharedGameFile {
     }
 
     @Override
-    public void performDefaultUIAction() {
+    protected void onDefaultUIAction() {
         PTSkeletonFile skeletonFile = getGameInstance().getMainArchive().getFileByName(FileUtils.stripExtension(getFileDisplayName()) + ".SKEL");
         PTActionSetFile animationFile = getGameInstance().getMainArchive().getFileByName(FileUtils.stripExtension(getFileDisplayName()) + ".ANIM");
         PTModel model = new PTModel(this, skeletonFile, animationFile);
@@ -181,7 +181,7 @@ public class MRModel extends SCSharedGameFile implements ISCTextureUser, IExtraU
     }
 
     @Override
-    public void performDefaultUIAction() {
+    protected void onDefaultUIAction() {
         showEditor3D();
     }
 
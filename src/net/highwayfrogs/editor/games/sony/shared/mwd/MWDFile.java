@@ -1,33 +1,43 @@
 package net.highwayfrogs.editor.games.sony.shared.mwd;
 
 import lombok.Getter;
+import lombok.RequiredArgsConstructor;
 import net.highwayfrogs.editor.Constants;
 import net.highwayfrogs.editor.games.shared.basic.GameBuildInfo;
 import net.highwayfrogs.editor.games.sony.SCGameData.SCSharedGameData;
 import net.highwayfrogs.editor.games.sony.SCGameFile;
+import net.highwayfrogs.editor.games.sony.SCGameFile.SCGameFileSaveTask;
 import net.highwayfrogs.editor.games.sony.SCGameInstance;
 import net.highwayfrogs.editor.games.sony.shared.mof2.MRModel;
 import net.highwayfrogs.editor.games.sony.shared.mwd.WADFile.WADEntry;
 import net.highwayfrogs.editor.games.sony.shared.mwd.mwi.MWIResourceEntry;
+import net.highwayfrogs.editor.games.sony.shared.pp20.PP20PackCache;
+import net.highwayfrogs.editor.games.sony.shared.pp20.PP20Packer.PackResult;
+import net.highwayfrogs.editor.games.sony.shared.pp20.PP20PackerEngine;
 import net.highwayfrogs.editor.games.sony.shared.pp20.PP20Unpacker;
 import net.highwayfrogs.editor.games.sony.shared.pp20.PP20Unpacker.UnpackResult;
 import net.highwayfrogs.editor.games.sony.shared.ui.SCMainMenuUIController;
+import net.highwayfrogs.editor.games.sony.shared.vlo2.VloDuplicateImageIndex;
 import net.highwayfrogs.editor.games.sony.shared.vlo2.VloFile;
 import net.highwayfrogs.editor.games.sony.shared.vlo2.VloImage;
 import net.highwayfrogs.editor.gui.SelectionMenu;
 import net.highwayfrogs.editor.gui.components.ProgressBarComponent;
 import net.highwayfrogs.editor.utils.FileUtils;
 import net.highwayfrogs.editor.utils.NumberUtils;
+import net.highwayfrogs.editor.utils.ThreadUtils;
 import net.highwayfrogs.editor.utils.Utils;
 import net.highwayfrogs.editor.utils.data.reader.ArraySource;
 import net.highwayfrogs.editor.utils.data.reader.DataReader;
 import net.highwayfrogs.editor.utils.data.writer.DataWriter;
+import net.highwayfrogs.editor.utils.data.writer.FileReceiver;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.file.Files;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -38,8 +48,16 @@ import java.util.function.Function;
  */
 public class MWDFile extends SCSharedGameData {
     @Getter private String buildNotes;
-    @Getter private final List<SCGameFile<?>> files = new ArrayList<>();
+    @Getter private final List<SCGameFile<?>> files = new ArrayList<>(); // If lazy loading is enabled, these files may not have been loaded yet. Their UI actions load them, other users should call ensureFileLoaded().
     private List<VloImage>[] imagesByTextureId; // TODO: Ensure this is kept up to date.
+    private final Map<SCGameFile<?>, MWDDeferredFileLoad> deferredFileLoads = Collections.synchronizedMap(new IdentityHashMap<>());
+    private final Object deferredFileLoadLock = new Object(); // Held while loading any deferred file. Files may look each other up while loading, so one lock per file could deadlock.
+    private final Map<Class<?>, List<SCGameFile<?>>> filesByType = new HashMap<>(); // Built on the first lookup of each type, including files found in wads. Synchronized on itself.
+    private int fileTypeIndexVersion; // Incremented whenever the type index changes, so lookups which race a change don't cache stale results.
+    @Getter private PP20PackerEngine savePackerEngine = PP20PackerEngine.ORIGINAL; // The engine to compress files with during the current save.
+    @Getter private boolean saveBestFitCompression; // Whether files should be compressed with whichever settings give the smallest result during the current save.
+    private MWDSavedLayout savedLayout; // Where each file was placed in the last MWD file written by save(File, ...).
+    @Getter private final VloDuplicateImageIndex duplicateImageIndex = new VloDuplicateImageIndex(this); // Finds images stored in more than one place.
 
     public static final String FILE_SIGNATURE = "DAWM";
     public static final int BUILD_NOTES_START_OFFSET = 2 * Constants.INTEGER_SIZE;
@@ -47,6 +65,8 @@ public class MWDFile extends SCSharedGameData {
     private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("EEEE, d MMMM yyyy");
     private static final SimpleDateFormat TIME_FORMAT = new SimpleDateFormat("HH:mm:ss");
     public static final int VLO_ICON_SETTING = VloImage.DEFAULT_IMAGE_STRIPPED_VIEW_SETTINGS;
+    private static final boolean PARALLEL_LOADING_ENABLED = true; // Disable to load files one at a time, which can be easier to debug.
+    private static final boolean PARALLEL_SAVING_ENABLED = true; // Disable to compress files on the saving thread, one at a time.
 
     public MWDFile(SCGameInstance instance) {
         super(instance);
@@ -59,11 +79,13 @@ public class MWDFile extends SCSharedGameData {
 
     /**
      * Loads the MWD file with a progress bar to show progress.
+     * Files are decompressed and parsed on worker threads, but are registered in MWI order.
      * @param reader the reader to read from
      * @param progressBar the progress bar to update, if exists
      */
     public void loadMwdFile(DataReader reader, ProgressBarComponent progressBar) {
         List<MWIResourceEntry> mwiEntries = getGameInstance().getArchiveIndex().getEntries();
+        boolean lazyLoading = getGameInstance().isLazyFileLoadingEnabled();
         if (progressBar != null)
             progressBar.setTotalProgress(mwiEntries.size());
 
@@ -74,6 +96,107 @@ public class MWDFile extends SCSharedGameData {
         this.buildNotes = reader.readNullTerminatedFixedSizeString(BUILD_NOTES_SIZE);
         getGameInstance().getLogger().info("Build Notes: \n%s%s", this.buildNotes, (this.buildNotes.endsWith("\n") ? "" : "\n"));
 
+        boolean validateFilePositions = areFilesStoredInOrder(mwiEntries);
+        if (!validateFilePositions)
+            getLogger().info("The MWD files are not stored in MWI order (the layout may have been optimized), so file positions will not be validated.");
+
+        if (!PARALLEL_LOADING_ENABLED) {
+            loadMwdFileSequentially(reader, mwiEntries, lazyLoading, validateFilePositions, progressBar);
+            invalidateFileTypeIndex(); // Lookups made while loading may have only seen some of the files.
+            logDeferredFileLoads();
+            return;
+        }
+
+        // Stage 1) Slice the raw file data out of the MWD, and start copying & decompressing it on the worker threads.
+        // The slices share the MWD data instead of copying it, so this stage is quick.
+        // The try block starts here, so an invalid MWI entry can't leave workers reading the slices after this method returns.
+        List<MWDFileLoadTask> loadTasks = new ArrayList<>();
+        try {
+            for (MWIResourceEntry entry : mwiEntries) {
+                if (entry.testFlag(MWIResourceEntry.FLAG_GROUP_ACCESS)) {
+                    if (progressBar != null)
+                        progressBar.addCompletedProgress(1);
+                    continue; // This file is part of a WAD archive, and isn't a file entry in the MWD, so we can't load it here.
+                }
+
+                int lastReaderIndex = reader.getIndex();
+                DataReader fileReader = reader.slice(entry.getArchiveOffset(), entry.getArchiveSize());
+                reader.setIndex(entry.getArchiveOffset() + entry.getArchiveSize());
+                reader.align(Constants.CD_SECTOR_SIZE);
+
+                MWDFileLoadTask loadTask = new MWDFileLoadTask(entry, lastReaderIndex);
+                loadTask.unpackTask = ThreadUtils.submitWorkerTask(() -> unpackFileData(fileReader.readBytes(entry.getArchiveSize()), entry));
+                loadTasks.add(loadTask);
+            }
+
+            // Stage 2) Register the files in MWI order, then parse them on the worker threads.
+            // Registration must happen in order & before parsing, since files may look each other up while loading.
+            // Files which contain models are parsed one at a time in MWI order, because creating a model looks for the last complete model before it (see SCUtils.makeModel), even across WADs.
+            Future<Boolean> lastModelParseTask = null;
+            for (MWDFileLoadTask loadTask : loadTasks) {
+                MWIResourceEntry entry = loadTask.resourceEntry;
+                if (progressBar != null)
+                    progressBar.setStatusMessage("Reading '" + entry.getDisplayName() + "'");
+
+                byte[] fileBytes = ThreadUtils.waitForTask(loadTask.unpackTask);
+                SCGameFile<?> file = loadFile(fileBytes, entry);
+                if (file instanceof MRModel && lastModelParseTask != null && !lastModelParseTask.isDone()) {
+                    // The model was created before the earlier models finished loading, so it may have found the wrong complete model. Create it again.
+                    ThreadUtils.waitForTaskToFinish(lastModelParseTask);
+                    file = loadFile(fileBytes, entry);
+                }
+
+                this.files.add(file);
+                SCGameFile<?> parseTarget = file;
+                if (lazyLoading && getGameInstance().isFileLoadDeferrable(file)) {
+                    deferFileLoad(file, fileBytes, entry, progressBar);
+                } else if (file instanceof MRModel || file instanceof WADFile) {
+                    Future<Boolean> previousModelParseTask = lastModelParseTask;
+                    loadTask.parseTask = lastModelParseTask = ThreadUtils.submitWorkerTask(() -> {
+                        if (previousModelParseTask != null)
+                            ThreadUtils.waitForTaskToFinish(previousModelParseTask);
+                        return parseFile(parseTarget, fileBytes, entry, progressBar);
+                    });
+                } else {
+                    loadTask.parseTask = ThreadUtils.submitWorkerTask(() -> parseFile(parseTarget, fileBytes, entry, progressBar));
+                }
+            }
+        } finally {
+            // The slices may no longer be readable once this method returns (eg: if the MWD is unmapped), so they must not be read after this point.
+            for (MWDFileLoadTask loadTask : loadTasks)
+                ThreadUtils.waitForTaskToFinish(loadTask.unpackTask);
+        }
+
+        // Stage 3) Wait for parsing to complete, so cross-file resolution only occurs once every file is ready.
+        boolean lastFileLoadSuccess = false;
+        for (MWDFileLoadTask loadTask : loadTasks) {
+            MWIResourceEntry entry = loadTask.resourceEntry;
+            if (validateFilePositions && lastFileLoadSuccess && loadTask.lastReaderIndex != entry.getArchiveOffset())
+                getLogger().warning("Expected file contents for '%s' at 0x%X, but it actually started at 0x%X.", entry.getDisplayName(), loadTask.lastReaderIndex, entry.getArchiveOffset());
+
+            lastFileLoadSuccess = loadTask.parseTask == null || ThreadUtils.waitForTask(loadTask.parseTask);
+        }
+
+        invalidateFileTypeIndex(); // Lookups made while loading may have only seen some of the files.
+        logDeferredFileLoads();
+    }
+
+    private static boolean areFilesStoredInOrder(List<MWIResourceEntry> mwiEntries) {
+        int lastSectorOffset = -1;
+        for (MWIResourceEntry entry : mwiEntries) {
+            if (entry.testFlag(MWIResourceEntry.FLAG_GROUP_ACCESS))
+                continue; // This file is part of a WAD archive, and isn't a file entry in the MWD.
+
+            if (entry.getSectorOffset() < lastSectorOffset)
+                return false;
+
+            lastSectorOffset = entry.getSectorOffset();
+        }
+
+        return true;
+    }
+
+    private void loadMwdFileSequentially(DataReader reader, List<MWIResourceEntry> mwiEntries, boolean lazyLoading, boolean validateFilePositions, ProgressBarComponent progressBar) {
         boolean lastFileLoadSuccess = false;
         for (MWIResourceEntry entry : mwiEntries) {
             if (entry.testFlag(MWIResourceEntry.FLAG_GROUP_ACCESS)) {
@@ -83,7 +206,7 @@ public class MWDFile extends SCSharedGameData {
             }
 
             // Validate position.
-            if (lastFileLoadSuccess) {
+            if (lastFileLoadSuccess && validateFilePositions) {
                 requireReaderIndex(reader, entry.getArchiveOffset(), "Expected file contents for '" + entry.getDisplayName() + "'");
             } else {
                 reader.setIndex(entry.getArchiveOffset());
@@ -91,7 +214,7 @@ public class MWDFile extends SCSharedGameData {
 
             // Read next file.
             byte[] fileBytes = reader.readBytes(entry.getArchiveSize());
-            lastFileLoadSuccess = loadNextFile(fileBytes, entry, progressBar);
+            lastFileLoadSuccess = loadNextFile(fileBytes, entry, lazyLoading, progressBar);
             reader.align(Constants.CD_SECTOR_SIZE);
         }
     }
@@ -103,6 +226,7 @@ public class MWDFile extends SCSharedGameData {
      */
     public void loadFilesFromDirectory(ProgressBarComponent progressBar) {
         List<MWIResourceEntry> mwiEntries = getGameInstance().getArchiveIndex().getEntries();
+        boolean lazyLoading = getGameInstance().isLazyFileLoadingEnabled();
         if (progressBar != null)
             progressBar.setTotalProgress(mwiEntries.size());
 
@@ -149,20 +273,119 @@ public class MWDFile extends SCSharedGameData {
                 continue; // Couldn't find the file.
             }
 
-            loadNextFile(fileBytes, entry, progressBar);
+            loadNextFile(fileBytes, entry, lazyLoading, progressBar);
         }
+
+        invalidateFileTypeIndex(); // Lookups made while loading may have only seen some of the files.
+        logDeferredFileLoads();
     }
 
     /**
      * Loads the next file corresponding to the MWI resource.
      * @param fileBytes the bytes of the file to load. May be compressed.
      * @param mwiEntry the MWI entry corresponding to the file
+     * @param lazyLoading if true, parsing the file will be deferred until it is first used, if the file allows it
      * @param progressBar the progress bar to update, if there is one.
      */
-    private boolean loadNextFile(byte[] fileBytes, MWIResourceEntry mwiEntry, ProgressBarComponent progressBar) {
+    private boolean loadNextFile(byte[] fileBytes, MWIResourceEntry mwiEntry, boolean lazyLoading, ProgressBarComponent progressBar) {
         if (progressBar != null)
             progressBar.setStatusMessage("Reading '" + mwiEntry.getDisplayName() + "'");
 
+        fileBytes = unpackFileData(fileBytes, mwiEntry);
+        SCGameFile<?> file = loadFile(fileBytes, mwiEntry);
+        this.files.add(file);
+        if (lazyLoading && getGameInstance().isFileLoadDeferrable(file)) {
+            deferFileLoad(file, fileBytes, mwiEntry, progressBar);
+            return true;
+        }
+
+        return parseFile(file, fileBytes, mwiEntry, progressBar);
+    }
+
+    /**
+     * Registers a file to be parsed the first time it is requested, instead of now.
+     * The file bytes are kept by the file, so they must not be a view into the MWD, which may be closed after loading.
+     * @param file the file which has been registered, but not parsed
+     * @param fileBytes the unpacked bytes of the file
+     * @param mwiEntry the MWI entry corresponding to the file
+     * @param progressBar the progress bar to update, if there is one.
+     */
+    private void deferFileLoad(SCGameFile<?> file, byte[] fileBytes, MWIResourceEntry mwiEntry, ProgressBarComponent progressBar) {
+        this.deferredFileLoads.put(file, new MWDDeferredFileLoad(mwiEntry, fileBytes));
+        if (progressBar != null)
+            progressBar.addCompletedProgress(1);
+    }
+
+    private void logDeferredFileLoads() {
+        int deferredFileCount = this.deferredFileLoads.size();
+        if (deferredFileCount > 0)
+            getLogger().info("Lazy file loading is enabled, %d file(s) will not be loaded until they are used.", deferredFileCount);
+    }
+
+    /**
+     * Loads a file which was registered without being loaded, if it has not been loaded yet.
+     * This is safe to call from any thread, but only one deferred file is loaded at a time.
+     * If the file is already being loaded by the calling thread (for example, a file which looks itself up while loading), this returns without waiting.
+     * @param file the file to load
+     * @return false iff the file failed to load
+     */
+    public boolean ensureFileLoaded(SCGameFile<?> file) {
+        if (file == null || this.deferredFileLoads.isEmpty())
+            return true;
+
+        MWDDeferredFileLoad deferredLoad = this.deferredFileLoads.get(file);
+        if (deferredLoad == null)
+            return true; // The file isn't waiting to be loaded.
+
+        synchronized (this.deferredFileLoadLock) {
+            if (deferredLoad.started)
+                return !deferredLoad.failed;
+
+            deferredLoad.started = true;
+            long loadStartTime = System.currentTimeMillis();
+            deferredLoad.failed = !parseFile(file, deferredLoad.fileBytes, deferredLoad.resourceEntry, null);
+            this.deferredFileLoads.remove(file);
+            file.getLogger().fine("Loaded on first use in %d ms.", System.currentTimeMillis() - loadStartTime);
+            return !deferredLoad.failed;
+        }
+    }
+
+    /**
+     * Tests if the given file has been loaded, or is not waiting to be loaded.
+     * @param file the file to test
+     * @return true iff the file is not waiting to be loaded lazily
+     */
+    public boolean isFileLoaded(SCGameFile<?> file) {
+        MWDDeferredFileLoad deferredLoad = file != null ? this.deferredFileLoads.get(file) : null;
+        return deferredLoad == null || deferredLoad.started;
+    }
+
+    /**
+     * Gets the number of files which have been registered, but which will not be loaded until they are first used.
+     */
+    public int getDeferredFileCount() {
+        return this.deferredFileLoads.size();
+    }
+
+    /**
+     * Gets the unpacked file data of a file which has not been loaded yet.
+     * Since the file has never been loaded, it cannot have been modified, so this data can be saved in place of the file.
+     * @param file the file to get the data for
+     * @return unloadedFileData, or null if the file has been loaded
+     */
+    public byte[] getUnloadedFileData(SCGameFile<?> file) {
+        MWDDeferredFileLoad deferredLoad = file != null ? this.deferredFileLoads.get(file) : null;
+        return deferredLoad != null && !deferredLoad.started ? deferredLoad.fileBytes : null;
+    }
+
+    /**
+     * Decompresses the file data if it is PP20 compressed, and runs the MWI entry load hook.
+     * This is safe to call from any thread.
+     * @param fileBytes the bytes of the file to load. May be compressed.
+     * @param mwiEntry the MWI entry corresponding to the file
+     * @return unpackedFileBytes
+     */
+    private byte[] unpackFileData(byte[] fileBytes, MWIResourceEntry mwiEntry) {
         // Read the file. Decompress if it is PP20 compression.
         int safetyMarginWordCount = 0;
         byte[] compressedBytes = null;
@@ -181,9 +404,18 @@ public class MWDFile extends SCSharedGameData {
             getLogger().severe("ERROR: File is marked as being %d bytes large, but is actually %d bytes large.", mwiEntry.getUnpackedSize(), fileBytes.length);
 
         mwiEntry.onLoadData(fileBytes, compressedBytes, safetyMarginWordCount);
-        SCGameFile<?> file = loadFile(fileBytes, mwiEntry);
-        this.files.add(file);
+        return fileBytes;
+    }
 
+    /**
+     * Parses the file data into the already registered file object.
+     * @param file the file to load data into
+     * @param fileBytes the unpacked bytes of the file
+     * @param mwiEntry the MWI entry corresponding to the file
+     * @param progressBar the progress bar to update, if there is one.
+     * @return true iff the file loaded successfully
+     */
+    private boolean parseFile(SCGameFile<?> file, byte[] fileBytes, MWIResourceEntry mwiEntry, ProgressBarComponent progressBar) {
         boolean success = true;
         try {
             DataReader singleFileReader = new DataReader(new ArraySource(fileBytes));
@@ -214,6 +446,8 @@ public class MWDFile extends SCSharedGameData {
         if (oldFile == null)
             throw new NullPointerException("oldFile");
 
+        ensureFileLoaded(oldFile); // The replacement may copy data from the old file.
+
         // Create the new file object which will replace the old one.
         T newFile;
         if (oldFile instanceof MRModel) {
@@ -267,6 +501,8 @@ public class MWDFile extends SCSharedGameData {
      * @param newFile   The file to use as replacement.
      */
     public void replaceFile(String importedFileName, MWIResourceEntry entry, SCGameFile<?> oldFile, SCGameFile<?> newFile, boolean updateUI) {
+        ensureFileLoaded(oldFile); // The replacement may copy data from the old file.
+
         // Replace file.
         int fileIndex = this.files.indexOf(oldFile);
         WADEntry wadEntry = oldFile.getWadFileEntry();
@@ -299,9 +535,12 @@ public class MWDFile extends SCSharedGameData {
         getGameInstance().getFileObjectsByFileEntries().put(resourceEntry, newFile);
         newFile.setFileDefinition(resourceEntry);
 
-        if (fileIndex >= 0) // Found in MWD.
+        if (fileIndex >= 0) { // Found in MWD.
             this.files.set(fileIndex, newFile);
-        if (wadEntry != null) {
+            onFileReplaced(oldFile, newFile);
+        }
+
+        if (wadEntry != null) { // Setting the file updates the type index.
             wadEntry.setFile(newFile);
             if (resourceId >= 0)
                 wadEntry.setResourceId(resourceId);
@@ -329,6 +568,7 @@ public class MWDFile extends SCSharedGameData {
         T file = createFile(fileBytes, entry);
         getGameInstance().getFileObjectsByFileEntries().put(entry, file);
         file.setFileDefinition(entry);
+        invalidateFileTypeIndex();
         return file;
     }
 
@@ -343,9 +583,220 @@ public class MWDFile extends SCSharedGameData {
      * @param progressBar the progress bar to update, if exists
      */
     public void save(DataWriter writer, ProgressBarComponent progressBar) {
+        save(writer, progressBar, PP20PackerEngine.ORIGINAL);
+    }
+
+    /**
+     * Saves the file with a progress bar to show progress.
+     * @param writer the writer to write to
+     * @param progressBar the progress bar to update, if exists
+     * @param packerEngine the engine to compress files with
+     */
+    public void save(DataWriter writer, ProgressBarComponent progressBar, PP20PackerEngine packerEngine) {
+        save(writer, progressBar, packerEngine, false);
+    }
+
+    /**
+     * Saves the file with a progress bar to show progress.
+     * @param writer the writer to write to
+     * @param progressBar the progress bar to update, if exists
+     * @param packerEngine the engine to compress files with
+     * @param bestFitCompression if true, each file will be compressed using whichever compression settings produce the smallest result
+     */
+    public void save(DataWriter writer, ProgressBarComponent progressBar, PP20PackerEngine packerEngine, boolean bestFitCompression) {
+        if (packerEngine == null)
+            throw new NullPointerException("packerEngine");
+
+        this.savePackerEngine = packerEngine;
+        this.saveBestFitCompression = bestFitCompression;
         try {
-            if (getGameInstance().getVloTree() != null)
-                getGameInstance().getVloTree().rebuildRecursive(progressBar);
+            saveMwdFile(writer, progressBar);
+        } finally {
+            this.savePackerEngine = PP20PackerEngine.ORIGINAL;
+            this.saveBestFitCompression = false;
+        }
+    }
+
+    /**
+     * Saves the MWD to a file.
+     * If a delta save is requested, and the file is unchanged since it was written by the previous call to this method, only the files which changed are rewritten, in place.
+     * This is only possible if every file still fits within the sectors it was previously placed in. Otherwise, the full MWD is rebuilt.
+     * A delta save does not rewrite the MWD header, so the build notes will keep the time of the last full save.
+     * The MWI entries are updated either way, so the MWI must still be written to the executable afterward.
+     * @param outputFile the file to save the MWD to
+     * @param progressBar the progress bar to update, if exists
+     * @param packerEngine the engine to compress files with
+     * @param bestFitCompression if true, each file will be compressed using whichever compression settings produce the smallest result
+     * @param deltaSave if true, the existing file will be updated in place when possible
+     * @return saveResult
+     * @throws IOException Thrown if the existing file could not be updated.
+     */
+    public MWDSaveResult save(File outputFile, ProgressBarComponent progressBar, PP20PackerEngine packerEngine, boolean bestFitCompression, boolean deltaSave) throws IOException {
+        if (outputFile == null)
+            throw new NullPointerException("outputFile");
+        if (packerEngine == null)
+            throw new NullPointerException("packerEngine");
+
+        this.savePackerEngine = packerEngine;
+        this.saveBestFitCompression = bestFitCompression;
+        try {
+            long mwdStart = System.currentTimeMillis();
+            List<SCGameFileSaveTask> saveTasks = startSavingFiles(progressBar);
+
+            MWDSaveResult saveResult;
+            String fullSaveReason = deltaSave ? getDeltaSaveRejectionReason(outputFile, saveTasks) : null;
+            if (deltaSave && fullSaveReason == null) {
+                saveResult = writeDeltaMwdFile(outputFile, saveTasks, progressBar);
+            } else {
+                if (fullSaveReason != null)
+                    getLogger().info("Rebuilding the full MWD, since %s", fullSaveReason);
+
+                saveResult = writeFullMwdFile(outputFile, saveTasks, progressBar);
+            }
+
+            logSaveStatistics(mwdStart);
+            getLogger().info("%s %d byte(s) to '%s', rewriting %d file(s).", (saveResult.isDeltaSave() ? "Delta saved" : "Saved"), saveResult.getBytesWritten(), outputFile.getName(), saveResult.getFilesWritten());
+            return saveResult;
+        } finally {
+            this.savePackerEngine = PP20PackerEngine.ORIGINAL;
+            this.saveBestFitCompression = false;
+        }
+    }
+
+    private String getDeltaSaveRejectionReason(File outputFile, List<SCGameFileSaveTask> saveTasks) {
+        MWDSavedLayout layout = this.savedLayout;
+        if (layout == null)
+            return "there is no previous save to update.";
+        if (!layout.file.equals(outputFile.getAbsoluteFile()))
+            return "the previous save was to a different file.";
+        if (!outputFile.isFile() || outputFile.length() != layout.fileLength || outputFile.lastModified() != layout.lastModified)
+            return "the file has changed since it was last saved.";
+        if (layout.resourceEntries.size() != saveTasks.size())
+            return "files have been added or removed since the last save.";
+
+        for (int i = 0; i < saveTasks.size(); i++) {
+            SCGameFileSaveTask saveTask = saveTasks.get(i);
+            MWIResourceEntry entry = saveTask.getFile().getIndexEntry();
+            if (layout.resourceEntries.get(i) != entry || layout.sectorOffsets[i] != entry.getSectorOffset())
+                return "the file order has changed since the last save.";
+
+            byte[] writtenBytes;
+            try {
+                writtenBytes = saveTask.getWrittenBytes();
+            } catch (Throwable th) {
+                continue; // The error will be reported when the file is written, and the old file data will be kept.
+            }
+
+            long availableBytes = layout.getAvailableBytes(i);
+            if (writtenBytes.length > availableBytes)
+                return "'" + saveTask.getFile().getFileDisplayName() + "' (" + writtenBytes.length + " bytes) no longer fits in the " + availableBytes + " bytes it was previously given.";
+        }
+
+        return null;
+    }
+
+    private MWDSaveResult writeDeltaMwdFile(File outputFile, List<SCGameFileSaveTask> saveTasks, ProgressBarComponent progressBar) throws IOException {
+        MWDSavedLayout layout = this.savedLayout;
+        long bytesWritten = 0;
+        int filesWritten = 0;
+        try (RandomAccessFile mwdFile = new RandomAccessFile(outputFile, "rw")) {
+            for (int i = 0; i < saveTasks.size(); i++) {
+                SCGameFileSaveTask saveTask = saveTasks.get(i);
+                if (progressBar != null)
+                    progressBar.setStatusMessage("Writing '" + saveTask.getFile().getFileDisplayName() + "'");
+
+                byte[] writtenBytes;
+                try {
+                    writtenBytes = saveTask.getWrittenBytes();
+                } catch (Throwable th) {
+                    Utils.handleError(saveTask.getFile().getLogger(), th, true, "Failed to save file '%s' to MWD.", saveTask.getFile().getFileDisplayName());
+                    continue; // Keep the data from the previous save.
+                }
+
+                long fileOffset = (long) layout.sectorOffsets[i] * Constants.CD_SECTOR_SIZE;
+                int oldSize = layout.fileSizes[i];
+                if (writtenBytes.length != oldSize || !isFileDataEqual(mwdFile, fileOffset, writtenBytes)) {
+                    mwdFile.seek(fileOffset);
+                    mwdFile.write(writtenBytes);
+                    if (writtenBytes.length < oldSize) // Clear the rest of the old data, so the padding matches a full save.
+                        mwdFile.write(new byte[oldSize - writtenBytes.length]);
+
+                    bytesWritten += Math.max(writtenBytes.length, oldSize);
+                    filesWritten++;
+                }
+
+                layout.fileSizes[i] = writtenBytes.length;
+                saveTask.onWritten(progressBar);
+            }
+        }
+
+        layout.fileLength = outputFile.length();
+        layout.lastModified = outputFile.lastModified();
+        return new MWDSaveResult(true, filesWritten, bytesWritten);
+    }
+
+    private static boolean isFileDataEqual(RandomAccessFile file, long fileOffset, byte[] data) throws IOException {
+        byte[] oldData = new byte[data.length];
+        file.seek(fileOffset);
+        file.readFully(oldData);
+        return Arrays.equals(oldData, data);
+    }
+
+    private MWDSaveResult writeFullMwdFile(File outputFile, List<SCGameFileSaveTask> saveTasks, ProgressBarComponent progressBar) {
+        this.savedLayout = null;
+        int mwdSize;
+        DataWriter writer = new DataWriter(new FileReceiver(outputFile));
+        try {
+            writeMwdFile(writer, saveTasks, progressBar);
+            mwdSize = writer.getIndex();
+        } finally {
+            writer.closeReceiver();
+        }
+
+        // Remember where each file was placed, so the next save can update them in place.
+        MWDSavedLayout layout = new MWDSavedLayout(outputFile.getAbsoluteFile(), saveTasks.size());
+        for (int i = 0; i < saveTasks.size(); i++) {
+            MWIResourceEntry entry = saveTasks.get(i).getFile().getIndexEntry();
+            layout.resourceEntries.add(entry);
+            layout.sectorOffsets[i] = entry.getSectorOffset();
+            layout.fileSizes[i] = entry.getArchiveSize();
+        }
+
+        layout.fileLength = outputFile.length();
+        layout.lastModified = outputFile.lastModified();
+        if (layout.fileLength == mwdSize)
+            this.savedLayout = layout;
+
+        return new MWDSaveResult(false, saveTasks.size(), mwdSize);
+    }
+
+    /**
+     * Compresses the data of a file being saved, using the compression options chosen for the current save.
+     * @param fileBytes the file data to compress
+     * @return packResult
+     */
+    public PackResult packSaveFileData(byte[] fileBytes) {
+        if (this.saveBestFitCompression)
+            return PP20PackCache.packDataBestFit(fileBytes, this.savePackerEngine);
+
+        return PP20PackCache.packData(fileBytes, this.savePackerEngine);
+    }
+
+    private void saveMwdFile(DataWriter writer, ProgressBarComponent progressBar) {
+        this.savedLayout = null; // The files are about to be moved, so the previously saved file can no longer be updated in place.
+        long mwdStart = System.currentTimeMillis();
+        List<SCGameFileSaveTask> saveTasks = startSavingFiles(progressBar);
+        writeMwdFile(writer, saveTasks, progressBar);
+        logSaveStatistics(mwdStart);
+    }
+
+    private List<SCGameFileSaveTask> startSavingFiles(ProgressBarComponent progressBar) {
+        try {
+            if (getGameInstance().getVloTree() != null) { // Only nodes with changes (and the nodes placed around them) need their texture positions recalculated.
+                int rebuiltNodes = getGameInstance().getVloTree().rebuildDirtyRecursive(progressBar);
+                if (rebuiltNodes > 0)
+                    getLogger().info("Recalculated texture positions for %d VloTree node(s).", rebuiltNodes);
+            }
         } catch (Throwable th) {
             Utils.handleError(getLogger(), th, true, "Failed to place game textures (.VLO files) into VRAM!");
         }
@@ -353,6 +804,29 @@ public class MWDFile extends SCSharedGameData {
         if (progressBar != null)
             progressBar.setTotalProgress(this.files.size());
 
+        PP20PackCache.getDefaultCache().resetStatistics();
+
+        // Save each file to a byte array, compressing them on the worker threads.
+        List<SCGameFileSaveTask> saveTasks = new ArrayList<>(this.files.size());
+        for (SCGameFile<?> file : this.files)
+            saveTasks.add(file.startSaveFile(progressBar, PARALLEL_SAVING_ENABLED));
+
+        // Choose the order to write the files in.
+        if (getGameInstance().isMwdLayoutOptimizationEnabled()) {
+            List<MWDLevelResourceGroup> levelGroups = getGameInstance().getLevelResourceGroups();
+            if (levelGroups.size() > 0) {
+                List<SCGameFileSaveTask> orderedSaveTasks = MWDLayoutOptimizer.optimizeFileOrder(saveTasks, levelGroups);
+                MWDLayoutOptimizer.logSeekDistances(getLogger(), levelGroups, saveTasks, orderedSaveTasks);
+                saveTasks = orderedSaveTasks;
+            } else {
+                getLogger().warning("MWD layout optimization is enabled, but the levels for this game are not known, so the files will be saved in MWI order.");
+            }
+        }
+
+        return saveTasks;
+    }
+
+    private void writeMwdFile(DataWriter writer, List<SCGameFileSaveTask> saveTasks, ProgressBarComponent progressBar) {
         writer.writeBytes(FILE_SIGNATURE.getBytes());
         writer.writeInt(0);
 
@@ -365,31 +839,36 @@ public class MWDFile extends SCSharedGameData {
                 + "\n");
         writer.align(Constants.CD_SECTOR_SIZE);
 
-        long mwdStart = System.currentTimeMillis();
-        for (SCGameFile<?> file : this.files) {
+        // Assign sector offsets in order, and write the file contents as they become available.
+        for (SCGameFileSaveTask saveTask : saveTasks) {
             if ((writer.getIndex() % Constants.CD_SECTOR_SIZE) != 0)
                 throw new RuntimeException("Writer index (" + NumberUtils.toHexString(writer.getIndex()) + ") was not aligned to CD sector size!");
 
-            MWIResourceEntry entry = file.getIndexEntry();
+            MWIResourceEntry entry = saveTask.getFile().getIndexEntry();
             int currentSector = writer.getIndex() / Constants.CD_SECTOR_SIZE;
             entry.setSectorOffset(currentSector);
 
-            file.saveFile(writer, progressBar);
+            saveTask.writeTo(writer, progressBar);
             writer.align(Constants.CD_SECTOR_SIZE);
         }
-        getLogger().info("MWD Built. Total Time: %d ms.", (System.currentTimeMillis() - mwdStart));
 
         // Fill the rest of the file with null bytes.
         writer.align(Constants.CD_SECTOR_SIZE);
     }
 
+    private void logSaveStatistics(long mwdStart) {
+        getLogger().info("MWD Built using the %s PP20 packer%s. Total Time: %d ms.", this.savePackerEngine.getDisplayName(), (this.saveBestFitCompression ? " (Best Fit)" : ""), (System.currentTimeMillis() - mwdStart));
+        getLogger().info(PP20PackCache.getDefaultCache().getStatisticsString());
+        getLogger().info(getGameInstance().getImageCache().getStatisticsString());
+    }
+
     /**
      * Get the VLO for a given map theme.
      * @param handler The handler for when the VLO is determined.
      * @param allowNull Are null VLOs allowed?
      */
     public void promptVLOSelection(Consumer<VloFile> handler, boolean allowNull) {
-        List<VloFile> allVLOs = getAllFiles(VloFile.class);
+        List<VloFile> allVLOs = new ArrayList<>(getAllFiles(VloFile.class));
 
         if (allowNull)
             allVLOs.add(0, null);
@@ -401,21 +880,48 @@ public class MWDFile extends SCSharedGameData {
 
     /**
      * Get each file of a given class type, including those found in wads.
+     * The files of each type are indexed on the first lookup, so later lookups don't need to search every file.
      * @param fileClass The type to iterate over.
+     * @return an unmodifiable view of the files, which stays up to date when files are replaced
      */
+    @SuppressWarnings("unchecked")
     public <T extends SCGameFile<?>> List<T> getAllFiles(Class<T> fileClass) {
-        List<T> results = new ArrayList<>();
+        List<SCGameFile<?>> results;
+        synchronized (this.filesByType) {
+            results = this.filesByType.get(fileClass);
+        }
+
+        if (results == null) {
+            int indexVersion;
+            synchronized (this.filesByType) {
+                indexVersion = this.fileTypeIndexVersion;
+            }
+
+            results = findAllFiles(fileClass);
+            synchronized (this.filesByType) {
+                if (indexVersion == this.fileTypeIndexVersion)
+                    this.filesByType.put(fileClass, results);
+            }
+        }
+
+        for (int i = 0; i < results.size(); i++)
+            ensureFileLoaded(results.get(i));
+
+        return (List<T>) Collections.unmodifiableList(results);
+    }
 
+    private List<SCGameFile<?>> findAllFiles(Class<?> fileClass) {
+        List<SCGameFile<?>> results = new ArrayList<>();
         for (SCGameFile<?> file : getFiles()) {
             if (fileClass.isInstance(file))
-                results.add(fileClass.cast(file));
+                results.add(file);
 
             if (file instanceof WADFile) {
                 WADFile wadFile = (WADFile) file;
                 for (WADEntry entry : wadFile.getFiles()) {
                     SCGameFile<?> testFile = entry.getFile();
                     if (fileClass.isInstance(testFile))
-                        results.add(fileClass.cast(testFile));
+                        results.add(testFile);
                 }
             }
         }
@@ -423,6 +929,57 @@ public class MWDFile extends SCSharedGameData {
         return results;
     }
 
+    /**
+     * Updates the type index used by getAllFiles() after a file has been replaced by another file.
+     * If the new file can't take the position of the old file in an indexed type, that type will be indexed again on its next lookup.
+     * If either file is a wad, the whole index is cleared, since the files inside the wad are replaced too.
+     * @param oldFile the file which was replaced, or null if the file is new
+     * @param newFile the file which replaced it, or null if the file was removed
+     */
+    public void onFileReplaced(SCGameFile<?> oldFile, SCGameFile<?> newFile) {
+        if (oldFile instanceof WADFile || newFile instanceof WADFile) {
+            invalidateFileTypeIndex(); // The files inside the wads have been replaced too.
+            return;
+        }
+
+        synchronized (this.filesByType) {
+            this.fileTypeIndexVersion++;
+            Iterator<Map.Entry<Class<?>, List<SCGameFile<?>>>> iterator = this.filesByType.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Class<?>, List<SCGameFile<?>>> entry = iterator.next();
+                boolean oldFileMatches = entry.getKey().isInstance(oldFile);
+                boolean newFileMatches = entry.getKey().isInstance(newFile);
+                if (oldFileMatches != newFileMatches) {
+                    iterator.remove();
+                } else if (oldFileMatches && !replaceIndexedFile(entry.getValue(), oldFile, newFile)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private static boolean replaceIndexedFile(List<SCGameFile<?>> files, SCGameFile<?> oldFile, SCGameFile<?> newFile) {
+        for (int i = 0; i < files.size(); i++) {
+            if (files.get(i) == oldFile) {
+                files.set(i, newFile);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Clears the type index used by getAllFiles(), so each type will be indexed again on its next lookup.
+     * This should be called whenever files are added to or removed from the MWD or one of its wads.
+     */
+    public void invalidateFileTypeIndex() {
+        synchronized (this.filesByType) {
+            this.fileTypeIndexVersion++;
+            this.filesByType.clear();
+        }
+    }
+
     /**
      * Gets all files, including those found in wads.
      */
@@ -430,6 +987,7 @@ public class MWDFile extends SCSharedGameData {
         List<SCGameFile<?>> results = new ArrayList<>();
 
         for (SCGameFile<?> file : getFiles()) {
+            ensureFileLoaded(file);
             results.add(file);
 
             if (file instanceof WADFile) {
@@ -452,8 +1010,10 @@ public class MWDFile extends SCSharedGameData {
      */
     public <T extends SCGameFile<?>> void forEachFile(Class<T> fileClass, Consumer<T> handler) {
         for (SCGameFile<?> file : getFiles()) {
-            if (fileClass.isInstance(file))
+            if (fileClass.isInstance(file)) {
+                ensureFileLoaded(file);
                 handler.accept(fileClass.cast(file));
+            }
 
             if (file instanceof WADFile) {
                 WADFile wadFile = (WADFile) file;
@@ -474,6 +1034,7 @@ public class MWDFile extends SCSharedGameData {
     public <T extends SCGameFile<?>, R> R resolveForEachFile(Class<T> fileClass, Function<T, R> handler) {
         for (SCGameFile<?> file : getFiles()) {
             if (fileClass.isInstance(file)) {
+                ensureFileLoaded(file);
                 R result = handler.apply(fileClass.cast(file));
                 if (result != null)
                     return result; // If there's a result.
@@ -502,8 +1063,10 @@ public class MWDFile extends SCSharedGameData {
     @SuppressWarnings("unchecked")
     public <TGameFile extends SCGameFile<? extends SCGameInstance>> TGameFile getFileByName(String fileName) {
         for (SCGameFile<?> gameFile : getFiles()) {
-            if (matchesFileName(gameFile.getIndexEntry(), fileName))
+            if (matchesFileName(gameFile.getIndexEntry(), fileName)) {
+                ensureFileLoaded(gameFile);
                 return (TGameFile) gameFile;
+            }
 
             if (gameFile instanceof WADFile)
                 for (WADEntry wadFileEntry : ((WADFile) gameFile).getFiles())
@@ -599,4 +1162,58 @@ public class MWDFile extends SCSharedGameData {
 
         newImageList.add(image);
     }
-}
\ No newline at end of file
+
+    @RequiredArgsConstructor
+    private static class MWDDeferredFileLoad {
+        private final MWIResourceEntry resourceEntry;
+        private final byte[] fileBytes;
+        private volatile boolean started;
+        private volatile boolean failed;
+    }
+
+    /**
+     * Describes what happened when the MWD was saved to a file.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class MWDSaveResult {
+        private final boolean deltaSave; // True iff the existing file was updated in place, instead of being rebuilt.
+        private final int filesWritten;
+        private final long bytesWritten;
+    }
+
+    private static class MWDSavedLayout {
+        private final File file;
+        private final List<MWIResourceEntry> resourceEntries;
+        private final int[] sectorOffsets;
+        private final int[] fileSizes;
+        private long fileLength;
+        private long lastModified;
+
+        public MWDSavedLayout(File file, int fileCount) {
+            this.file = file;
+            this.resourceEntries = new ArrayList<>(fileCount);
+            this.sectorOffsets = new int[fileCount];
+            this.fileSizes = new int[fileCount];
+        }
+
+        /**
+         * Gets the number of bytes a file can use without overlapping the file placed after it.
+         * @param index the index of the file
+         * @return availableBytes
+         */
+        public long getAvailableBytes(int index) {
+            long fileOffset = (long) this.sectorOffsets[index] * Constants.CD_SECTOR_SIZE;
+            long nextFileOffset = (index + 1 < this.sectorOffsets.length) ? (long) this.sectorOffsets[index + 1] * Constants.CD_SECTOR_SIZE : this.fileLength;
+            return nextFileOffset - fileOffset;
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class MWDFileLoadTask {
+        private final MWIResourceEntry resourceEntry;
+        private final int lastReaderIndex; // The reader index after the previous file, used to validate the MWD layout.
+        private Future<byte[]> unpackTask;
+        private Future<Boolean> parseTask;
+    }
+}
@@ -0,0 +1,121 @@
+package net.highwayfrogs.editor.games.sony.shared.mwd;
+
+import net.highwayfrogs.editor.Constants;
+import net.highwayfrogs.editor.games.sony.SCGameFile;
+import net.highwayfrogs.editor.games.sony.SCGameFile.SCGameFileSaveTask;
+import net.highwayfrogs.editor.utils.logging.ILogger;
+
+import java.util.*;
+
+/**
+ * Chooses the order which files are placed in the MWD, so the files read when loading a level are next to each other on the disc.
+ * The game finds files by the sector offsets in the MWI, so files do not need to be stored in MWI order.
+ * Created by Kneesnap on 10/17/2026.
+ */
+public class MWDLayoutOptimizer {
+    private static final int HEADER_SECTOR_COUNT = 1; // The build notes take the first sector.
+
+    /**
+     * Orders the files being saved so the files in each level group are placed next to each other.
+     * Each group is placed where the first of its files would have been, and all other files keep their relative order.
+     * A file used by multiple levels (such as a theme VLO) is placed with the first group which uses it.
+     * @param saveTasks the files being saved, in their current order
+     * @param levelGroups the groups of files loaded together
+     * @return orderedSaveTasks
+     */
+    public static List<SCGameFileSaveTask> optimizeFileOrder(List<SCGameFileSaveTask> saveTasks, List<MWDLevelResourceGroup> levelGroups) {
+        Map<SCGameFile<?>, SCGameFileSaveTask> saveTasksByFile = new IdentityHashMap<>();
+        for (SCGameFileSaveTask saveTask : saveTasks)
+            saveTasksByFile.put(saveTask.getFile(), saveTask);
+
+        // The first group containing a file is the group it will be placed with.
+        Map<SCGameFile<?>, MWDLevelResourceGroup> groupsByFile = new IdentityHashMap<>();
+        for (MWDLevelResourceGroup levelGroup : levelGroups)
+            for (SCGameFile<?> file : levelGroup.getFiles())
+                if (saveTasksByFile.containsKey(file))
+                    groupsByFile.putIfAbsent(file, levelGroup);
+
+        List<SCGameFileSaveTask> orderedSaveTasks = new ArrayList<>(saveTasks.size());
+        Set<SCGameFileSaveTask> placedSaveTasks = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (SCGameFileSaveTask saveTask : saveTasks) {
+            if (placedSaveTasks.contains(saveTask))
+                continue;
+
+            MWDLevelResourceGroup levelGroup = groupsByFile.get(saveTask.getFile());
+            if (levelGroup == null) {
+                orderedSaveTasks.add(saveTask);
+                placedSaveTasks.add(saveTask);
+                continue;
+            }
+
+            for (SCGameFile<?> file : levelGroup.getFiles()) {
+                SCGameFileSaveTask groupSaveTask = saveTasksByFile.get(file);
+                if (groupSaveTask != null && groupsByFile.get(file) == levelGroup && placedSaveTasks.add(groupSaveTask))
+                    orderedSaveTasks.add(groupSaveTask);
+            }
+        }
+
+        return orderedSaveTasks;
+    }
+
+    /**
+     * Logs the estimated seek distance when loading each level, for both file orders.
+     * The seek distance is the number of sectors skipped (forward or backward) between reading one file of the level and the next.
+     * This waits for the files to finish compressing, since the size of each file is needed.
+     * @param logger the logger to write to
+     * @param levelGroups the groups of files loaded together
+     * @param oldSaveTasks the files in their original order
+     * @param newSaveTasks the files in their new order
+     */
+    public static void logSeekDistances(ILogger logger, List<MWDLevelResourceGroup> levelGroups, List<SCGameFileSaveTask> oldSaveTasks, List<SCGameFileSaveTask> newSaveTasks) {
+        Map<SCGameFile<?>, int[]> oldLayout = calculateSectorLayout(oldSaveTasks);
+        Map<SCGameFile<?>, int[]> newLayout = calculateSectorLayout(newSaveTasks);
+
+        long totalOldDistance = 0;
+        long totalNewDistance = 0;
+        for (MWDLevelResourceGroup levelGroup : levelGroups) {
+            long oldDistance = calculateSeekDistance(levelGroup, oldLayout);
+            long newDistance = calculateSeekDistance(levelGroup, newLayout);
+            totalOldDistance += oldDistance;
+            totalNewDistance += newDistance;
+            logger.info("Estimated seek distance for '%s': %d sector(s) -> %d sector(s).", levelGroup.getName(), oldDistance, newDistance);
+        }
+
+        logger.info("Estimated seek distance for all %d level(s): %d sector(s) -> %d sector(s).", levelGroups.size(), totalOldDistance, totalNewDistance);
+    }
+
+    private static Map<SCGameFile<?>, int[]> calculateSectorLayout(List<SCGameFileSaveTask> saveTasks) {
+        Map<SCGameFile<?>, int[]> sectorRanges = new IdentityHashMap<>();
+        int currentSector = HEADER_SECTOR_COUNT;
+        for (SCGameFileSaveTask saveTask : saveTasks) {
+            int byteSize;
+            try {
+                byteSize = saveTask.getWrittenBytes().length;
+            } catch (Throwable th) {
+                byteSize = 0; // The error will be reported when the file is written.
+            }
+
+            int sectorCount = (byteSize + Constants.CD_SECTOR_SIZE - 1) / Constants.CD_SECTOR_SIZE;
+            sectorRanges.put(saveTask.getFile(), new int[] {currentSector, currentSector + sectorCount});
+            currentSector += sectorCount;
+        }
+
+        return sectorRanges;
+    }
+
+    private static long calculateSeekDistance(MWDLevelResourceGroup levelGroup, Map<SCGameFile<?>, int[]> sectorRanges) {
+        long seekDistance = 0;
+        int[] lastSectorRange = null;
+        for (SCGameFile<?> file : levelGroup.getFiles()) {
+            int[] sectorRange = sectorRanges.get(file);
+            if (sectorRange == null)
+                continue; // The file is not stored directly in the MWD.
+
+            if (lastSectorRange != null)
+                seekDistance += Math.abs(sectorRange[0] - lastSectorRange[1]);
+            lastSectorRange = sectorRange;
+        }
+
+        return seekDistance;
+    }
+}
@@ -0,0 +1,28 @@
+package net.highwayfrogs.editor.games.sony.shared.mwd;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import net.highwayfrogs.editor.games.sony.SCGameFile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents the MWD files which the game reads from the disc when loading a level.
+ * Created by Kneesnap on 10/17/2026.
+ */
+@Getter
+@RequiredArgsConstructor
+public class MWDLevelResourceGroup {
+    private final String name;
+    private final List<SCGameFile<?>> files = new ArrayList<>(); // In the order they are read by the game.
+
+    /**
+     * Adds a file to the group, if it is not null and not already part of the group.
+     * @param file the file to add
+     */
+    public void addFile(SCGameFile<?> file) {
+        if (file != null && !this.files.contains(file))
+            this.files.add(file);
+    }
+}
@@ -4,6 +4,7 @@ import javafx.scene.control.ContextMenu;
 import javafx.scene.control.MenuItem;
 import javafx.scene.image.Image;
 import lombok.Getter;
+import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import net.highwayfrogs.editor.Constants;
 import net.highwayfrogs.editor.games.sony.SCGameFile;
@@ -11,7 +12,6 @@ import net.highwayfrogs.editor.games.sony.SCGameFile.SCSharedGameFile;
 import net.highwayfrogs.editor.games.sony.SCGameInstance;
 import net.highwayfrogs.editor.games.sony.shared.mof2.MRModel;
 import net.highwayfrogs.editor.games.sony.shared.mwd.mwi.MWIResourceEntry;
-import net.highwayfrogs.editor.games.sony.shared.pp20.PP20Packer;
 import net.highwayfrogs.editor.games.sony.shared.pp20.PP20Packer.PackResult;
 import net.highwayfrogs.editor.games.sony.shared.pp20.PP20Unpacker;
 import net.highwayfrogs.editor.games.sony.shared.pp20.PP20Unpacker.UnpackResult;
@@ -20,6 +20,7 @@ import net.highwayfrogs.editor.games.sony.shared.utils.DynamicMeshObjExporter;
 import net.highwayfrogs.editor.gui.ImageResource;
 import net.highwayfrogs.editor.utils.FileUtils;
 import net.highwayfrogs.editor.utils.FileUtils.SavedFilePath;
+import net.highwayfrogs.editor.utils.ThreadUtils;
 import net.highwayfrogs.editor.utils.Utils;
 import net.highwayfrogs.editor.utils.data.reader.ArraySource;
 import net.highwayfrogs.editor.utils.data.reader.DataReader;
@@ -30,6 +31,9 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  * Represents a WAD file.
@@ -44,6 +48,7 @@ public class WADFile extends SCSharedGameFile {
     private static final int TERMINATOR = -1;
     private static final SavedFilePath WAD_FILE_EXPORT_PATH = new SavedFilePath("wadExportPath", "Select the directory to export WAD contents to.");
     private static final SavedFilePath WAD_FILE_IMPORT_PATH = new SavedFilePath("wadImportPath", "Select the directory to import WAD contents from.");
+    private static final boolean PARALLEL_PROCESSING_ENABLED = true; // Disable to decompress, parse & compress entries on the calling thread, which can be easier to debug.
 
     public WADFile(SCGameInstance instance) {
         super(instance);
@@ -52,6 +57,12 @@ public class WADFile extends SCSharedGameFile {
     @Override
     public void load(DataReader reader) {
         this.files.clear();
+        MWDFile archive = getArchive();
+        if (archive != null)
+            archive.invalidateFileTypeIndex();
+
+        // Stage 1) Read the raw entry data, and start decompressing it on the worker threads.
+        List<WADEntryLoadTask> loadTasks = new ArrayList<>();
         int lastFileCount = -1;
         while (reader.hasMore()) {
             int resourceId = reader.readInt();
@@ -63,7 +74,7 @@ public class WADFile extends SCSharedGameFile {
             int fileTypeId = reader.readInt();
             int fileSizeInBytes = reader.readInt();
             int fileCount = reader.readInt(); // The number of files in the wad, until the last one which is zero. (But all of them are zero)
-            if (this.files.size() > 0 && lastFileCount != -1 && lastFileCount != fileCount)
+            if (loadTasks.size() > 0 && lastFileCount != -1 && lastFileCount != fileCount)
                 getLogger().warning("The WAD 'fileCount' value %d did not match the previously seen value of %d. (This probably won't cause problems, but it does indicate our understanding of this value is wrong.)", fileCount, lastFileCount);
 
             MWIResourceEntry fileMwiEntry = getGameInstance().getResourceEntryByID(resourceId);
@@ -76,83 +87,172 @@ public class WADFile extends SCSharedGameFile {
             reader.alignRequireEmpty(Constants.INTEGER_SIZE);
 
             // Decompress if compressed.
-            byte[] compressedFileBytes = null;
-            int safetyMarginWordCount = 0;
             boolean dataAppearsCompressed = PP20Unpacker.isCompressed(fileBytes);
             if (dataAppearsCompressed != fileMwiEntry.isCompressed())
                 getLogger().severe("The wad entry '%s' appears%s to be compressed, but the MWI entry disagrees.", fileMwiEntry.getDisplayName(), (dataAppearsCompressed ? "" : " NOT"));
-            if (dataAppearsCompressed) {
-                compressedFileBytes = fileBytes;
-                UnpackResult unpackResult = PP20Unpacker.unpackData(fileBytes);
-                fileBytes = unpackResult.getUnpackedBytes();
-                safetyMarginWordCount = unpackResult.getSafetyMarginWordCount();
-            }
 
-            // Run load data hook.
-            fileMwiEntry.onLoadData(fileBytes, compressedFileBytes, safetyMarginWordCount);
+            WADEntryLoadTask loadTask = new WADEntryLoadTask(fileMwiEntry, resourceId, dataAppearsCompressed, fileBytes);
+            if (dataAppearsCompressed)
+                loadTask.unpackTask = startEntryTask(() -> PP20Unpacker.unpackData(fileBytes));
 
-            // Create file.
-            SCGameFile<?> file = getGameInstance().createFile(fileMwiEntry, fileBytes);
-            if (file == null) {
-                file = new DummyFile(getGameInstance(), fileBytes.length);
-                getLogger().warning("File '%s' was of an unknown file type. (%d)", fileName, fileMwiEntry.getTypeId());
-            }
+            loadTasks.add(loadTask);
+            lastFileCount = fileCount;
+        }
 
-            // Setup file.
-            WADEntry newEntry = new WADEntry(this, resourceId, dataAppearsCompressed);
-            file.setWadFileEntry(newEntry);
-            newEntry.setFile(file);
-            this.files.add(newEntry);
-            file.setRawFileData(fileBytes);
-
-            try {
-                DataReader wadFileReader = new DataReader(new ArraySource(fileBytes));
-                file.load(wadFileReader);
-                if (wadFileReader.hasMore() && file.warnIfEndNotReached())
-                    file.getLogger().warning("File contents were read to index 0x%08X, leaving %d bytes unread. (Length: 0x%08X)", wadFileReader.getIndex(), wadFileReader.getRemaining(), wadFileReader.getSize());
-            } catch (Exception ex) {
-                Utils.handleError(getLogger(), ex, false, "Failed to load %s. (%d)", fileName, resourceId);
-
-                // Make it a dummy file instead since it failed.
-                file = new DummyFile(getGameInstance(), fileBytes.length);
-                file.setRawFileData(fileBytes);
+        try {
+            // Stage 2) Create & register the files in WAD order, then parse them on the worker threads.
+            // Models are parsed here in order instead, because creating a model looks for the last complete model before it, and incomplete models read data from that model while parsing.
+            // That search also crosses into earlier WADs, so this relies on MWDFile.loadMwdFile() never loading two WADs at once, and loading them in MWI order.
+            for (WADEntryLoadTask loadTask : loadTasks) {
+                MWIResourceEntry fileMwiEntry = loadTask.resourceEntry;
+                byte[] fileBytes = loadTask.rawFileBytes;
+                byte[] compressedFileBytes = null;
+                int safetyMarginWordCount = 0;
+                if (loadTask.unpackTask != null) {
+                    UnpackResult unpackResult = ThreadUtils.waitForTask(loadTask.unpackTask);
+                    compressedFileBytes = fileBytes;
+                    fileBytes = unpackResult.getUnpackedBytes();
+                    safetyMarginWordCount = unpackResult.getSafetyMarginWordCount();
+                }
+
+                // Run load data hook.
+                fileMwiEntry.onLoadData(fileBytes, compressedFileBytes, safetyMarginWordCount);
+
+                // Create file.
+                SCGameFile<?> file = getGameInstance().createFile(fileMwiEntry, fileBytes);
+                if (file == null) {
+                    file = new DummyFile(getGameInstance(), fileBytes.length);
+                    getLogger().warning("File '%s' was of an unknown file type. (%d)", fileMwiEntry.getDisplayName(), fileMwiEntry.getTypeId());
+                }
+
+                // Setup file.
+                WADEntry newEntry = new WADEntry(this, loadTask.resourceId, loadTask.compressed);
+                file.setWadFileEntry(newEntry);
                 newEntry.setFile(file);
-                file.load(new DataReader(new ArraySource(fileBytes)));
+                this.files.add(newEntry);
+                file.setRawFileData(fileBytes);
+                loadTask.wadEntry = newEntry;
+                loadTask.fileBytes = fileBytes;
+                loadTask.rawFileBytes = null;
+
+                SCGameFile<?> parseTarget = file;
+                byte[] parseBytes = fileBytes;
+                if (file instanceof MRModel) {
+                    if (!parseFile(parseTarget, parseBytes, fileMwiEntry))
+                        replaceWithDummyFile(newEntry, fileBytes);
+                } else {
+                    loadTask.parseTask = startEntryTask(() -> parseFile(parseTarget, parseBytes, fileMwiEntry));
+                }
             }
 
-            lastFileCount = fileCount;
+            // Stage 3) Wait for parsing to complete. Files which failed to load are replaced in WAD order.
+            for (WADEntryLoadTask loadTask : loadTasks)
+                if (loadTask.parseTask != null && !ThreadUtils.waitForTask(loadTask.parseTask))
+                    replaceWithDummyFile(loadTask.wadEntry, loadTask.fileBytes);
+        } finally {
+            // Don't leave any tasks running if an error occurred.
+            for (WADEntryLoadTask loadTask : loadTasks) {
+                if (loadTask.unpackTask != null)
+                    ThreadUtils.waitForTaskToFinish(loadTask.unpackTask);
+                if (loadTask.parseTask != null)
+                    ThreadUtils.waitForTaskToFinish(loadTask.parseTask);
+            }
+
+            if (archive != null) // Lookups made while loading may have only seen some of the files.
+                archive.invalidateFileTypeIndex();
         }
     }
 
+    /**
+     * Parses the file data into the already registered file object.
+     * @param file the file to load data into
+     * @param fileBytes the unpacked bytes of the file
+     * @param mwiEntry the MWI entry corresponding to the file
+     * @return true iff the file loaded successfully
+     */
+    private boolean parseFile(SCGameFile<?> file, byte[] fileBytes, MWIResourceEntry mwiEntry) {
+        try {
+            DataReader wadFileReader = new DataReader(new ArraySource(fileBytes));
+            file.load(wadFileReader);
+            if (wadFileReader.hasMore() && file.warnIfEndNotReached())
+                file.getLogger().warning("File contents were read to index 0x%08X, leaving %d bytes unread. (Length: 0x%08X)", wadFileReader.getIndex(), wadFileReader.getRemaining(), wadFileReader.getSize());
+            return true;
+        } catch (Exception ex) {
+            Utils.handleError(getLogger(), ex, false, "Failed to load %s. (%d)", mwiEntry.getDisplayName(), mwiEntry.getResourceId());
+            return false;
+        }
+    }
+
+    private void replaceWithDummyFile(WADEntry wadEntry, byte[] fileBytes) {
+        // Make it a dummy file instead since it failed.
+        SCGameFile<?> file = new DummyFile(getGameInstance(), fileBytes.length);
+        file.setRawFileData(fileBytes);
+        wadEntry.setFile(file);
+        file.load(new DataReader(new ArraySource(fileBytes)));
+    }
+
     @Override
     public void save(DataWriter writer) {
-        for (WADEntry entry : this.files) {
-            writer.writeInt(entry.getResourceId());
-            writer.writeInt(entry.getFileEntry().getTypeId());
-
-            MWIResourceEntry mwiEntry = entry.getFileEntry();
-            ArrayReceiver receiver = new ArrayReceiver();
-            try {
-                entry.getFile().save(new DataWriter(receiver));
-            } catch (Throwable th) {
-                throw new RuntimeException("Failed to save file '" + entry.getDisplayName() + "'.", th);
+        // Stage 1) Serialize each entry on this thread, since save logic may touch shared game state, then compress it on the worker threads.
+        List<Future<WADEntrySaveResult>> saveTasks = new ArrayList<>(this.files.size());
+        try {
+            for (WADEntry entry : this.files) {
+                byte[] fileBytes = saveEntry(entry);
+                saveTasks.add(startEntryTask(() -> new WADEntrySaveResult(fileBytes, entry.isCompressed() ? getArchive().packSaveFileData(fileBytes) : null)));
             }
 
-            byte[] fileBytes = receiver.toArray();
-            PackResult packResult = entry.isCompressed() ? PP20Packer.packData(fileBytes) : null;
-            mwiEntry.onSaveData(fileBytes, packResult);
-
-            byte[] writtenBytes = packResult != null ? packResult.getPackedBytes() : fileBytes;
-            writer.writeInt(writtenBytes.length); // File length.
-            writer.writeInt(this.files.size()); // File count.
-            writer.writeBytes(writtenBytes); // Write file contents.
-            writer.align(Constants.INTEGER_SIZE);
+            // Stage 2) Write the entries in order, so the layout is the same as if they had been saved one at a time.
+            for (int i = 0; i < this.files.size(); i++) {
+                WADEntry entry = this.files.get(i);
+                WADEntrySaveResult saveResult = ThreadUtils.waitForTask(saveTasks.get(i));
+                writer.writeInt(entry.getResourceId());
+                writer.writeInt(entry.getFileEntry().getTypeId());
+
+                MWIResourceEntry mwiEntry = entry.getFileEntry();
+                mwiEntry.onSaveData(saveResult.fileBytes, saveResult.packResult);
+
+                byte[] writtenBytes = saveResult.packResult != null ? saveResult.packResult.getPackedBytes() : saveResult.fileBytes;
+                writer.writeInt(writtenBytes.length); // File length.
+                writer.writeInt(this.files.size()); // File count.
+                writer.writeBytes(writtenBytes); // Write file contents.
+                writer.align(Constants.INTEGER_SIZE);
+            }
+        } finally {
+            // Don't leave any tasks running if an error occurred.
+            for (Future<WADEntrySaveResult> saveTask : saveTasks)
+                ThreadUtils.waitForTaskToFinish(saveTask);
         }
 
         writer.writeInt(TERMINATOR);
         writer.writeNull(Constants.INTEGER_SIZE * 3);
     }
 
+    private static byte[] saveEntry(WADEntry entry) {
+        ArrayReceiver receiver = new ArrayReceiver();
+        try {
+            entry.getFile().save(new DataWriter(receiver));
+        } catch (Throwable th) {
+            throw new RuntimeException("Failed to save file '" + entry.getDisplayName() + "'.", th);
+        }
+
+        return receiver.toArray();
+    }
+
+    /**
+     * Starts a task for processing a WAD entry.
+     * If parallel processing is disabled, the task is run immediately on the calling thread instead.
+     * @param task the task to run
+     * @return future
+     */
+    private static <T> Future<T> startEntryTask(Callable<T> task) {
+        if (PARALLEL_PROCESSING_ENABLED)
+            return ThreadUtils.submitWorkerTask(task);
+
+        FutureTask<T> futureTask = new FutureTask<>(task);
+        futureTask.run();
+        return futureTask;
+    }
+
     @Override
     public Image getCollectionViewIcon() {
         return ImageResource.ZIPPED_FOLDER_32.getFxImage();
@@ -277,9 +377,10 @@ public class WADFile extends SCSharedGameFile {
          */
         public void setFile(SCGameFile<?> newFile) {
             MWIResourceEntry mwiEntry = getFileEntry();
-            if (this.file != null) {
-                this.file.setFileDefinition(null);
-                getGameInstance().getFileObjectsByFileEntries().remove(mwiEntry, this.file);
+            SCGameFile<?> oldFile = this.file;
+            if (oldFile != null) {
+                oldFile.setFileDefinition(null);
+                getGameInstance().getFileObjectsByFileEntries().remove(mwiEntry, oldFile);
             }
 
             this.file = newFile;
@@ -287,6 +388,34 @@ public class WADFile extends SCSharedGameFile {
                 getGameInstance().getFileObjectsByFileEntries().putIfAbsent(mwiEntry, newFile);
                 newFile.setFileDefinition(mwiEntry);
             }
+
+            MWDFile archive = getArchive();
+            if (archive != null)
+                archive.onFileReplaced(oldFile, newFile);
         }
     }
+
+    private static class WADEntryLoadTask {
+        private final MWIResourceEntry resourceEntry;
+        private final int resourceId;
+        private final boolean compressed;
+        private byte[] rawFileBytes; // The bytes as seen in the WAD, cleared once they have been unpacked.
+        private Future<UnpackResult> unpackTask;
+        private Future<Boolean> parseTask;
+        private WADEntry wadEntry;
+        private byte[] fileBytes;
+
+        public WADEntryLoadTask(MWIResourceEntry resourceEntry, int resourceId, boolean compressed, byte[] rawFileBytes) {
+            this.resourceEntry = resourceEntry;
+            this.resourceId = resourceId;
+            this.compressed = compressed;
+            this.rawFileBytes = rawFileBytes;
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class WADEntrySaveResult {
+        private final byte[] fileBytes;
+        private final PackResult packResult;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,132 @@
+package net.highwayfrogs.editor.games.sony.shared.pp20;
+
+import net.highwayfrogs.editor.games.sony.shared.pp20.PP20Packer.PackResult;
+import net.highwayfrogs.editor.games.sony.shared.pp20.PP20Unpacker.UnpackResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares the compression ratio and speed of each PP20PackerEngine against a corpus of files, and measures unpacking speed.
+ * Usage: PP20Benchmark <file or folder>...
+ * Folders are searched recursively. Files which are already PP20 compressed (such as the compressed files from an MWD) are unpacked first.
+ * Every packed result is unpacked again to verify both the data and the safety margin.
+ * Unpacking is timed for the packed results of each engine, and for the files which were already compressed.
+ * Created by Kneesnap on 10/17/2026.
+ */
+public class PP20Benchmark {
+    private static final int WARMUP_ROUNDS = 1;
+    private static final int UNPACK_ROUNDS = 10;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: PP20Benchmark <file or folder>...");
+            return;
+        }
+
+        List<byte[]> corpus = new ArrayList<>();
+        List<byte[]> compressedCorpus = new ArrayList<>();
+        for (String path : args)
+            addFiles(corpus, compressedCorpus, new File(path));
+
+        long totalBytes = 0;
+        for (byte[] data : corpus)
+            totalBytes += data.length;
+        System.out.println("Loaded " + corpus.size() + " file(s), totalling " + totalBytes + " bytes.");
+        if (corpus.isEmpty())
+            return;
+
+        PP20PackerEngine[] engines = PP20PackerEngine.values();
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            for (PP20PackerEngine engine : engines)
+                runEngine(corpus, engine, false);
+            runUnpacker("Already Compressed Files", compressedCorpus, false);
+        }
+
+        for (PP20PackerEngine engine : engines)
+            runEngine(corpus, engine, true);
+        runUnpacker("Already Compressed Files", compressedCorpus, true);
+    }
+
+    private static void addFiles(List<byte[]> corpus, List<byte[]> compressedCorpus, File file) throws IOException {
+        if (file.isDirectory()) {
+            File[] files = file.listFiles();
+            if (files != null) {
+                Arrays.sort(files);
+                for (File subFile : files)
+                    addFiles(corpus, compressedCorpus, subFile);
+            }
+
+            return;
+        }
+
+        if (!file.isFile())
+            return;
+
+        byte[] data = Files.readAllBytes(file.toPath());
+        if (PP20Unpacker.isCompressed(data)) {
+            compressedCorpus.add(data);
+            data = PP20Unpacker.unpackData(data).getUnpackedBytes();
+        }
+
+        if (data.length > 0)
+            corpus.add(data);
+    }
+
+    private static void runEngine(List<byte[]> corpus, PP20PackerEngine engine, boolean printResults) {
+        long inputBytes = 0;
+        long packedBytes = 0;
+        long packTimeNanos = 0;
+        int dataFailures = 0;
+        int marginFailures = 0;
+        List<byte[]> packedCorpus = new ArrayList<>(corpus.size());
+        for (byte[] data : corpus) {
+            long startTime = System.nanoTime();
+            PackResult packResult = PP20Packer.packData(data, true, PP20Packer.EXTREME_COMPRESSION_SETTINGS, engine);
+            packTimeNanos += System.nanoTime() - startTime;
+            inputBytes += data.length;
+            packedBytes += packResult.getPackedBytes().length;
+            packedCorpus.add(packResult.getPackedBytes());
+
+            UnpackResult unpackResult = PP20Unpacker.unpackData(packResult.getPackedBytes());
+            if (!Arrays.equals(data, unpackResult.getUnpackedBytes()))
+                dataFailures++;
+            if (unpackResult.getMinimumByteMargin() > packResult.getMinimumByteMargin()) // The reported margin is smaller than the margin measured while unpacking.
+                marginFailures++;
+        }
+
+        if (printResults)
+            System.out.printf("%-26s Ratio: %6.2f%%, Packed Size: %10d bytes, Time: %8.1f ms, Data Mismatches: %d, Margin Underestimates: %d%n",
+                    engine.getDisplayName(), (100D * packedBytes) / inputBytes, packedBytes, packTimeNanos / 1000000D, dataFailures, marginFailures);
+        runUnpacker(engine.getDisplayName(), packedCorpus, printResults);
+    }
+
+    private static void runUnpacker(String name, List<byte[]> compressedCorpus, boolean printResults) {
+        if (compressedCorpus.isEmpty())
+            return;
+
+        // The same output buffer is reused for every file, so the time measured is only the time spent unpacking.
+        int maxUnpackedSize = 0;
+        long unpackedBytes = 0;
+        for (byte[] data : compressedCorpus) {
+            int unpackedSize = PP20Unpacker.getDecodedDataSize(data);
+            maxUnpackedSize = Math.max(maxUnpackedSize, unpackedSize);
+            unpackedBytes += unpackedSize;
+        }
+
+        byte[] buffer = new byte[maxUnpackedSize];
+        long startTime = System.nanoTime();
+        for (int i = 0; i < UNPACK_ROUNDS; i++)
+            for (byte[] data : compressedCorpus)
+                PP20Unpacker.unpackData(data, buffer, 0);
+
+        double unpackTimeMs = (System.nanoTime() - startTime) / 1000000D / UNPACK_ROUNDS;
+        if (printResults)
+            System.out.printf("%-26s Unpacked %d file(s) in %8.2f ms. (%.1f MB/s)%n",
+                    name, compressedCorpus.size(), unpackTimeMs, (unpackedBytes / (1024D * 1024D)) / (unpackTimeMs / 1000D));
+    }
+}
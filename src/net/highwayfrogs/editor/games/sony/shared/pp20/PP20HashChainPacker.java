@@ -0,0 +1,261 @@
+package net.highwayfrogs.editor.games.sony.shared.pp20;
+
+import lombok.Getter;
+import net.highwayfrogs.editor.utils.Utils;
+import net.highwayfrogs.editor.utils.data.writer.BitWriter;
+
+import java.util.Arrays;
+
+/**
+ * Packs data into PP20 using hash chains to find repeated data, instead of the search used by the original PowerPacker.
+ * This is faster than the original search, and compresses to a similar size, but the output is not byte-identical to the original games.
+ * PP20 data is decoded starting from the end, so references always point towards the end of the data.
+ * To search like a regular LZ77 compressor, the data is reversed, searched from start to finish, and the results are written backwards using the same bit layout as PP20Packer.
+ * Lazy matching is used, meaning a match is skipped in favor of a literal byte if a better match starts at the next byte.
+ * Created by Kneesnap on 10/17/2026.
+ */
+class PP20HashChainPacker {
+    private final byte[] data;
+    private final byte[] reversedData;
+    private final byte[] compressionSettings;
+    private final int[] maxOffsets; // The maximum distance which can be reached for each compression level.
+    private final int maxDistance;
+    private final int[] chainHeads = new int[HASH_TABLE_SIZE]; // The most recent position starting with each two byte sequence.
+    private final int[] previousPositions; // The position before each position which started with the same two byte sequence.
+    private int[] matchPositions = new int[64];
+    private int[] matchLengths = new int[64];
+    private int[] matchDistances = new int[64];
+    private int matchCount;
+    @Getter private int byteMargin;
+
+    // Results of the last call to findMatch().
+    private int foundLength;
+    private int foundDistance;
+    private int foundSavings;
+
+    private static final int HASH_TABLE_SIZE = 0x10000; // Every possible combination of two bytes.
+    private static final int MAX_CHAIN_LENGTH = 256; // The maximum number of earlier positions checked when searching for a match.
+    private static final int NICE_MATCH_LENGTH = 258; // Once a match of this length is found, stop searching for longer ones.
+    private static final int MAX_MATCH_LENGTH = 0x7FFF; // Limits the time spent comparing long runs of repeated data. Longer runs are split into multiple references.
+    private static final int LITERAL_BITS = 8; // Literals also cost a few bits for the header, but those are shared between all literals in a run.
+    private static final int LARGE_OFFSET_LEVEL = PP20Packer.COMPRESSION_LEVEL_BITS + 1;
+    private static final int SMALL_OFFSET_MAX_DISTANCE = 1 << PP20Packer.OPTIONAL_BITS_SMALL_OFFSET;
+
+    PP20HashChainPacker(byte[] data, byte[] compressionSettings) {
+        if (compressionSettings == null || compressionSettings.length != 4)
+            throw new RuntimeException("Compression Settings should have four entries. Had: " + (compressionSettings != null ? compressionSettings.length : -1));
+
+        this.data = data;
+        this.compressionSettings = Arrays.copyOf(compressionSettings, compressionSettings.length);
+        this.maxOffsets = new int[compressionSettings.length];
+        int maxDistance = SMALL_OFFSET_MAX_DISTANCE;
+        for (int i = 0; i < this.maxOffsets.length; i++) {
+            this.maxOffsets[i] = 1 << compressionSettings[i];
+            maxDistance = Math.max(maxDistance, this.maxOffsets[i]);
+        }
+
+        this.maxDistance = maxDistance;
+        this.reversedData = new byte[data.length];
+        for (int i = 0; i < data.length; i++)
+            this.reversedData[i] = data[data.length - 1 - i];
+
+        this.previousPositions = new int[data.length];
+        Arrays.fill(this.chainHeads, -1);
+    }
+
+    /**
+     * Compresses the data, returning it in the same layout as PP20Packer.compressData.
+     * @return compressedData
+     */
+    byte[] compressData() {
+        findMatches();
+        return writeCompressedData();
+    }
+
+    private void findMatches() {
+        int length = this.reversedData.length;
+        int pos = 0;
+        boolean hasNextMatch = false;
+        while (pos < length) {
+            int matchLength, matchDistance, matchSavings;
+            if (hasNextMatch) { // The match at this position was already found by the lazy matching check.
+                matchLength = this.foundLength;
+                matchDistance = this.foundDistance;
+                matchSavings = this.foundSavings;
+                hasNextMatch = false;
+            } else {
+                findMatch(pos);
+                matchLength = this.foundLength;
+                matchDistance = this.foundDistance;
+                matchSavings = this.foundSavings;
+            }
+
+            insertPosition(pos);
+            if (matchLength == 0) {
+                pos++;
+                continue;
+            }
+
+            // Lazy matching: If the next byte starts a better match, write this byte as a literal instead.
+            if (matchLength < NICE_MATCH_LENGTH && pos + 1 < length) {
+                findMatch(pos + 1);
+                if (this.foundSavings > matchSavings) {
+                    hasNextMatch = (this.foundLength > 0);
+                    pos++;
+                    continue;
+                }
+            }
+
+            addMatch(pos, matchLength, matchDistance);
+            for (int i = 1; i < matchLength; i++)
+                insertPosition(pos + i);
+            pos += matchLength;
+        }
+    }
+
+    private void insertPosition(int pos) {
+        if (pos + 1 >= this.reversedData.length)
+            return;
+
+        int key = ((this.reversedData[pos] & 0xFF) << 8) | (this.reversedData[pos + 1] & 0xFF);
+        this.previousPositions[pos] = this.chainHeads[key];
+        this.chainHeads[key] = pos;
+    }
+
+    private void findMatch(int pos) {
+        this.foundLength = 0;
+        this.foundDistance = 0;
+        this.foundSavings = 0;
+
+        byte[] search = this.reversedData;
+        int maxLength = Math.min(MAX_MATCH_LENGTH, search.length - pos);
+        if (maxLength < PP20Packer.MINIMUM_DECODE_DATA_LENGTH)
+            return;
+
+        int key = ((search[pos] & 0xFF) << 8) | (search[pos + 1] & 0xFF);
+        int chainLength = 0;
+        for (int candidate = this.chainHeads[key]; candidate >= 0 && chainLength < MAX_CHAIN_LENGTH; candidate = this.previousPositions[candidate], chainLength++) {
+            int distance = pos - candidate;
+            if (distance > this.maxDistance)
+                break; // The chain is ordered by position, so every remaining candidate is too far away.
+
+            // Skip candidates which can't beat the current best match, by checking the byte which would make it longer first.
+            if (this.foundLength > 0 && (this.foundLength >= maxLength || search[candidate + this.foundLength] != search[pos + this.foundLength]))
+                continue;
+
+            int matchLength = PP20Packer.MINIMUM_DECODE_DATA_LENGTH;
+            while (matchLength < maxLength && search[candidate + matchLength] == search[pos + matchLength])
+                matchLength++;
+
+            // Shorter matches have fewer offset bits available, so the longest usable length for this distance may be shorter than the match.
+            for (int testLength = matchLength; testLength >= PP20Packer.MINIMUM_DECODE_DATA_LENGTH; testLength--) {
+                int savings = getSavings(testLength, distance);
+                if (savings == Integer.MIN_VALUE)
+                    continue;
+
+                if (savings > this.foundSavings) {
+                    this.foundLength = testLength;
+                    this.foundDistance = distance;
+                    this.foundSavings = savings;
+                }
+
+                break;
+            }
+
+            if (this.foundLength >= NICE_MATCH_LENGTH)
+                break;
+        }
+    }
+
+    /**
+     * Gets the number of bits saved by writing a reference instead of literal bytes.
+     * @param length the number of bytes to reference
+     * @param distance the distance to the referenced data
+     * @return savedBits, or Integer.MIN_VALUE if the distance cannot be reached with the given length
+     */
+    private int getSavings(int length, int distance) {
+        int level = Math.min(LARGE_OFFSET_LEVEL, length - PP20Packer.MINIMUM_DECODE_DATA_LENGTH);
+        int bits = 1 + PP20Packer.COMPRESSION_LEVEL_BITS; // Control bit + compression level.
+        if (level == LARGE_OFFSET_LEVEL) {
+            if (distance <= SMALL_OFFSET_MAX_DISTANCE) {
+                bits += PP20Packer.OPTIONAL_BITS_SMALL_OFFSET;
+            } else if (distance <= this.maxOffsets[level]) {
+                bits += this.compressionSettings[level];
+            } else {
+                return Integer.MIN_VALUE;
+            }
+
+            int lengthChunks = 1 + ((length - (LARGE_OFFSET_LEVEL + PP20Packer.MINIMUM_DECODE_DATA_LENGTH)) / PP20Packer.OFFSET_CONTINUE_WRITING_BITS);
+            bits += 1 + (lengthChunks * PP20Packer.OFFSET_BIT_LENGTH); // Small offset flag + length.
+        } else if (distance <= this.maxOffsets[level]) {
+            bits += this.compressionSettings[level];
+        } else {
+            return Integer.MIN_VALUE;
+        }
+
+        return (length * LITERAL_BITS) - bits;
+    }
+
+    private void addMatch(int pos, int length, int distance) {
+        if (this.matchCount == this.matchPositions.length) {
+            int newLength = this.matchPositions.length * 2;
+            this.matchPositions = Arrays.copyOf(this.matchPositions, newLength);
+            this.matchLengths = Arrays.copyOf(this.matchLengths, newLength);
+            this.matchDistances = Arrays.copyOf(this.matchDistances, newLength);
+        }
+
+        this.matchPositions[this.matchCount] = pos;
+        this.matchLengths[this.matchCount] = length;
+        this.matchDistances[this.matchCount++] = distance;
+    }
+
+    private byte[] writeCompressedData() {
+        // The matches were found in reverse order, so they are written starting from the last one found, which is the one closest to the start of the data.
+        int length = this.data.length;
+        BitWriter writer = new BitWriter(Math.max(1, length / 2));
+        writer.setReverseBits(true);
+        int literalBytes = 0;
+        int reversedEnd = length;
+        for (int i = this.matchCount - 1; i >= 0; i--) {
+            int matchPos = this.matchPositions[i];
+            int matchLength = this.matchLengths[i];
+
+            // Write the literal bytes between this match and the previous one.
+            int literalStart = matchPos + matchLength;
+            for (int j = length - reversedEnd; j < length - literalStart; j++)
+                writer.writeByte(this.data[j]);
+            literalBytes += reversedEnd - literalStart;
+
+            // Write Control Code (And possibly raw data packer header.)
+            int srcCurrIdx = length - matchPos;
+            if (literalBytes == 0) {
+                writer.writeBit(Utils.flipBit(PP20Packer.HAS_RAW_DATA_BIT)); // No Raw Data.
+            } else {
+                updateByteMargin(writer, srcCurrIdx);
+                PP20Packer.writeRawDataPackerHeader(writer, literalBytes); // Yes Raw Data.
+                literalBytes = 0;
+            }
+
+            // Write data reference.
+            int level = Math.min(LARGE_OFFSET_LEVEL, matchLength - PP20Packer.MINIMUM_DECODE_DATA_LENGTH);
+            updateByteMargin(writer, srcCurrIdx);
+            PP20Packer.writeDataReference(writer, matchLength, this.matchDistances[i] - 1, level, this.compressionSettings);
+            reversedEnd = matchPos;
+        }
+
+        // The end of the data is always literal bytes, since the first byte decoded can't reference anything.
+        for (int j = length - reversedEnd; j < length; j++)
+            writer.writeByte(this.data[j]);
+        literalBytes += reversedEnd;
+
+        updateByteMargin(writer, length);
+        PP20Packer.writeRawDataPackerHeader(writer, literalBytes);
+        return PP20Packer.finishCompressedData(writer, this.compressionSettings);
+    }
+
+    private void updateByteMargin(BitWriter writer, int srcCurrIdx) {
+        int currentByteMargin = PP20Packer.calculateByteMargin(writer, srcCurrIdx);
+        if (currentByteMargin > this.byteMargin)
+            this.byteMargin = currentByteMargin;
+    }
+}
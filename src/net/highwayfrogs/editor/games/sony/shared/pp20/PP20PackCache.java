@@ -0,0 +1,424 @@
+package net.highwayfrogs.editor.games.sony.shared.pp20;
+
+import lombok.Getter;
+import net.highwayfrogs.editor.Constants;
+import net.highwayfrogs.editor.FrogLordApplication;
+import net.highwayfrogs.editor.games.sony.shared.pp20.PP20Packer.PackResult;
+import net.highwayfrogs.editor.games.sony.shared.pp20.PP20Unpacker.UnpackResult;
+import net.highwayfrogs.editor.utils.DataSizeUnit;
+import net.highwayfrogs.editor.utils.DataUtils;
+import net.highwayfrogs.editor.utils.FileUtils;
+import net.highwayfrogs.editor.utils.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Caches PP20 compression results, so data which has not changed since it was last packed does not need to be packed again.
+ * Entries are identified by a SHA-1 hash of the uncompressed data, the compression settings, and the cache format version.
+ * Entries read from disk are unpacked and compared against the data before being used, so a corrupt or mismatched file is never saved into a game.
+ * The safety margin of an entry read from disk is the one measured by that unpack, so it can't be wrong even if the file is.
+ * Entries are kept both in memory and on disk in the FrogLord folder, and the least recently used entries are evicted once a size limit is reached.
+ * This is safe to use from multiple threads.
+ * Created by Kneesnap on 10/17/2026.
+ */
+public class PP20PackCache {
+    private final File cacheFolder;
+    @Getter private final long maxMemoryBytes;
+    @Getter private final long maxDiskBytes;
+    private final LinkedHashMap<String, PackResult> memoryCache = new LinkedHashMap<>(16, .75F, true);
+    private final AtomicInteger memoryHits = new AtomicInteger();
+    private final AtomicInteger diskHits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private long memoryCacheBytes;
+    private long diskCacheBytes = -1; // -1 means the disk cache has not been scanned yet.
+
+    private static PP20PackCache defaultCache;
+    public static final boolean CACHE_ENABLED = true;
+    public static final String CACHE_FOLDER_NAME = "pp20-cache";
+    private static final String CACHE_FILE_EXTENSION = ".pp20";
+    private static final int CACHE_FORMAT_VERSION = 2; // Increment whenever the packer output or the cache file format changes, so entries from older builds are no longer used.
+    private static final byte[] BEST_FIT_KEY_BYTES = "BestFit".getBytes(StandardCharsets.US_ASCII); // Compression settings are four bytes followed by 0 or 1, so keys using this can't collide with them.
+    private static final long DEFAULT_MAX_MEMORY_BYTES = 64 * DataSizeUnit.MEGABYTE.getIncrement();
+    private static final long DEFAULT_MAX_DISK_BYTES = 512 * DataSizeUnit.MEGABYTE.getIncrement();
+
+    public PP20PackCache(File cacheFolder, long maxMemoryBytes, long maxDiskBytes) {
+        this.cacheFolder = cacheFolder;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxDiskBytes = maxDiskBytes;
+    }
+
+    /**
+     * Gets the cache shared by the whole application.
+     * If FrogLord has not set up its application folder, only the in-memory cache will be used.
+     */
+    public static synchronized PP20PackCache getDefaultCache() {
+        if (defaultCache == null) {
+            File applicationFolder = FrogLordApplication.getMainApplicationFolder();
+            File cacheFolder = applicationFolder != null ? new File(applicationFolder, CACHE_FOLDER_NAME) : null;
+            defaultCache = new PP20PackCache(cacheFolder, DEFAULT_MAX_MEMORY_BYTES, DEFAULT_MAX_DISK_BYTES);
+        }
+
+        return defaultCache;
+    }
+
+    /**
+     * Packs a byte array using extreme compression settings, reusing a previous result if the same data has been packed before.
+     * @param data The data to pack.
+     * @return packedData
+     */
+    public static PackResult packData(byte[] data) {
+        return packData(data, true, PP20Packer.EXTREME_COMPRESSION_SETTINGS);
+    }
+
+    /**
+     * Packs a byte array using extreme compression settings, reusing a previous result if the same data has been packed before.
+     * @param data The data to pack.
+     * @param engine the engine to pack the data with
+     * @return packedData
+     */
+    public static PackResult packData(byte[] data, PP20PackerEngine engine) {
+        return packData(data, true, PP20Packer.EXTREME_COMPRESSION_SETTINGS, engine);
+    }
+
+    /**
+     * Packs a byte array with whichever compression settings produce the smallest result, reusing a previous result if the same data has been packed before.
+     * @param data The data to pack.
+     * @param engine the engine to pack the data with
+     * @return packedData
+     */
+    public static PackResult packDataBestFit(byte[] data, PP20PackerEngine engine) {
+        if (!CACHE_ENABLED)
+            return PP20Packer.packDataBestFit(data, engine);
+
+        return getDefaultCache().getOrPackBestFit(data, engine);
+    }
+
+    /**
+     * Pack a byte array into PP20 compressed data, reusing a previous result if the same data has been packed before.
+     * @param data The data to compress.
+     * @param oldVersion whether an older version should be used. Frogger seems to use this for all files.
+     * @param compressionSettings the offset bit lengths to compress with
+     * @return packedData
+     */
+    public static PackResult packData(byte[] data, boolean oldVersion, byte[] compressionSettings) {
+        return packData(data, oldVersion, compressionSettings, PP20PackerEngine.ORIGINAL);
+    }
+
+    /**
+     * Pack a byte array into PP20 compressed data, reusing a previous result if the same data has been packed before.
+     * @param data The data to compress.
+     * @param oldVersion whether an older version should be used. Frogger seems to use this for all files.
+     * @param compressionSettings the offset bit lengths to compress with
+     * @param engine the engine to pack the data with
+     * @return packedData
+     */
+    public static PackResult packData(byte[] data, boolean oldVersion, byte[] compressionSettings, PP20PackerEngine engine) {
+        if (!CACHE_ENABLED)
+            return PP20Packer.packData(data, oldVersion, compressionSettings, engine);
+
+        return getDefaultCache().getOrPack(data, oldVersion, compressionSettings, engine);
+    }
+
+    /**
+     * Gets the cached pack result for the given data, packing it if it is not cached.
+     * @param data The data to compress.
+     * @param oldVersion whether an older version should be used. Frogger seems to use this for all files.
+     * @param compressionSettings the offset bit lengths to compress with
+     * @return packedData
+     */
+    public PackResult getOrPack(byte[] data, boolean oldVersion, byte[] compressionSettings) {
+        return getOrPack(data, oldVersion, compressionSettings, PP20PackerEngine.ORIGINAL);
+    }
+
+    /**
+     * Gets the cached pack result for the given data, packing it if it is not cached.
+     * @param data The data to compress.
+     * @param oldVersion whether an older version should be used. Frogger seems to use this for all files.
+     * @param compressionSettings the offset bit lengths to compress with
+     * @param engine the engine to pack the data with
+     * @return packedData
+     */
+    public PackResult getOrPack(byte[] data, boolean oldVersion, byte[] compressionSettings, PP20PackerEngine engine) {
+        if (data == null)
+            throw new NullPointerException("data");
+        if (compressionSettings == null)
+            throw new NullPointerException("compressionSettings");
+        if (engine == null)
+            throw new NullPointerException("engine");
+
+        String key = calculateKey(data, oldVersion, compressionSettings, engine);
+        return getOrPack(key, data, () -> PP20Packer.packData(data, oldVersion, compressionSettings, engine));
+    }
+
+    /**
+     * Gets the cached best fit pack result for the given data, packing it if it is not cached.
+     * @param data The data to compress.
+     * @param engine the engine to pack the data with
+     * @return packedData
+     */
+    public PackResult getOrPackBestFit(byte[] data, PP20PackerEngine engine) {
+        if (data == null)
+            throw new NullPointerException("data");
+        if (engine == null)
+            throw new NullPointerException("engine");
+
+        String key = calculateKey(data, true, null, engine);
+        return getOrPack(key, data, () -> PP20Packer.packDataBestFit(data, engine));
+    }
+
+    private PackResult getOrPack(String key, byte[] data, Supplier<PackResult> packer) {
+        // Check memory.
+        PackResult packResult;
+        synchronized (this.memoryCache) {
+            packResult = this.memoryCache.get(key);
+        }
+
+        if (packResult != null) {
+            this.memoryHits.incrementAndGet();
+            return packResult;
+        }
+
+        // Check disk.
+        packResult = readFromDisk(key, data);
+        if (packResult != null) {
+            this.diskHits.incrementAndGet();
+            addToMemory(key, packResult);
+            return packResult;
+        }
+
+        // Pack the data.
+        this.misses.incrementAndGet();
+        packResult = packer.get();
+        addToMemory(key, packResult);
+        writeToDisk(key, packResult);
+        return packResult;
+    }
+
+    /**
+     * Gets the number of lookups which were found in memory.
+     */
+    public int getMemoryHits() {
+        return this.memoryHits.get();
+    }
+
+    /**
+     * Gets the number of lookups which were found on disk.
+     */
+    public int getDiskHits() {
+        return this.diskHits.get();
+    }
+
+    /**
+     * Gets the number of lookups which required the data to be packed.
+     */
+    public int getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Gets the number of bytes of packed data currently held in memory.
+     */
+    public long getMemoryCacheBytes() {
+        synchronized (this.memoryCache) {
+            return this.memoryCacheBytes;
+        }
+    }
+
+    /**
+     * Resets the hit/miss counters.
+     */
+    public void resetStatistics() {
+        this.memoryHits.set(0);
+        this.diskHits.set(0);
+        this.misses.set(0);
+    }
+
+    /**
+     * Gets a summary of the cache statistics, for display in logs.
+     */
+    public String getStatisticsString() {
+        return "PP20 Cache: " + getMemoryHits() + " memory hit(s), " + getDiskHits() + " disk hit(s), "
+                + getMisses() + " miss(es), " + DataSizeUnit.formatSize(getMemoryCacheBytes()) + " in memory.";
+    }
+
+    /**
+     * Removes all cached data, both from memory and disk.
+     */
+    public void clear() {
+        synchronized (this.memoryCache) {
+            this.memoryCache.clear();
+            this.memoryCacheBytes = 0;
+        }
+
+        synchronized (this) {
+            for (File file : getDiskCacheFiles())
+                FileUtils.deleteFile(file);
+
+            this.diskCacheBytes = 0;
+        }
+    }
+
+    private void addToMemory(String key, PackResult packResult) {
+        int packedSize = packResult.getPackedBytes().length;
+        if (packedSize > this.maxMemoryBytes)
+            return;
+
+        synchronized (this.memoryCache) {
+            PackResult oldResult = this.memoryCache.put(key, packResult);
+            if (oldResult != null)
+                this.memoryCacheBytes -= oldResult.getPackedBytes().length;
+            this.memoryCacheBytes += packedSize;
+
+            // Evict least recently used entries.
+            Iterator<PackResult> iterator = this.memoryCache.values().iterator();
+            while (this.memoryCacheBytes > this.maxMemoryBytes && iterator.hasNext()) {
+                this.memoryCacheBytes -= iterator.next().getPackedBytes().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    private File getCacheFile(String key) {
+        return new File(this.cacheFolder, key + CACHE_FILE_EXTENSION);
+    }
+
+    private PackResult readFromDisk(String key, byte[] data) {
+        if (this.cacheFolder == null)
+            return null;
+
+        File cacheFile = getCacheFile(key);
+        if (!cacheFile.isFile())
+            return null;
+
+        try {
+            // Format: [PP20 packed data]
+            byte[] packedBytes = Files.readAllBytes(cacheFile.toPath());
+            if (!PP20Unpacker.isCompressed(packedBytes) || PP20Unpacker.getDecodedDataSize(packedBytes) != data.length)
+                throw new IOException("The cache file did not contain valid PP20 data.");
+
+            // Unpacking is much faster than packing, and ensures the cached data actually matches.
+            UnpackResult unpackResult;
+            try {
+                unpackResult = PP20Unpacker.unpackData(packedBytes);
+            } catch (RuntimeException ex) {
+                throw new IOException("The cache file could not be unpacked.", ex);
+            }
+
+            if (!Arrays.equals(unpackResult.getUnpackedBytes(), data))
+                throw new IOException("The cache file did not unpack to the expected data.");
+
+            if (!cacheFile.setLastModified(System.currentTimeMillis())) // Used to find the least recently used entries on disk.
+                Utils.getInstanceLogger().warning("Failed to update the last modified time of '%s'.", cacheFile.getName());
+
+            // The margin measured while unpacking is what in-place unpacking actually requires, so it's used instead of trusting the file.
+            return new PackResult(packedBytes, unpackResult.getMinimumByteMargin());
+        } catch (IOException ex) {
+            Utils.handleError(null, ex, false, "Failed to read PP20 cache file '%s', it will be deleted.", cacheFile.getName());
+            synchronized (this) {
+                if (this.diskCacheBytes >= 0)
+                    this.diskCacheBytes -= cacheFile.length();
+                FileUtils.deleteFile(cacheFile);
+            }
+
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, PackResult packResult) {
+        if (this.cacheFolder == null)
+            return;
+
+        byte[] fileBytes = packResult.getPackedBytes();
+        if (fileBytes.length > this.maxDiskBytes)
+            return;
+
+        synchronized (this) {
+            try {
+                FileUtils.makeDirectory(this.cacheFolder);
+                updateDiskCacheSize();
+
+                // Write to a temporary file first, so a partially written file is never read.
+                File cacheFile = getCacheFile(key);
+                File tempFile = new File(this.cacheFolder, key + ".tmp");
+                Files.write(tempFile.toPath(), fileBytes);
+                long oldFileSize = cacheFile.isFile() ? cacheFile.length() : 0;
+                Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                this.diskCacheBytes += fileBytes.length - oldFileSize;
+            } catch (IOException ex) {
+                Utils.handleError(null, ex, false, "Failed to write PP20 cache file for '%s'.", key);
+            }
+
+            evictFromDisk();
+        }
+    }
+
+    private File[] getDiskCacheFiles() {
+        if (this.cacheFolder == null || !this.cacheFolder.isDirectory())
+            return new File[0];
+
+        File[] files = this.cacheFolder.listFiles((dir, name) -> name.endsWith(CACHE_FILE_EXTENSION));
+        return files != null ? files : new File[0];
+    }
+
+    private void updateDiskCacheSize() {
+        if (this.diskCacheBytes >= 0)
+            return;
+
+        this.diskCacheBytes = 0;
+        for (File file : getDiskCacheFiles())
+            this.diskCacheBytes += file.length();
+    }
+
+    private void evictFromDisk() {
+        if (this.diskCacheBytes <= this.maxDiskBytes)
+            return;
+
+        // Delete the least recently used files until the cache fits.
+        File[] files = getDiskCacheFiles();
+        long[] lastModifiedTimes = new long[files.length];
+        Integer[] fileOrder = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            lastModifiedTimes[i] = files[i].lastModified();
+            fileOrder[i] = i;
+        }
+
+        Arrays.sort(fileOrder, Comparator.comparingLong(index -> lastModifiedTimes[index]));
+        for (int i = 0; i < fileOrder.length && this.diskCacheBytes > this.maxDiskBytes; i++) {
+            File file = files[fileOrder[i]];
+            this.diskCacheBytes -= file.length();
+            FileUtils.deleteFile(file);
+        }
+    }
+
+    private static String calculateKey(byte[] data, boolean oldVersion, byte[] compressionSettings, PP20PackerEngine engine) {
+        // If the compression settings are null, the key is for the best fit result, which may have been packed with any settings.
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException("Couldn't find SHA-1 algorithm implementation.", ex);
+        }
+
+        digest.update(ByteBuffer.allocate(Constants.INTEGER_SIZE).order(ByteOrder.LITTLE_ENDIAN).putInt(CACHE_FORMAT_VERSION).array());
+        digest.update(compressionSettings != null ? compressionSettings : BEST_FIT_KEY_BYTES);
+        digest.update((byte) (oldVersion ? 1 : 0));
+        digest.update(engine.name().getBytes(StandardCharsets.UTF_8));
+        digest.update(data);
+
+        StringBuilder builder = new StringBuilder();
+        for (byte value : digest.digest())
+            builder.append(DataUtils.toByteString(value));
+        return builder.toString();
+    }
+}
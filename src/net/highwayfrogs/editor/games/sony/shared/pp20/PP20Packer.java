@@ -6,10 +6,14 @@ import lombok.Setter;
 import net.highwayfrogs.editor.Constants;
 import net.highwayfrogs.editor.utils.DataUtils;
 import net.highwayfrogs.editor.utils.MathUtils;
+import net.highwayfrogs.editor.utils.ThreadUtils;
 import net.highwayfrogs.editor.utils.Utils;
 import net.highwayfrogs.editor.utils.data.writer.BitWriter;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
 
 /**
  * Packs a byte array into PP20 compressed data. PP20 is a LZSS variant.
@@ -29,6 +33,12 @@ import java.util.Arrays;
  */
 public class PP20Packer {
     public static final byte[] EXTREME_COMPRESSION_SETTINGS = {0x09, 0x0A, 0x0C, 0x0D};
+    // The compression settings tried by packDataBestFit(). The first five are the presets offered by PowerPacker (Fast, Mediocre, Good, Very Good, Best).
+    private static final byte[][] BEST_FIT_COMPRESSION_SETTINGS = {
+            {0x09, 0x09, 0x09, 0x09}, {0x09, 0x0A, 0x0A, 0x0A}, {0x09, 0x0A, 0x0B, 0x0B}, {0x09, 0x0A, 0x0C, 0x0C}, EXTREME_COMPRESSION_SETTINGS,
+            {0x08, 0x0A, 0x0C, 0x0D}, {0x09, 0x0B, 0x0C, 0x0D}, {0x0A, 0x0B, 0x0C, 0x0D}, {0x09, 0x0A, 0x0C, 0x0E}, {0x09, 0x0A, 0x0D, 0x0E}
+    };
+    public static final int MAX_SAFETY_MARGIN_WORD_COUNT = 0xFF; // The MWI stores the safety margin in the upper 8 bits of the unpacked file size.
     private static final int COMPRESSING_SETTING_SIZE = 4;
     public static final int OPTIONAL_BITS_SMALL_OFFSET = 7;
     public static final int INPUT_BIT_LENGTH = 2;
@@ -52,6 +62,7 @@ public class PP20Packer {
     // This constant is used within the algorithm. I didn't feel comfortable ascribing intent to what the constant is though, so it is named generically.
     // This method has been tested against Beast Wars PC/PSX, Frogger PC/PSX, MediEvil, MediEvil 2, Moon Warrior, and C-12 Final Resistance and outputs perfect safety margin matches for all of them.
     public static final int SAFETY_MARGIN_CONSTANT = 4;
+    private static final ThreadLocal<byte[]> VERIFICATION_BUFFER = ThreadLocal.withInitial(() -> new byte[0]); // Reused between files to avoid allocating a new array each time.
 
     /**
      * Packs a byte array using extreme compression settings.
@@ -69,18 +80,116 @@ public class PP20Packer {
      * @return packedData
      */
     public static PackResult packData(byte[] data, boolean oldVersion, byte[] compressionSettings) {
+        return packData(data, oldVersion, compressionSettings, PP20PackerEngine.ORIGINAL);
+    }
+
+    /**
+     * Pack a byte array into PP20 compressed data.
+     * @param data The data to compress.
+     * @param oldVersion whether an older version should be used. Frogger seems to use this for all files. Only used by the original engine.
+     * @param compressionSettings the offset bit lengths to compress with
+     * @param engine the engine to find matches with
+     * @return packedData
+     */
+    public static PackResult packData(byte[] data, boolean oldVersion, byte[] compressionSettings, PP20PackerEngine engine) {
         if (data.length > MAX_UNCOMPRESSED_FILE_SIZE)
             throw new RuntimeException("packData tried to compress data larger than the maximum PP20 file size! (" + data.length + " > " + MAX_UNCOMPRESSED_FILE_SIZE + ")!");
-
-        PackerDataInstance packerData = new PackerDataInstance(oldVersion, compressionSettings);
+        if (engine == null)
+            throw new NullPointerException("engine");
+
+        byte[] compressedData;
+        int byteMargin;
+        if (engine == PP20PackerEngine.HASH_CHAIN) {
+            PP20HashChainPacker packer = new PP20HashChainPacker(data, compressionSettings);
+            compressedData = packer.compressData();
+            byteMargin = packer.getByteMargin();
+        } else {
+            PackerDataInstance packerData = new PackerDataInstance(oldVersion, compressionSettings);
+            compressedData = compressData(data, packerData);
+            byteMargin = packerData.getByteMargin();
+        }
 
         // Take the compressed data, and pad it with the file structure. Then, we're done.
-        byte[] compressedData = compressData(data, packerData);
         byte[] sizeBytes = DataUtils.reverseByteArray(DataUtils.toByteArray(data.length));
         System.arraycopy(MARKER_BYTES, 0, compressedData, 0, MARKER_BYTES.length);
         System.arraycopy(compressionSettings, 0, compressedData, 4, compressionSettings.length);
         System.arraycopy(sizeBytes, 1, compressedData, compressedData.length - 4, Constants.INTEGER_SIZE - 1);
-        return new PackResult(compressedData, packerData.getByteMargin());
+
+        // The safety margin formula was created to match the original packer, so the hash chain engine must measure it while unpacking too.
+        // The larger of the two values is used, so in-place unpacking is always safe. This also verifies the compressed data is correct.
+        if (engine != PP20PackerEngine.ORIGINAL) {
+            byte[] unpackedData = VERIFICATION_BUFFER.get();
+            if (unpackedData.length < data.length)
+                VERIFICATION_BUFFER.set(unpackedData = new byte[data.length]);
+
+            int unpackedByteMargin = PP20Unpacker.unpackData(compressedData, unpackedData, 0);
+            for (int i = 0; i < data.length; i++)
+                if (data[i] != unpackedData[i])
+                    throw new RuntimeException("The " + engine.getDisplayName() + " PP20 packer produced data which did not unpack to the original data!");
+
+            byteMargin = Math.max(byteMargin, unpackedByteMargin);
+        }
+
+        return new PackResult(compressedData, byteMargin);
+    }
+
+    /**
+     * Packs a byte array with several different compression settings at once, keeping whichever result is the smallest.
+     * Results with a safety margin too large to store in the MWI are not kept, unless no other result is available.
+     * The chosen settings are written to the PP20 header, so they do not need to be tracked anywhere else.
+     * @param data The data to pack.
+     * @param engine the engine to pack the data with
+     * @return packedData
+     */
+    public static PackResult packDataBestFit(byte[] data, PP20PackerEngine engine) {
+        if (data == null)
+            throw new NullPointerException("data");
+        if (engine == null)
+            throw new NullPointerException("engine");
+
+        // The worker threads are a work-stealing pool, so this is safe to call from a worker thread too.
+        List<Future<PackResult>> packTasks = new ArrayList<>(BEST_FIT_COMPRESSION_SETTINGS.length);
+        for (byte[] compressionSettings : BEST_FIT_COMPRESSION_SETTINGS)
+            packTasks.add(ThreadUtils.submitWorkerTask(() -> packData(data, true, compressionSettings, engine)));
+
+        PackResult bestResult = null;
+        RuntimeException packError = null;
+        for (Future<PackResult> packTask : packTasks) {
+            if (packError != null) { // Don't leave any tasks running after an error.
+                ThreadUtils.waitForTaskToFinish(packTask);
+                continue;
+            }
+
+            PackResult packResult;
+            try {
+                packResult = ThreadUtils.waitForTask(packTask);
+            } catch (RuntimeException ex) {
+                packError = ex;
+                continue;
+            }
+
+            if (bestResult == null || isBetterFit(packResult, bestResult))
+                bestResult = packResult;
+        }
+
+        if (packError != null)
+            throw packError;
+
+        return bestResult;
+    }
+
+    private static boolean isBetterFit(PackResult packResult, PackResult bestResult) {
+        boolean marginFits = packResult.getSafetyMarginWordCount() <= MAX_SAFETY_MARGIN_WORD_COUNT;
+        boolean bestMarginFits = bestResult.getSafetyMarginWordCount() <= MAX_SAFETY_MARGIN_WORD_COUNT;
+        if (marginFits != bestMarginFits)
+            return marginFits;
+
+        int packedSize = packResult.getPackedBytes().length;
+        int bestPackedSize = bestResult.getPackedBytes().length;
+        if (packedSize != bestPackedSize)
+            return packedSize < bestPackedSize;
+
+        return packResult.getMinimumByteMargin() < bestResult.getMinimumByteMargin(); // A smaller margin needs less memory to unpack in-place.
     }
 
     @Getter
@@ -237,38 +346,70 @@ public class PP20Packer {
 
                 // Write data reference.
                 info.updateByteMargin(writer, srcCurrIdx);
-                if (repeats > COMPRESSING_SETTING_SIZE) {
-                    int repeatValue = (repeats - (PP20Packer.COMPRESSING_SETTING_SIZE + 1));
-
-                    // Write data length.
-                    writer.writeBits(repeatValue % PP20Packer.OFFSET_CONTINUE_WRITING_BITS, PP20Packer.OFFSET_BIT_LENGTH);
-                    for (int i = 0; i < repeatValue / PP20Packer.OFFSET_CONTINUE_WRITING_BITS; ++i)
-                        writer.writeBits(PP20Packer.OFFSET_CONTINUE_WRITING_BITS, PP20Packer.OFFSET_BIT_LENGTH);
-
-                    boolean largeMode = (dataRefOffset >= 0x80); // Offset small mode vs not.
-                    writer.writeBits(dataRefOffset, largeMode ? info.getCompressionSettings()[dataRefCompressionLevel] : PP20Packer.OPTIONAL_BITS_SMALL_OFFSET); // Write offset. (Length is deterministic)
-                    writer.writeBit(Utils.getBit(largeMode)); // Write whether small offset mode is used.
-                } else {
-                    // Write offset. (Data length is deterministic based on the compression level, which is also written.)
-                    writer.writeBits(dataRefOffset, info.getCompressionSettings()[dataRefCompressionLevel]);
-                }
-
-                // Write compression level.
-                writer.writeBits(dataRefCompressionLevel, 2);
+                writeDataReference(writer, repeats, dataRefOffset, dataRefCompressionLevel, info.getCompressionSettings());
                 break;
             }
         }
         info.updateByteMargin(writer, srcCurrIdx);
         writeRawDataPackerHeader(writer, bits);
+        return finishCompressedData(writer, info.getCompressionSettings());
+    }
 
+    /**
+     * Pads the written bits into the packed data layout, leaving space for the header and the size.
+     * @param writer the writer containing the compressed bit stream
+     * @param compressionSettings the compression settings used
+     * @return packedData
+     */
+    static byte[] finishCompressedData(BitWriter writer, byte[] compressionSettings) {
         int skippedBits = writer.finishCurrentByte();
         int extraBytes = ((writer.getByteCount() % 4) > 0) ? 4 - (writer.getByteCount() % 4) : 0; // Align by 4 bytes, which is what the real PowerPacker does.
-        byte[] byteArray = writer.toByteArray(PP20Packer.MARKER.length() + info.getCompressionSettings().length, 4 + extraBytes);
+        byte[] byteArray = writer.toByteArray(PP20Packer.MARKER.length() + compressionSettings.length, 4 + extraBytes);
         byteArray[byteArray.length - 1] = (byte) (skippedBits + (Constants.BITS_PER_BYTE * extraBytes));
         return byteArray;
     }
 
-    private static void writeRawDataPackerHeader(BitWriter writer, int byteLength) {
+    /**
+     * Writes a reference to data which is repeated later in the uncompressed data.
+     * @param writer the writer to write the reference to
+     * @param repeats the number of bytes which are repeated
+     * @param dataRefOffset the distance to the repeated data, minus one
+     * @param dataRefCompressionLevel the compression level, selecting how many bits are used to write the offset
+     * @param compressionSettings the offset bit lengths for each compression level
+     */
+    static void writeDataReference(BitWriter writer, int repeats, int dataRefOffset, int dataRefCompressionLevel, byte[] compressionSettings) {
+        if (repeats > COMPRESSING_SETTING_SIZE) {
+            int repeatValue = (repeats - (PP20Packer.COMPRESSING_SETTING_SIZE + 1));
+
+            // Write data length.
+            writer.writeBits(repeatValue % PP20Packer.OFFSET_CONTINUE_WRITING_BITS, PP20Packer.OFFSET_BIT_LENGTH);
+            for (int i = 0; i < repeatValue / PP20Packer.OFFSET_CONTINUE_WRITING_BITS; ++i)
+                writer.writeBits(PP20Packer.OFFSET_CONTINUE_WRITING_BITS, PP20Packer.OFFSET_BIT_LENGTH);
+
+            boolean largeMode = (dataRefOffset >= 0x80); // Offset small mode vs not.
+            writer.writeBits(dataRefOffset, largeMode ? compressionSettings[dataRefCompressionLevel] : PP20Packer.OPTIONAL_BITS_SMALL_OFFSET); // Write offset. (Length is deterministic)
+            writer.writeBit(Utils.getBit(largeMode)); // Write whether small offset mode is used.
+        } else {
+            // Write offset. (Data length is deterministic based on the compression level, which is also written.)
+            writer.writeBits(dataRefOffset, compressionSettings[dataRefCompressionLevel]);
+        }
+
+        // Write compression level.
+        writer.writeBits(dataRefCompressionLevel, 2);
+    }
+
+    /**
+     * Calculates the byte margin at the current point in compression.
+     * Check the documentation for SAFETY_MARGIN_CONSTANT to explain what's going on here.
+     * @param writer the writer containing the compressed data written so far
+     * @param srcCurrIdx the index into the uncompressed data which has been compressed up to
+     * @return byteMargin
+     */
+    static int calculateByteMargin(BitWriter writer, int srcCurrIdx) {
+        return (writer.getCompletedByteCount() + 1) + SAFETY_MARGIN_CONSTANT - srcCurrIdx;
+    }
+
+    static void writeRawDataPackerHeader(BitWriter writer, int byteLength) {
         int writeLength = byteLength - 1;
         writer.writeBits(writeLength % PP20Packer.INPUT_CONTINUE_WRITING_BITS, PP20Packer.INPUT_BIT_LENGTH);
         for (int i = 0; i < writeLength / PP20Packer.INPUT_CONTINUE_WRITING_BITS; ++i) // Writing number of bytes.
@@ -320,8 +461,7 @@ public class PP20Packer {
          * @param writer the writer
          */
         public void updateByteMargin(BitWriter writer, int srcCurrIdx) {
-            // Check the documentation for SAFETY_MARGIN_CONSTANT to explain what's going on here.
-            int currentByteMargin = (writer.getBytes().size() + 1) + SAFETY_MARGIN_CONSTANT - srcCurrIdx;
+            int currentByteMargin = calculateByteMargin(writer, srcCurrIdx);
             if (currentByteMargin > this.byteMargin)
                 this.byteMargin = currentByteMargin;
         }
@@ -0,0 +1,18 @@
+package net.highwayfrogs.editor.games.sony.shared.pp20;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The algorithms available for finding repeated data while packing PP20 data.
+ * Both produce valid PP20 data, but only the original engine produces the same bytes as the original PowerPacker.
+ * Created by Kneesnap on 10/17/2026.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum PP20PackerEngine {
+    ORIGINAL("Original (Matches Retail)"), // A recreation of the original PowerPacker search, which is slow on larger files.
+    HASH_CHAIN("Hash Chain (Fast)"); // Finds matches using hash chains and lazy matching, see PP20HashChainPacker.
+
+    private final String displayName;
+}
@@ -4,9 +4,6 @@ import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import net.highwayfrogs.editor.Constants;
 import net.highwayfrogs.editor.utils.DataUtils;
-import net.highwayfrogs.editor.utils.data.writer.BitReader;
-
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * PP20 Unpacker: Unpacks PowerPacker compressed data.
@@ -14,9 +11,12 @@ import java.util.concurrent.atomic.AtomicInteger;
  * Original Author: Josef Jelinek
  * URL: <a href="https://github.com/josef-jelinek/tiny-mod-player/blob/master/lib.gamod/src/gamod/unpack/PowerPacker.java"/>
  * Copied on August 11, 2018. There is no license attached to the repository, however the author has explicitly granted written permission to use this code.
+ * The compressed stream is read backwards, so instead of going through BitReader, bytes are loaded into a 64-bit buffer in the order they are read.
  */
 public class PP20Unpacker {
     private static final int OFFSET_BIT_OPTIONS = 4;
+    private static final int HEADER_SIZE = PP20Packer.MARKER_BYTES.length + OFFSET_BIT_OPTIONS;
+    private static final int FOOTER_SIZE = Constants.INTEGER_SIZE;
 
     /**
      * Is a given byte array PP20 compressed data?
@@ -33,18 +33,100 @@ public class PP20Unpacker {
      * @return unpackedData
      */
     public static UnpackResult unpackData(byte[] data) {
-        int[] offsetBitLengths = getOffsetBitLengths(data);
-        int skip = data[data.length - 1] & 0xFF; // Last byte contains the amount of bits to trash.
         byte[] out = new byte[getDecodedDataSize(data)];
-        int outPos = out.length;
-        BitReader in = new BitReader(data, 4);
-        in.setReverseBytes(true);
-        in.readBits(skip); // skipped bits
-
-        AtomicInteger byteMargin = new AtomicInteger();
-        while (outPos > 0)
-            outPos = decodeSegment(in, out, outPos, offsetBitLengths, byteMargin);
-        return new UnpackResult(out, byteMargin.get());
+        int byteMargin = unpackData(data, out, 0);
+        return new UnpackResult(out, byteMargin);
+    }
+
+    /**
+     * Unpacks PP20 compressed data into an existing array, allowing the output array to be reused.
+     * The number of bytes written is getDecodedDataSize(data). Any other bytes in the output array are left untouched.
+     * @param data The data to unpack.
+     * @param output The array to write the unpacked data into.
+     * @param outputOffset The index into the output array to write the first unpacked byte to.
+     * @return minimumByteMargin
+     */
+    public static int unpackData(byte[] data, byte[] output, int outputOffset) {
+        int decodedSize = getDecodedDataSize(data);
+        if (outputOffset < 0 || outputOffset > output.length - decodedSize)
+            throw new IndexOutOfBoundsException("Cannot unpack " + decodedSize + " bytes to offset " + outputOffset + " of an array containing " + output.length + " bytes.");
+
+        PP20BitStream in = new PP20BitStream(data);
+        in.readBits(data[data.length - 1] & 0xFF); // Last byte contains the amount of bits to trash.
+
+        int offsetBitLength0 = data[HEADER_SIZE - OFFSET_BIT_OPTIONS];
+        int offsetBitLength1 = data[HEADER_SIZE - OFFSET_BIT_OPTIONS + 1];
+        int offsetBitLength2 = data[HEADER_SIZE - OFFSET_BIT_OPTIONS + 2];
+        int offsetBitLength3 = data[HEADER_SIZE - OFFSET_BIT_OPTIONS + 3];
+
+        // Check the documentation for PP20Packer.SAFETY_MARGIN_CONSTANT to explain what's going on here.
+        // This has been tested against Beast Wars PC/PSX, Frogger PC/PSX, MediEvil, MediEvil 2, Moon Warrior, and C-12 Final Resistance and outputs perfect safety margin matches for all of them.
+        // The margin is (bytes written, counted from the end of the output) - (reader position, counted from the end of the output).
+        int byteMarginBase = data.length - PP20Packer.SAFETY_MARGIN_CONSTANT - 1;
+        int byteMargin = 0;
+
+        int outStart = outputOffset;
+        int outPos = outputOffset + decodedSize;
+        while (outPos > outStart) {
+            if (in.readBit() == PP20Packer.HAS_RAW_DATA_BIT) { // Copy literal bytes from the input.
+                int count = 1, countInc;
+                while ((countInc = in.readBits(PP20Packer.INPUT_BIT_LENGTH)) == PP20Packer.INPUT_CONTINUE_WRITING_BITS) // Read the string size. If it == 3, that means the length might be longer.
+                    count += PP20Packer.INPUT_CONTINUE_WRITING_BITS;
+                count += countInc;
+
+                int currentByteMargin = byteMarginBase - (outPos - outStart) - in.getBytesRead();
+                if (currentByteMargin > byteMargin)
+                    byteMargin = currentByteMargin;
+
+                if (count > outPos - outStart)
+                    throw new ArrayIndexOutOfBoundsException("The PP20 data contains more bytes than its reported size of " + decodedSize + " bytes.");
+                for (; count > 0; count--)
+                    output[--outPos] = (byte) in.readBits(Constants.BITS_PER_BYTE);
+
+                if (outPos == outStart)
+                    break;
+            }
+
+            // Copy previously decoded bytes.
+            int compressionLevel = in.readBits(PP20Packer.COMPRESSION_LEVEL_BITS); // always at least 2 bytes (2 bytes ~ 0, 3 ~ 1, 4 ~ 2, 5+ ~ 3)
+            int offBits;
+            switch (compressionLevel) {
+                case 0:
+                    offBits = offsetBitLength0;
+                    break;
+                case 1:
+                    offBits = offsetBitLength1;
+                    break;
+                case 2:
+                    offBits = offsetBitLength2;
+                    break;
+                default:
+                    offBits = in.readBit() == Constants.BIT_FALSE ? PP20Packer.OPTIONAL_BITS_SMALL_OFFSET : offsetBitLength3;
+                    break;
+            }
+
+            int off = in.readBits(offBits);
+            int copyLength = compressionLevel + PP20Packer.MINIMUM_DECODE_DATA_LENGTH;
+            if (compressionLevel == PP20Packer.INPUT_CONTINUE_WRITING_BITS) { // The length might be extended further.
+                int lastLengthBits;
+                do { // Keep adding until the three read bits are not '111', meaning the length has stopped.
+                    lastLengthBits = in.readBits(PP20Packer.OFFSET_BIT_LENGTH);
+                    copyLength += lastLengthBits;
+                } while (lastLengthBits == PP20Packer.OFFSET_CONTINUE_WRITING_BITS);
+            }
+
+            int currentByteMargin = byteMarginBase - (outPos - outStart) - in.getBytesRead();
+            if (currentByteMargin > byteMargin)
+                byteMargin = currentByteMargin;
+
+            int copyFrom = outPos + off;
+            if (copyLength > outPos - outStart || copyFrom >= outputOffset + decodedSize)
+                throw new ArrayIndexOutOfBoundsException("The PP20 data references bytes outside of its reported size of " + decodedSize + " bytes.");
+            for (int i = 0; i < copyLength; i++) // The copied bytes may overlap the bytes being written, so they must be copied one at a time.
+                output[--outPos] = output[copyFrom--];
+        }
+
+        return byteMargin;
     }
 
     @Getter
@@ -61,68 +143,88 @@ public class PP20Unpacker {
         }
     }
 
-    private static int[] getOffsetBitLengths(byte[] data) {
-        int[] a = new int[OFFSET_BIT_OPTIONS];
-        for (int i = 0; i < OFFSET_BIT_OPTIONS; i++)
-            a[i] = data[i + OFFSET_BIT_OPTIONS];
-        return a;
-    }
-
-    private static int getDecodedDataSize(byte[] data) {
+    public static int getDecodedDataSize(byte[] data) {
         int i = data.length - 2;
         return (data[i - 2] & 0xFF) << 16 | (data[i - 1] & 0xFF) << 8 | data[i] & 0xFF;
     }
 
-    private static int decodeSegment(BitReader in, byte[] out, int outPos, int[] offsetBitLengths, AtomicInteger byteMargin) {
-        if (in.readBit() == PP20Packer.HAS_RAW_DATA_BIT)
-            outPos = copyFromInput(in, out, outPos, byteMargin);
-        if (outPos > 0)
-            outPos = copyFromDecoded(in, out, outPos, offsetBitLengths, byteMargin);
-        return outPos;
-    }
-
-    // Appears to put it into the table.
-    private static int copyFromInput(BitReader reader, byte[] out, int bytePos, AtomicInteger byteMargin) {
-        int count = 1, countInc;
-        while ((countInc = reader.readBits(PP20Packer.INPUT_BIT_LENGTH)) == PP20Packer.INPUT_CONTINUE_WRITING_BITS) // Read the string size. If it == 3, that means the length might be longer.
-            count += PP20Packer.INPUT_CONTINUE_WRITING_BITS;
+    /**
+     * Reads the compressed bit stream, starting from the end of the data and moving towards the start.
+     * Within each byte, the least significant bit is read first.
+     * Bytes are loaded into a 64-bit buffer (bit-reversed, so the next bit is always the most significant bit), so most reads don't need to touch the array.
+     */
+    private static class PP20BitStream {
+        private final byte[] data;
+        private int nextBytePos; // The index of the next byte to load into the buffer.
+        private int loadedBytes; // The number of bytes which have been loaded into the buffer, including the footer.
+        private long bitBuffer;
+        private int bitBufferSize;
+
+        private static final int BIT_BUFFER_SIZE = Long.SIZE;
+        private static final byte[] REVERSED_BITS = new byte[256];
+
+        public PP20BitStream(byte[] data) {
+            this.data = data;
+            this.nextBytePos = data.length - 1 - FOOTER_SIZE;
+            this.loadedBytes = FOOTER_SIZE;
+        }
 
-        updateByteMargin(reader, out, bytePos, byteMargin);
-        for (count += countInc; count > 0; count--) // Register the string in the table.
-            out[--bytePos] = (byte) reader.readBits(Constants.BITS_PER_BYTE);
+        /**
+         * Gets the number of bytes which have been read, including the footer. A partially read byte counts as unread.
+         */
+        public int getBytesRead() {
+            return this.loadedBytes - ((this.bitBufferSize + Constants.BITS_PER_BYTE - 1) / Constants.BITS_PER_BYTE);
+        }
 
-        return bytePos;
-    }
+        /**
+         * Reads the next bit.
+         * @return bitValue
+         */
+        public int readBit() {
+            if (this.bitBufferSize == 0)
+                fillBitBuffer(1);
+
+            int result = (int) (this.bitBuffer >>> (BIT_BUFFER_SIZE - 1));
+            this.bitBuffer <<= 1;
+            this.bitBufferSize--;
+            return result;
+        }
 
-    private static int copyFromDecoded(BitReader in, byte[] out, int bytePos, int[] offsetBitLengths, AtomicInteger byteMargin) {
-        int compressionLevel = in.readBits(PP20Packer.COMPRESSION_LEVEL_BITS); // always at least 2 bytes (2 bytes ~ 0, 3 ~ 1, 4 ~ 2, 5+ ~ 3)
-        boolean extraLengthData = (compressionLevel == PP20Packer.INPUT_CONTINUE_WRITING_BITS);
-        int offBits = extraLengthData && in.readBit() == Constants.BIT_FALSE ? PP20Packer.OPTIONAL_BITS_SMALL_OFFSET : offsetBitLengths[compressionLevel];
-        int off = in.readBits(offBits);
-
-        int copyLength = compressionLevel + PP20Packer.MINIMUM_DECODE_DATA_LENGTH;
-        if (extraLengthData) { // The length might be extended further.
-            int lastLengthBits;
-            do { // Keep adding until the three read bits are not '111', meaning the length has stopped.
-                lastLengthBits = in.readBits(PP20Packer.OFFSET_BIT_LENGTH);
-                copyLength += lastLengthBits;
-            } while (lastLengthBits == PP20Packer.OFFSET_CONTINUE_WRITING_BITS);
+        /**
+         * Reads bits into an integer. The first bit read becomes the most significant bit of the result.
+         * @param amount the number of bits to read, between 0 and 32
+         * @return readValue
+         */
+        public int readBits(int amount) {
+            if (amount <= 0) {
+                if (amount < 0)
+                    throw new IllegalArgumentException("Cannot read " + amount + " bits.");
+                return 0;
+            }
+
+            if (amount > this.bitBufferSize)
+                fillBitBuffer(amount);
+
+            int result = (int) (this.bitBuffer >>> (BIT_BUFFER_SIZE - amount));
+            this.bitBuffer <<= amount;
+            this.bitBufferSize -= amount;
+            return result;
         }
 
-        updateByteMargin(in, out, bytePos, byteMargin);
-        for (int i = 0; i < copyLength; i++, bytePos--)
-            out[bytePos - 1] = out[bytePos + off];
+        private void fillBitBuffer(int requiredBits) {
+            while (this.bitBufferSize <= BIT_BUFFER_SIZE - Constants.BITS_PER_BYTE && this.nextBytePos >= 0) {
+                this.bitBuffer |= (long) (REVERSED_BITS[this.data[this.nextBytePos--] & 0xFF] & 0xFF) << (BIT_BUFFER_SIZE - Constants.BITS_PER_BYTE - this.bitBufferSize);
+                this.bitBufferSize += Constants.BITS_PER_BYTE;
+                this.loadedBytes++;
+            }
 
-        return bytePos;
-    }
+            if (requiredBits > this.bitBufferSize)
+                throw new ArrayIndexOutOfBoundsException("Cannot read " + requiredBits + " bits, only " + this.bitBufferSize + " bits remain.");
+        }
 
-    private static void updateByteMargin(BitReader reader, byte[] out, int bytePos, AtomicInteger byteMargin) {
-        // Check the documentation for PP20Packer.SAFETY_MARGIN_CONSTANT to explain what's going on here.
-        // This method has been tested against Beast Wars PC/PSX, Frogger PC/PSX, MediEvil, MediEvil 2, Moon Warrior, and C-12 Final Resistance and outputs perfect safety margin matches for all of them.
-        int writerPosFromOutputBufferEnd = out.length - bytePos;
-        int readerPosFromOutputBufferEnd = out.length - (reader.getData().length - PP20Packer.SAFETY_MARGIN_CONSTANT - 1) + reader.getBytePos();
-        int currentByteMargin = writerPosFromOutputBufferEnd - readerPosFromOutputBufferEnd;
-        if (currentByteMargin > byteMargin.get())
-            byteMargin.set(currentByteMargin);
+        static {
+            for (int i = 0; i < REVERSED_BITS.length; i++)
+                REVERSED_BITS[i] = (byte) (Integer.reverse(i) >>> (Integer.SIZE - Constants.BITS_PER_BYTE));
+        }
     }
 }
@@ -10,7 +10,9 @@ import net.highwayfrogs.editor.games.sony.SCGameInstance;
 import net.highwayfrogs.editor.games.sony.SCGameType;
 import net.highwayfrogs.editor.games.sony.shared.ISCMWDHeaderGenerator;
 import net.highwayfrogs.editor.games.sony.shared.mwd.MWDFile;
+import net.highwayfrogs.editor.games.sony.shared.mwd.MWDFile.MWDSaveResult;
 import net.highwayfrogs.editor.games.sony.shared.utils.SCAnalysisUtils;
+import net.highwayfrogs.editor.games.sony.shared.vlo2.VloBatchImageTransfer;
 import net.highwayfrogs.editor.games.sony.shared.vlo2.VloFile;
 import net.highwayfrogs.editor.games.sony.shared.vlo2.VloImage;
 import net.highwayfrogs.editor.games.sony.shared.vlo2.ui.VloFileUIController;
@@ -73,6 +75,7 @@ public class SCMainMenuUIController<TGameInstance extends SCGameInstance> extend
         });
 
         addMenuItem(this.menuBarFile, "Export All Textures", this::exportBulkTextures);
+        addMenuItem(this.menuBarFile, "Import All Textures", this::importBulkTextures);
         if (getGameInstance().getVloTree() != null) {
             addMenuItem(this.menuBarEdit, "Rebuild Vlos", () -> {
                 ProgressBarComponent.openProgressBarWindow(getGameInstance(), "Texture Placement", progressBar -> {
@@ -87,6 +90,11 @@ public class SCMainMenuUIController<TGameInstance extends SCGameInstance> extend
         addMenuItem(this.menuBarEdit, "Open Hash Playground", () -> HashPlaygroundController.openEditor(getGameInstance()));
         addMenuItem(this.menuBarEdit, "Find Texture By ID", this::promptSearchForTexture);
         addMenuItem(this.menuBarEdit, "Find Unused Textures", () -> SCAnalysisUtils.findUnusedTextures(getGameInstance()));
+        addMenuItem(this.menuBarEdit, "Find Duplicate Textures", () -> getArchive().getDuplicateImageIndex().logReport(getLogger()));
+        addMenuItem(this.menuBarEdit, "Merge Duplicate Textures", () -> {
+            int rewiredEntries = getArchive().getDuplicateImageIndex().mergeExactDuplicates(getLogger());
+            getLogger().info("Rewired %d texture remap entr%s to use the first copy of duplicated images.", rewiredEntries, rewiredEntries != 1 ? "ies" : "y");
+        });
         if (getGameInstance() instanceof ISCMWDHeaderGenerator) {
             addMenuItem(this.menuBarEdit, "Generate MWD Header File (.H)", () -> {
                 String defaultFileName = getGameInstance().getGameType().getMwdHeaderFileName();
@@ -159,20 +167,23 @@ public class SCMainMenuUIController<TGameInstance extends SCGameInstance> extend
 
         ProgressBarComponent.openProgressBarWindow(getGameInstance(), "Saving Files", progressBar -> {
             // Save the MWD file.
-            DataWriter mwdWriter = new DataWriter(new FileReceiver(outputMwdFile));
-
+            MWDSaveResult mwdSaveResult;
             try {
-                getGameInstance().getMainArchive().save(mwdWriter, progressBar);
+                mwdSaveResult = getGameInstance().getMainArchive().save(outputMwdFile, progressBar, getGameInstance().getPackerEngine(), getGameInstance().isBestFitCompressionEnabled(), getGameInstance().isDeltaSaveEnabled());
             } catch (Throwable th) {
                 throw new RuntimeException("Failed to save the MWD file: '" + outputMwdFile.getName() + "'.", th);
-            } finally {
-                mwdWriter.closeReceiver();
             }
 
             // Save the executable too.
             progressBar.update(0, 1, "Saving the modified executable...");
             try {
-                getGameInstance().saveExecutable(outputExeFile, true);
+                if (mwdSaveResult.isDeltaSave()) {
+                    long exeBytesWritten = getGameInstance().patchExecutable(outputExeFile);
+                    getLogger().info("Delta save complete, %d byte(s) were written in total.", mwdSaveResult.getBytesWritten() + exeBytesWritten);
+                } else {
+                    getGameInstance().saveExecutable(outputExeFile, true);
+                }
+
                 progressBar.addCompletedProgress(1);
             } catch (Throwable th) {
                 throw new RuntimeException("Failed to save the patched game executable '" + outputExeFile.getName() + "'.", th);
@@ -208,12 +219,25 @@ public class SCMainMenuUIController<TGameInstance extends SCGameInstance> extend
         if (targetFolder == null)
             return;
 
-        List<VloFile> allVlos = getArchive().getAllFiles(VloFile.class);
-        for (VloFile saveVLO : allVlos) {
-            File vloFolder = new File(targetFolder, FileUtils.stripExtension(saveVLO.getFileDisplayName()));
-            FileUtils.makeDirectory(vloFolder);
-            saveVLO.exportAllImages(vloFolder, VloFile.IMAGE_EXPORT_SETTINGS);
-        }
+        ProgressBarComponent.openProgressBarWindow(getGameInstance(), "Texture Export", progressBar -> {
+            int exportedImages = VloBatchImageTransfer.exportImages(getArchive(), targetFolder, VloFile.IMAGE_EXPORT_SETTINGS, progressBar);
+            getLogger().info("Exported %d image(s).", exportedImages);
+        });
+    }
+
+    private void importBulkTextures() {
+        File sourceFolder = FileUtils.askUserToSelectFolder(getGameInstance(), TEXTURE_FOLDER);
+        if (sourceFolder == null)
+            return;
+
+        ProgressBarComponent.openProgressBarWindow(getGameInstance(), "Texture Import", progressBar -> {
+            int importedImages = VloBatchImageTransfer.importImages(getArchive(), sourceFolder, progressBar);
+            getLogger().info("Imported %d image(s).", importedImages);
+            FXUtils.runOnFXThread(() -> {
+                if (getCurrentEditor() instanceof VloFileUIController)
+                    ((VloFileUIController) getCurrentEditor()).updateDisplay();
+            });
+        });
     }
 
     private void promptSearchForTexture() {
@@ -252,6 +276,9 @@ public class SCMainMenuUIController<TGameInstance extends SCGameInstance> extend
      * @param file the file to display UI for
      */
     public void showEditor(SCGameFile<?> file) {
+        if (file != null)
+            file.ensureLoaded();
+
         GameUIController<?> controller = getCurrentEditor();
         if (controller instanceof SCFileEditorUIController) {
             @SuppressWarnings("unchecked")
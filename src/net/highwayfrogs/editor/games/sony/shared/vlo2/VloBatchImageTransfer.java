@@ -0,0 +1,258 @@
+package net.highwayfrogs.editor.games.sony.shared.vlo2;
+
+import lombok.RequiredArgsConstructor;
+import net.highwayfrogs.editor.games.sony.shared.mwd.MWDFile;
+import net.highwayfrogs.editor.gui.components.ProgressBarComponent;
+import net.highwayfrogs.editor.utils.FXUtils;
+import net.highwayfrogs.editor.utils.FileUtils;
+import net.highwayfrogs.editor.utils.ThreadUtils;
+import net.highwayfrogs.editor.utils.Utils;
+import net.highwayfrogs.editor.utils.Utils.ProblemResponse;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+
+/**
+ * Exports and imports the images of VLO files in bulk.
+ * Images are converted & PNG encoded (or decoded) on the worker thread pool.
+ * Only a fixed number of images are in flight at once, so memory usage stays bounded regardless of how many images there are.
+ * Imported images are applied to their VLO files on the FX thread in a single ordered pass, since modifying a VloFile is not thread-safe, and fires change events to the UI.
+ * Created by Kneesnap on 10/17/2026.
+ */
+public class VloBatchImageTransfer {
+    private static final int MAX_IMAGES_IN_FLIGHT = ThreadUtils.WORKER_THREAD_COUNT * 2;
+    private static final String EXPORT_IMAGE_FORMAT = "png";
+
+    /**
+     * Exports all images in a VloFile to a directory. Images are named by their local image ID.
+     * @param vloFile the vlo file to export images from
+     * @param directory the directory to export images to
+     * @param settings the image export settings
+     * @param progressBar the progress bar to display progress with (Optional)
+     * @return exportedImageCount
+     */
+    public static int exportImages(VloFile vloFile, File directory, int settings, ProgressBarComponent progressBar) {
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        addExportTasks(tasks, vloFile, directory, settings);
+        return runExportTasks(tasks, progressBar);
+    }
+
+    /**
+     * Exports all images in every VloFile found in the MWD, with each VloFile getting its own folder.
+     * @param mwdFile the mwd file to export images from
+     * @param directory the directory to create the folders in
+     * @param settings the image export settings
+     * @param progressBar the progress bar to display progress with (Optional)
+     * @return exportedImageCount
+     */
+    public static int exportImages(MWDFile mwdFile, File directory, int settings, ProgressBarComponent progressBar) {
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        List<VloFile> vloFiles = mwdFile.getAllFiles(VloFile.class);
+        for (int i = 0; i < vloFiles.size(); i++) {
+            VloFile vloFile = vloFiles.get(i);
+            File vloFolder = getVloFolder(directory, vloFile);
+            FileUtils.makeDirectory(vloFolder);
+            addExportTasks(tasks, vloFile, vloFolder, settings);
+        }
+
+        return runExportTasks(tasks, progressBar);
+    }
+
+    /**
+     * Imports all images found in a directory into a VloFile.
+     * Images are matched by name, and images without a matching name are added as new images.
+     * @param vloFile the vlo file to import images into
+     * @param directory the directory to import images from
+     * @param progressBar the progress bar to display progress with (Optional)
+     * @return importedImageCount
+     */
+    public static int importImages(VloFile vloFile, File directory, ProgressBarComponent progressBar) {
+        List<VloImageImportTask> tasks = new ArrayList<>();
+        addImportTasks(tasks, vloFile, directory);
+        return runImportTasks(tasks, progressBar);
+    }
+
+    /**
+     * Imports all images into every VloFile found in the MWD, from folders laid out the same way as exportImages(MWDFile, ...) creates them.
+     * @param mwdFile the mwd file to import images into
+     * @param directory the directory containing the folders to import images from
+     * @param progressBar the progress bar to display progress with (Optional)
+     * @return importedImageCount
+     */
+    public static int importImages(MWDFile mwdFile, File directory, ProgressBarComponent progressBar) {
+        List<VloImageImportTask> tasks = new ArrayList<>();
+        List<VloFile> vloFiles = mwdFile.getAllFiles(VloFile.class);
+        for (int i = 0; i < vloFiles.size(); i++) {
+            VloFile vloFile = vloFiles.get(i);
+            File vloFolder = getVloFolder(directory, vloFile);
+            if (vloFolder.isDirectory())
+                addImportTasks(tasks, vloFile, vloFolder);
+        }
+
+        return runImportTasks(tasks, progressBar);
+    }
+
+    private static File getVloFolder(File directory, VloFile vloFile) {
+        return new File(directory, FileUtils.stripExtension(vloFile.getFileDisplayName()));
+    }
+
+    private static void addExportTasks(List<Callable<Boolean>> tasks, VloFile vloFile, File directory, int settings) {
+        if ((settings & VloImage.IMAGE_EXPORT_FLAG_INCLUDE_PADDING) != VloImage.IMAGE_EXPORT_FLAG_INCLUDE_PADDING)
+            settings &= ~VloImage.IMAGE_EXPORT_FLAG_HIGHLIGHT_PADDING; // Matches toBufferedImage().
+
+        final int imageSettings = settings;
+        List<VloImage> images = vloFile.getImages();
+        for (int i = 0; i < images.size(); i++) {
+            VloImage image = images.get(i);
+            File outputFile = new File(directory, i + "." + EXPORT_IMAGE_FORMAT);
+            tasks.add(() -> {
+                // The shared image cache is skipped, so exporting every image doesn't evict the images which are actually being viewed.
+                BufferedImage bufferedImage = image.createBufferedImage(imageSettings, true);
+                try {
+                    ImageIO.write(bufferedImage, EXPORT_IMAGE_FORMAT, outputFile);
+                    return true;
+                } catch (IOException ex) {
+                    Utils.handleError(vloFile.getLogger(), ex, false, "Failed to export image '%s'.", outputFile.getName());
+                    return false;
+                }
+            });
+        }
+    }
+
+    private static int runExportTasks(List<Callable<Boolean>> tasks, ProgressBarComponent progressBar) {
+        if (progressBar != null)
+            progressBar.setStatusMessage("Exporting Images");
+
+        int[] exportedImages = new int[1];
+        runTasks(tasks, exported -> {
+            if (exported)
+                exportedImages[0]++;
+        }, progressBar);
+        return exportedImages[0];
+    }
+
+    private static void addImportTasks(List<VloImageImportTask> tasks, VloFile vloFile, File directory) {
+        String[] imageExtensions = ImageIO.getReaderFileSuffixes();
+        for (File file : FileUtils.listFiles(directory)) {
+            String fullFileName = file.getName();
+            String name = FileUtils.stripExtension(fullFileName);
+            if (name.length() >= fullFileName.length())
+                continue; // No extension.
+
+            String extension = fullFileName.substring(name.length() + 1);
+            if (!Utils.contains(imageExtensions, extension)) {
+                vloFile.getLogger().info("Skipping '%s' because the extension '%s' was not supported.", fullFileName, extension);
+                continue;
+            }
+
+            tasks.add(new VloImageImportTask(vloFile, file, name));
+        }
+    }
+
+    private static int runImportTasks(List<VloImageImportTask> tasks, ProgressBarComponent progressBar) {
+        if (progressBar != null)
+            progressBar.setStatusMessage("Importing Images");
+
+        int[] importedImages = new int[1];
+        runTasks(tasks, task -> {
+            // Waiting for each commit keeps the number of decoded images held in memory bounded.
+            FutureTask<Boolean> commitTask = new FutureTask<>(task::commit);
+            FXUtils.runOnFXThread(commitTask);
+            if (ThreadUtils.waitForTask(commitTask))
+                importedImages[0]++;
+        }, progressBar);
+        return importedImages[0];
+    }
+
+    /**
+     * Runs the tasks on the worker thread pool, and passes their results to the resultHandler on the calling thread, in the same order as the tasks.
+     * No more than MAX_IMAGES_IN_FLIGHT tasks will be running or waiting for their result to be handled at once.
+     * @param tasks the tasks to run
+     * @param resultHandler the handler to call for each result
+     * @param progressBar the progress bar to display progress with (Optional)
+     */
+    private static <T> void runTasks(List<? extends Callable<T>> tasks, Consumer<T> resultHandler, ProgressBarComponent progressBar) {
+        if (progressBar != null)
+            progressBar.setTotalProgress(tasks.size());
+
+        ArrayDeque<Future<T>> runningTasks = new ArrayDeque<>();
+        int nextTaskIndex = 0;
+        try {
+            while (nextTaskIndex < tasks.size() || !runningTasks.isEmpty()) {
+                while (nextTaskIndex < tasks.size() && runningTasks.size() < MAX_IMAGES_IN_FLIGHT)
+                    runningTasks.add(ThreadUtils.submitWorkerTask(tasks.get(nextTaskIndex++)));
+
+                resultHandler.accept(ThreadUtils.waitForTask(runningTasks.poll()));
+                if (progressBar != null)
+                    progressBar.addCompletedProgress(1);
+            }
+        } finally {
+            // If something failed, the remaining tasks must not keep running in the background.
+            while (!runningTasks.isEmpty())
+                ThreadUtils.waitForTaskToFinish(runningTasks.poll());
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class VloImageImportTask implements Callable<VloImageImportTask> {
+        private final VloFile vloFile;
+        private final File file;
+        private final String name;
+        private BufferedImage loadedImage;
+
+        /**
+         * Decodes the image.
+         * This runs on a worker thread, so it must not modify the VloFile.
+         * Quantization is left to replaceImage(), since it must happen after padding is applied to match importing the image by itself.
+         */
+        @Override
+        public VloImageImportTask call() {
+            try {
+                this.loadedImage = ImageIO.read(this.file);
+            } catch (IOException ex) {
+                Utils.handleError(this.vloFile.getLogger(), ex, false, "Failed to load image file '%s'.", this.file.getName());
+                return this;
+            }
+
+            if (this.loadedImage == null)
+                this.vloFile.getLogger().warning("Could not read '%s' as an image.", this.file.getName());
+
+            return this;
+        }
+
+        /**
+         * Applies the loaded image to the VloFile. This must run on the FX thread, in order.
+         * @return true iff the image was imported successfully
+         */
+        public boolean commit() {
+            if (this.loadedImage == null)
+                return false;
+
+            try {
+                // Find image by name, and replace.
+                VloImage existingImage = this.vloFile.getImageByName(this.name);
+                if (existingImage != null) {
+                    existingImage.replaceImage(this.loadedImage, null, -1, existingImage.testFlag(VloImage.FLAG_TRANSLUCENT), ProblemResponse.CREATE_POPUP);
+                } else { // If not a texture ID, then create a new image with that name.
+                    this.vloFile.addImage(this.name, this.loadedImage, VloPadding.DEFAULT, null, null, false);
+                }
+
+                return true;
+            } catch (Throwable th) {
+                Utils.handleError(this.vloFile.getLogger(), th, false, "Failed to import image file '%s'.", this.file.getName());
+                return false;
+            } finally {
+                this.loadedImage = null; // Release memory.
+            }
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package net.highwayfrogs.editor.games.sony.shared.vlo2;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import net.highwayfrogs.editor.games.sony.SCGameInstance;
+import net.highwayfrogs.editor.games.sony.shared.TextureRemapArray;
+import net.highwayfrogs.editor.games.sony.shared.TextureRemapArray.VLODirectTextureRemapArray;
+import net.highwayfrogs.editor.games.sony.shared.mwd.MWDFile;
+import net.highwayfrogs.editor.games.sony.shared.vlo2.vram.VloTree;
+import net.highwayfrogs.editor.games.sony.shared.vlo2.vram.VloTreeNode;
+import net.highwayfrogs.editor.utils.FileUtils;
+import net.highwayfrogs.editor.utils.logging.ILogger;
+
+import java.util.*;
+
+/**
+ * Finds images which are stored more than once across all VLO files in a MWD, wasting VRAM and disc space.
+ * Each image is hashed by its pixels (which are resolved through its CLUT), and images are bucketed by their dimensions, since only images of the same size can be duplicates.
+ * The index is incremental. Images are only hashed when first seen, or after VloImage.replaceImage() marks them as dirty.
+ * Created by Kneesnap on 10/17/2026.
+ */
+public class VloDuplicateImageIndex {
+    @Getter private final MWDFile mwdFile;
+    private final Map<VloImage, VloImageFingerprint> fingerprints = new IdentityHashMap<>();
+    private final Map<Integer, List<VloImage>> imagesByDimensions = new HashMap<>();
+    private final Set<VloImage> dirtyImages = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private static final int SIGNATURE_GRID_SIZE = 8;
+    private static final int SIGNATURE_CHANNELS = 4; // ARGB
+    private static final double NEAR_DUPLICATE_MAX_DIFFERENCE = 4D; // The maximum average difference (0 - 255) between the signature channels of two near-duplicate images.
+    private static final int RENDER_FLAG_MASK = VloImage.FLAG_TRANSLUCENT | VloImage.FLAG_BLACK_IS_TRANSPARENT;
+
+    public VloDuplicateImageIndex(@NonNull MWDFile mwdFile) {
+        this.mwdFile = mwdFile;
+    }
+
+    /**
+     * Marks an image as needing to be hashed again, because its pixels have changed.
+     * @param image the image to mark
+     */
+    public synchronized void markImageDirty(VloImage image) {
+        if (image != null && this.fingerprints.containsKey(image))
+            this.dirtyImages.add(image);
+    }
+
+    /**
+     * Brings the index up to date with the images currently found in the MWD.
+     * New and dirty images are hashed, and images which are no longer in the MWD are removed.
+     * @return the number of images which were hashed
+     */
+    public synchronized int update() {
+        Set<VloImage> currentImages = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<VloFile> vloFiles = this.mwdFile.getAllFiles(VloFile.class);
+        for (int i = 0; i < vloFiles.size(); i++)
+            currentImages.addAll(vloFiles.get(i).getImages());
+
+        // Remove images which are gone, or which must be hashed again.
+        Iterator<VloImage> iterator = this.fingerprints.keySet().iterator();
+        while (iterator.hasNext()) {
+            VloImage image = iterator.next();
+            if (currentImages.contains(image) && !this.dirtyImages.contains(image))
+                continue;
+
+            VloImageFingerprint fingerprint = this.fingerprints.get(image);
+            List<VloImage> bucket = this.imagesByDimensions.get(fingerprint.getDimensionKey());
+            if (bucket != null && bucket.remove(image) && bucket.isEmpty())
+                this.imagesByDimensions.remove(fingerprint.getDimensionKey());
+
+            iterator.remove();
+        }
+
+        this.dirtyImages.clear();
+
+        // Hash new images.
+        int hashedImages = 0;
+        for (VloImage image : currentImages) {
+            if (this.fingerprints.containsKey(image) || image.getPixelBuffer() == null)
+                continue;
+
+            VloImageFingerprint fingerprint = new VloImageFingerprint(image);
+            this.fingerprints.put(image, fingerprint);
+            this.imagesByDimensions.computeIfAbsent(fingerprint.getDimensionKey(), key -> new ArrayList<>()).add(image);
+            hashedImages++;
+        }
+
+        return hashedImages;
+    }
+
+    /**
+     * Finds groups of images which look identical in-game.
+     * The images in each group are ordered by the order their VLO files are found in the MWD, then by their local image ID.
+     * @return exactDuplicateGroups
+     */
+    public synchronized List<List<VloImage>> findExactDuplicates() {
+        update();
+
+        List<List<VloImage>> duplicateGroups = new ArrayList<>();
+        for (List<VloImage> bucket : this.imagesByDimensions.values())
+            for (List<VloImage> group : groupIdenticalImages(bucket))
+                if (group.size() > 1)
+                    duplicateGroups.add(group);
+
+        Map<VloImage, Integer> imageOrder = getImageOrder();
+        for (int i = 0; i < duplicateGroups.size(); i++)
+            duplicateGroups.get(i).sort(Comparator.comparingInt(imageOrder::get));
+        duplicateGroups.sort(Comparator.comparingInt((List<VloImage> group) -> imageOrder.get(group.get(0))));
+        return duplicateGroups;
+    }
+
+    /**
+     * Finds pairs of images which are the same size and look very similar, but are not identical.
+     * When several images are identical to each other, only one of them is compared.
+     * @return nearDuplicatePairs
+     */
+    public synchronized List<VloNearDuplicateImagePair> findNearDuplicates() {
+        update();
+
+        List<VloNearDuplicateImagePair> pairs = new ArrayList<>();
+        for (List<VloImage> bucket : this.imagesByDimensions.values()) {
+            List<List<VloImage>> groups = groupIdenticalImages(bucket);
+            for (int i = 0; i < groups.size(); i++) {
+                VloImage image = groups.get(i).get(0);
+                byte[] signature = this.fingerprints.get(image).getSignature();
+                for (int j = i + 1; j < groups.size(); j++) {
+                    VloImage otherImage = groups.get(j).get(0);
+                    double difference = getSignatureDifference(signature, this.fingerprints.get(otherImage).getSignature());
+                    if (difference <= NEAR_DUPLICATE_MAX_DIFFERENCE)
+                        pairs.add(new VloNearDuplicateImagePair(image, otherImage, difference));
+                }
+            }
+        }
+
+        pairs.sort(Comparator.comparingDouble(VloNearDuplicateImagePair::getDifference));
+        return pairs;
+    }
+
+    /**
+     * Logs all exact & near-duplicate images.
+     * @param logger the logger to write the report to
+     */
+    public void logReport(ILogger logger) {
+        List<List<VloImage>> exactDuplicates = findExactDuplicates();
+        int redundantImages = 0;
+        for (int i = 0; i < exactDuplicates.size(); i++) {
+            List<VloImage> group = exactDuplicates.get(i);
+            redundantImages += group.size() - 1;
+
+            logger.info("Duplicate Images #%d:", i + 1);
+            for (int j = 0; j < group.size(); j++)
+                logger.info(" - %s", getImageDisplayName(group.get(j)));
+        }
+
+        List<VloNearDuplicateImagePair> nearDuplicates = findNearDuplicates();
+        if (!nearDuplicates.isEmpty())
+            logger.info("Near-Duplicate Images:");
+        for (int i = 0; i < nearDuplicates.size(); i++) {
+            VloNearDuplicateImagePair pair = nearDuplicates.get(i);
+            logger.info(" - %s ~ %s (Difference: %.2f)", getImageDisplayName(pair.getImageA()), getImageDisplayName(pair.getImageB()), pair.getDifference());
+        }
+
+        logger.info("Found %d group(s) of duplicate images (%d redundant image(s)), and %d near-duplicate pair(s).", exactDuplicates.size(), redundantImages, nearDuplicates.size());
+    }
+
+    /**
+     * Rewires texture remap entries which point to a duplicate image, so they point to the first copy of the image instead.
+     * An entry is only rewired if the first copy is guaranteed to be in VRAM when the remap's VLO is.
+     * That is the case when it's in the same VLO, or in the only VLO of a parent or included VloTree node.
+     * The duplicate images themselves are not removed, since other data may still reference them directly. Once unused, they can be found with "Find Unused Textures".
+     * @param logger the logger to log changes to
+     * @return rewiredEntryCount
+     */
+    public int mergeExactDuplicates(ILogger logger) {
+        Map<VloImage, List<VloImage>> groupsByImage = new IdentityHashMap<>();
+        for (List<VloImage> group : findExactDuplicates())
+            for (int i = 0; i < group.size(); i++)
+                groupsByImage.put(group.get(i), group);
+
+        if (groupsByImage.isEmpty())
+            return 0;
+
+        SCGameInstance instance = this.mwdFile.getGameInstance();
+        VloTree vloTree = instance.getVloTree();
+        Map<VloFile, Set<VloImage>> residentImagesByVlo = new IdentityHashMap<>();
+        int rewiredEntries = 0;
+        for (TextureRemapArray textureRemap : instance.getTextureRemaps()) {
+            VloFile remapVlo = textureRemap.getVloFile();
+            if (remapVlo == null || textureRemap instanceof VLODirectTextureRemapArray)
+                continue; // Without a VLO, it's not known which textures are in VRAM. Direct remaps are generated from their VLO.
+
+            Set<VloImage> residentImages = residentImagesByVlo.computeIfAbsent(remapVlo, vloFile -> getResidentImages(vloTree, vloFile));
+            for (int i = 0; i < textureRemap.getTextureIds().size(); i++) {
+                VloImage image = textureRemap.resolveTexture(i, remapVlo);
+                List<VloImage> group = image != null ? groupsByImage.get(image) : null;
+                if (group == null)
+                    continue;
+
+                // Use the first image in the group which is available, so every remap converges on the same image.
+                VloImage replacement = null;
+                for (int j = 0; j < group.size() && replacement == null; j++)
+                    if (residentImages.contains(group.get(j)))
+                        replacement = group.get(j);
+
+                if (replacement == null || replacement == image || replacement.getTextureId() == image.getTextureId())
+                    continue;
+
+                logger.info("Remapped %s[%d] from %s to %s.", textureRemap.getDebugName(), i, getImageDisplayName(image), getImageDisplayName(replacement));
+                textureRemap.setRemappedTextureId(i, replacement.getTextureId());
+                rewiredEntries++;
+            }
+        }
+
+        return rewiredEntries;
+    }
+
+    private List<List<VloImage>> groupIdenticalImages(List<VloImage> images) {
+        List<List<VloImage>> groups = new ArrayList<>();
+        Map<Long, List<List<VloImage>>> groupsByHash = new HashMap<>();
+        for (int i = 0; i < images.size(); i++) {
+            VloImage image = images.get(i);
+            List<List<VloImage>> hashGroups = groupsByHash.computeIfAbsent(this.fingerprints.get(image).getHash(), key -> new ArrayList<>(1));
+
+            List<VloImage> matchingGroup = null;
+            for (int j = 0; j < hashGroups.size() && matchingGroup == null; j++)
+                if (isIdentical(hashGroups.get(j).get(0), image))
+                    matchingGroup = hashGroups.get(j);
+
+            if (matchingGroup == null) {
+                matchingGroup = new ArrayList<>();
+                hashGroups.add(matchingGroup);
+                groups.add(matchingGroup);
+            }
+
+            matchingGroup.add(image);
+        }
+
+        return groups;
+    }
+
+    private Map<VloImage, Integer> getImageOrder() {
+        Map<VloImage, Integer> imageOrder = new IdentityHashMap<>();
+        List<VloFile> vloFiles = this.mwdFile.getAllFiles(VloFile.class);
+        for (int i = 0; i < vloFiles.size(); i++)
+            for (VloImage image : vloFiles.get(i).getImages())
+                imageOrder.put(image, imageOrder.size());
+
+        return imageOrder;
+    }
+
+    private static Set<VloImage> getResidentImages(VloTree vloTree, VloFile vloFile) {
+        Set<VloImage> residentImages = Collections.newSetFromMap(new IdentityHashMap<>());
+        residentImages.addAll(vloFile.getImages());
+
+        // A node's VRAM layout is built on top of its parent's, and the VLOs of its included nodes, so those remain loaded.
+        VloTreeNode node = vloTree != null ? vloTree.getNode(vloFile) : null;
+        for (VloTreeNode tempNode = node; tempNode != null; tempNode = tempNode.getParent()) {
+            if (tempNode != node)
+                addResidentNodeImages(residentImages, tempNode);
+
+            List<VloTreeNode> includedNodes = tempNode.getIncludedNodes();
+            for (int i = 0; i < includedNodes.size(); i++)
+                addResidentNodeImages(residentImages, includedNodes.get(i));
+        }
+
+        return residentImages;
+    }
+
+    private static void addResidentNodeImages(Set<VloImage> residentImages, VloTreeNode node) {
+        // When a node has several VLOs, they share VRAM space, so only one of them is loaded at a time, and it's not known which.
+        if (node.getVloFileDataEntries().size() == 1)
+            residentImages.addAll(node.getVloFileDataEntries().get(0).getVloFile().getImages());
+    }
+
+    private static boolean isIdentical(VloImage image, VloImage otherImage) {
+        return image.getPaddedWidth() == otherImage.getPaddedWidth() && image.getPaddedHeight() == otherImage.getPaddedHeight()
+                && image.getInternalUnpaddedWidth() == otherImage.getInternalUnpaddedWidth() && image.getInternalUnpaddedHeight() == otherImage.getInternalUnpaddedHeight()
+                && image.getBitDepth() == otherImage.getBitDepth() && image.getAbr() == otherImage.getAbr()
+                && (image.getFlags() & RENDER_FLAG_MASK) == (otherImage.getFlags() & RENDER_FLAG_MASK)
+                && image.isClutFogEnabled() == otherImage.isClutFogEnabled() && image.isPaddingTransparent() == otherImage.isPaddingTransparent()
+                && Arrays.equals(image.getPixelBuffer(), otherImage.getPixelBuffer());
+    }
+
+    private static double getSignatureDifference(byte[] signature, byte[] otherSignature) {
+        long totalDifference = 0;
+        for (int i = 0; i < signature.length; i++)
+            totalDifference += Math.abs((signature[i] & 0xFF) - (otherSignature[i] & 0xFF));
+
+        return (double) totalDifference / signature.length;
+    }
+
+    private static String getImageDisplayName(VloImage image) {
+        return FileUtils.stripExtension(image.getParent().getFileDisplayName()) + "/" + image.getCollectionViewDisplayName();
+    }
+
+    @Getter
+    private static class VloImageFingerprint {
+        private final int dimensionKey;
+        private final long hash;
+        private final byte[] signature;
+
+        private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+        private static final long FNV_PRIME = 0x100000001B3L;
+
+        public VloImageFingerprint(VloImage image) {
+            int width = image.getPaddedWidth();
+            int height = image.getPaddedHeight();
+            int[] pixels = image.getPixelBuffer();
+            this.dimensionKey = (width << 16) | height;
+
+            // The CLUT is already applied to the pixel buffer, so two images using differently ordered CLUTs will still match.
+            long hash = FNV_OFFSET_BASIS;
+            hash = (hash ^ this.dimensionKey) * FNV_PRIME;
+            hash = (hash ^ image.getBitDepth().ordinal()) * FNV_PRIME;
+            for (int i = 0; i < pixels.length; i++)
+                hash = (hash ^ pixels[i]) * FNV_PRIME;
+            this.hash = hash;
+
+            // The signature is the average color of each cell in a grid placed over the image, used to find images which are almost the same.
+            long[] channelTotals = new long[SIGNATURE_GRID_SIZE * SIGNATURE_GRID_SIZE * SIGNATURE_CHANNELS];
+            int[] cellPixelCounts = new int[SIGNATURE_GRID_SIZE * SIGNATURE_GRID_SIZE];
+            for (int y = 0; y < height; y++) {
+                int cellRowIndex = ((y * SIGNATURE_GRID_SIZE) / height) * SIGNATURE_GRID_SIZE;
+                for (int x = 0; x < width; x++) {
+                    int cellIndex = cellRowIndex + ((x * SIGNATURE_GRID_SIZE) / width);
+                    int pixel = pixels[(y * width) + x];
+                    int channelIndex = cellIndex * SIGNATURE_CHANNELS;
+                    channelTotals[channelIndex] += (pixel >>> 24);
+                    channelTotals[channelIndex + 1] += (pixel >>> 16) & 0xFF;
+                    channelTotals[channelIndex + 2] += (pixel >>> 8) & 0xFF;
+                    channelTotals[channelIndex + 3] += pixel & 0xFF;
+                    cellPixelCounts[cellIndex]++;
+                }
+            }
+
+            this.signature = new byte[channelTotals.length];
+            for (int i = 0; i < channelTotals.length; i++) {
+                int pixelCount = cellPixelCounts[i / SIGNATURE_CHANNELS];
+                this.signature[i] = (byte) (pixelCount > 0 ? channelTotals[i] / pixelCount : 0);
+            }
+        }
+    }
+
+    /**
+     * Represents two images which are the same size, and look very similar.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class VloNearDuplicateImagePair {
+        private final VloImage imageA;
+        private final VloImage imageB;
+        private final double difference; // The average difference (0 - 255) between the signature channels of the two images.
+    }
+}
@@ -28,10 +28,8 @@ import net.highwayfrogs.editor.utils.Utils.ProblemResponse;
 import net.highwayfrogs.editor.utils.data.reader.DataReader;
 import net.highwayfrogs.editor.utils.data.writer.DataWriter;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.IOException;
 import java.util.*;
 import java.util.function.Consumer;
 
@@ -316,16 +314,8 @@ public class VloFile extends SCSharedGameFile {
      * Export all images in this VLO archive.
      */
     public void exportAllImages(File directory, int settings) {
-        try {
-            for (int i = 0; i < this.images.size(); i++) {
-                File output = new File(directory, i + ".png");
-                ImageIO.write(this.images.get(i).toBufferedImage(settings), "png", output);
-            }
-
-            getLogger().info("Exported %d image(s).", this.images.size());
-        } catch (IOException ex) {
-            getLogger().throwing(getClass().getSimpleName(), "exportAllImages", ex);
-        }
+        int exportedImages = VloBatchImageTransfer.exportImages(this, directory, settings, null);
+        getLogger().info("Exported %d image(s).", exportedImages);
     }
 
     @Override
@@ -364,38 +354,7 @@ public class VloFile extends SCSharedGameFile {
             if (selectedFolder == null)
                 return; // Cancelled.
 
-            int importedFiles = 0;
-            String[] imageExtensions = ImageIO.getReaderFileSuffixes();
-            for (File file : FileUtils.listFiles(selectedFolder)) {
-                String fullFileName = file.getName();
-                String name = FileUtils.stripExtension(fullFileName);
-
-                String extension = fullFileName.substring(name.length() + 1);
-                if (!Utils.contains(imageExtensions, extension)) {
-                    getLogger().info("Skipping '%s' because the extension '%s' was not supported.", fullFileName, extension);
-                    continue;
-                }
-
-                BufferedImage loadedImage;
-
-                try {
-                    loadedImage = ImageIO.read(file);
-                } catch (IOException ex) {
-                    Utils.handleError(getLogger(), ex, false, "Failed to load image file '%s'.", fullFileName);
-                    continue;
-                }
-
-                // Find image by name, and replace.
-                VloImage existingImage = getImageByName(name);
-                if (existingImage != null) {
-                    existingImage.replaceImage(loadedImage, null, -1, existingImage.testFlag(VloImage.FLAG_TRANSLUCENT), ProblemResponse.CREATE_POPUP);
-                    continue;
-                }
-
-                // If not a texture ID, then create a new image with that name.
-                addImage(name, loadedImage, VloPadding.DEFAULT, null, null, false);
-            }
-
+            int importedFiles = VloBatchImageTransfer.importImages(this, selectedFolder, null);
             getLogger().info("Imported %d images.", importedFiles);
             if (getGameInstance().getMainMenuController().getCurrentEditor() instanceof VloFileUIController)
                 ((VloFileUIController) getGameInstance().getMainMenuController().getCurrentEditor()).updateDisplay();
@@ -532,6 +491,7 @@ public class VloFile extends SCSharedGameFile {
 
         // Try to add to the VloTree.
         snapshot.tryAddImage(newImage, false);
+        markVloTreeNodeDirty();
 
         return newImage;
     }
@@ -595,9 +555,20 @@ public class VloFile extends SCSharedGameFile {
                 textureIdTracker.freeTextureId(image.getTextureId());
         }
 
+        markVloTreeNodeDirty();
         return true;
     }
 
+    /**
+     * Marks the VloTreeNode responsible for this file's texture positions as dirty, so they will be recalculated when the MWD is next saved.
+     */
+    public void markVloTreeNodeDirty() {
+        VloTree tree = getGameInstance().getVloTree();
+        VloTreeNode node = tree != null ? tree.getNode(this) : null;
+        if (node != null)
+            node.markDirty();
+    }
+
     /**
      * Returns true if FrogLord knows how to sort the VloFile to mimic the original sorting order.
      */
@@ -18,6 +18,7 @@ import net.highwayfrogs.editor.games.sony.SCGameType;
 import net.highwayfrogs.editor.games.sony.medievil.map.mesh.MediEvilMapPolygonSortMode;
 import net.highwayfrogs.editor.games.sony.medievil.map.misc.MediEvilMapFrictionLevel;
 import net.highwayfrogs.editor.games.sony.medievil.map.misc.MediEvilMapInteractionType;
+import net.highwayfrogs.editor.games.sony.shared.mwd.MWDFile;
 import net.highwayfrogs.editor.games.sony.shared.utils.SCAnalysisUtils;
 import net.highwayfrogs.editor.games.sony.shared.utils.SCAnalysisUtils.SCTextureUsage;
 import net.highwayfrogs.editor.gui.components.CollectionViewComponent.ICollectionViewEntry;
@@ -27,7 +28,6 @@ import net.highwayfrogs.editor.utils.Utils.ProblemResponse;
 import net.highwayfrogs.editor.utils.data.reader.DataReader;
 import net.highwayfrogs.editor.utils.data.writer.DataWriter;
 import net.highwayfrogs.editor.utils.image.ImageUtils;
-import net.highwayfrogs.editor.utils.image.quantization.octree.OctreeQuantizer;
 import net.highwayfrogs.editor.utils.logging.ILogger;
 import net.highwayfrogs.editor.utils.logging.InstanceLogger.AppendInfoLoggerWrapper;
 
@@ -93,7 +93,6 @@ public class VloImage extends SCSharedGameData implements Cloneable, ITextureSou
     private boolean expectedStpBlackBitPsx; // Pre-MediEvil II: Used to calculate the CLUT STP bit state.
 
     // Temporary data.
-    private final transient BufferedImage[] cachedImages = new BufferedImage[IMAGE_EXPORT_CACHE_SIZE];
     private transient int tempImageDataPointer = -1;
 
     public static final int MAX_IMAGE_DIMENSION = 256;
@@ -140,6 +139,7 @@ public class VloImage extends SCSharedGameData implements Cloneable, ITextureSou
     private static final byte IMAGE_ALPHA_REGULAR_STP_BIT_OPAQUE = (byte) 0xFF;
     private static final int COLOR_CLOSEST_TO_BLACK = 0xFF080000; // This value seems to have been used by Vorg in the place of true black when BLACK_IS_TRANSPARENT is set.
     private static final int COLOR_FULL_ALPHA = 0xFF000000;
+    private static final int MAX_DIRECT_COLOR_TABLE_COLORS = 1024; // Images without a CLUT may contain many unique colors, so only the first colors seen are remembered.
     private static final int COLOR_TRUE_BLACK = 0xFF000000;
 
     private static final int PADDING_TRANSPARENT_PIXEL_PC = 0xFF000000;
@@ -724,7 +724,10 @@ public class VloImage extends SCSharedGameData implements Cloneable, ITextureSou
     }
 
     private PSXClutColor getClutColor(int[] pixelBuffer, PSXClutColor tempColor, int pixelIndex) {
-        int rawColor = pixelBuffer[pixelIndex];
+        return getClutColor(pixelBuffer[pixelIndex], tempColor);
+    }
+
+    private PSXClutColor getClutColor(int rawColor, PSXClutColor tempColor) {
         PSXClutColor color = tempColor.fromRGB(rawColor, false);
         boolean stpBit = getExpectedStpBit(color);
 
@@ -754,7 +757,7 @@ public class VloImage extends SCSharedGameData implements Cloneable, ITextureSou
         // Colors of different alpha must not be merged together as it would break STP bits.
         int clutWidth = getPaletteWidth(this.bitDepth);
         if (clutWidth > 0)
-            OctreeQuantizer.quantizeImage(this.pixelBuffer, clutWidth, false);
+            getGameInstance().getImageQuantizer().quantizeImage(this.pixelBuffer, clutWidth, false);
             //this.pixelBuffer = MedianCutQuantizer.quantizeARGB8888Buffer(this.pixelBuffer, colorCount);
 
         if (tempColor == null)
@@ -1273,6 +1276,8 @@ public class VloImage extends SCSharedGameData implements Cloneable, ITextureSou
 
         if ((flag & (FLAG_TRANSLUCENT | FLAG_BLACK_IS_TRANSPARENT)) != 0)
             invalidateCache();
+        if ((flag & FLAG_BLACK_IS_TRANSPARENT) != 0 && !isPsxMode() && this.parent != null)
+            this.parent.markVloTreeNodeDirty(); // Controls which pages the image may be placed in.
 
         if (isPsxMode()) {
             // The flag behavior was tested using printStpTests(). See that function for details.
@@ -1463,6 +1468,11 @@ public class VloImage extends SCSharedGameData implements Cloneable, ITextureSou
             if (this.parent.isSortingOrderKnown() && this.parent.removeImageFromList(this))
                 this.parent.addImageToList(this);
         }
+
+        this.parent.markVloTreeNodeDirty();
+        MWDFile mwdFile = getGameInstance().getMainArchive();
+        if (mwdFile != null)
+            mwdFile.getDuplicateImageIndex().markImageDirty(this);
     }
 
     private int getFirstClutColor() {
@@ -1495,7 +1505,13 @@ public class VloImage extends SCSharedGameData implements Cloneable, ITextureSou
      * Invalidate the cached image.
      */
     public void invalidateCache() {
-        Arrays.fill(this.cachedImages, null);
+        VloImageCache imageCache = getImageCache();
+        if (imageCache != null)
+            imageCache.invalidate(this);
+    }
+
+    private VloImageCache getImageCache() {
+        return getGameInstance() != null ? getGameInstance().getImageCache() : null;
     }
 
     /**
@@ -1518,7 +1534,7 @@ public class VloImage extends SCSharedGameData implements Cloneable, ITextureSou
     private static final int IMAGE_EXPORT_FLAG_MASK = IMAGE_EXPORT_FLAG_ENABLE_TRANSPARENCY
             | IMAGE_EXPORT_FLAG_ENABLE_PSX_SEMI_TRANSPARENT
             | IMAGE_EXPORT_FLAG_INCLUDE_PADDING | IMAGE_EXPORT_FLAG_HIGHLIGHT_PADDING;
-    private static final int IMAGE_EXPORT_CACHE_SIZE = IMAGE_EXPORT_FLAG_MASK + 1;
+    static final int IMAGE_EXPORT_CACHE_SIZE = IMAGE_EXPORT_FLAG_MASK + 1;
 
     /**
      * Returns an integer with the settings specified for use when exporting an image.
@@ -1561,10 +1577,27 @@ public class VloImage extends SCSharedGameData implements Cloneable, ITextureSou
             settings &= ~IMAGE_EXPORT_FLAG_HIGHLIGHT_PADDING; // Prevent pointless combination.
 
         // Return cached image.
-        BufferedImage cachedImage = this.cachedImages[settings];
+        VloImageCache imageCache = getImageCache();
+        BufferedImage cachedImage = imageCache != null ? imageCache.get(this, settings) : null;
         if (cachedImage != null)
             return cachedImage;
 
+        BufferedImage image = createBufferedImage(settings, true);
+        if (imageCache != null)
+            imageCache.put(this, settings, image); // Cache the image.
+        return image;
+    }
+
+    /**
+     * Creates a new image with the given settings, without using the cache.
+     * @param settings the export settings to create the image with
+     * @param useColorTable if true, each unique color is converted only once using a VloPixelColorTable, instead of converting every pixel individually.
+     *                      The resulting image is identical either way, this exists so the two approaches can be compared.
+     * @return newImage
+     */
+    BufferedImage createBufferedImage(int settings, boolean useColorTable) {
+        boolean includePadding = (settings & IMAGE_EXPORT_FLAG_INCLUDE_PADDING) == IMAGE_EXPORT_FLAG_INCLUDE_PADDING;
+
         // Get information from padding.
         boolean enableTransparency = (settings & IMAGE_EXPORT_FLAG_ENABLE_TRANSPARENCY) == IMAGE_EXPORT_FLAG_ENABLE_TRANSPARENCY;
         boolean enablePsxSemiTransparent = (settings & IMAGE_EXPORT_FLAG_ENABLE_PSX_SEMI_TRANSPARENT) == IMAGE_EXPORT_FLAG_ENABLE_PSX_SEMI_TRANSPARENT;
@@ -1578,26 +1611,17 @@ public class VloImage extends SCSharedGameData implements Cloneable, ITextureSou
             image = getPaddedImageTemplate();
         }
 
-        int[] pixelArray = ImageUtils.getWritablePixelIntegerArray(image);
+        int[] pixelArray = ImageUtils.getWritablePixelIntegerArray(image); // This is the DataBufferInt backing the image, so pixels are written directly to the image.
+        int paletteWidth = this.clut != null ? getPaletteWidth(this.bitDepth) : -1;
+        int maxTableColors = paletteWidth > 0 ? paletteWidth * 2 : MAX_DIRECT_COLOR_TABLE_COLORS; // Each CLUT color may appear with its STP bit inverted.
         if (isPsxMode()) {
             PSXClutColor tempColor = new PSXClutColor();
             if (enablePsxSemiTransparent || enableTransparency) {
-                for (int i = 0; i < pixelArray.length; i++) {
-                    PSXClutColor clutColor = getClutColor(pixelArray, tempColor, i);
-
-                    byte alpha;
-                    if (enablePsxSemiTransparent) {
-                        alpha = PSXClutColor.getAlpha(clutColor.isFullBlack(), clutColor.isStp(), true, this.abr);
-                    } else {
-                        // Regular transparency, but also, use alpha 127 for stp inversions.
-                        if (clutColor.isStp() ^ getExpectedStpBit(clutColor)) {
-                            alpha = IMAGE_ALPHA_INVERTED_STP_BIT;
-                        } else {
-                            alpha = PSXClutColor.getAlpha(clutColor.isFullBlack(), clutColor.isStp(), false, null);
-                        }
-                    }
-
-                    pixelArray[i] = ColorUtils.setAlpha(pixelArray[i], alpha);
+                if (useColorTable) {
+                    VloPixelColorTable.convertPixels(pixelArray, maxTableColors, pixelColor -> getDisplayPixelColorPSX(pixelColor, tempColor, enablePsxSemiTransparent));
+                } else {
+                    for (int i = 0; i < pixelArray.length; i++)
+                        pixelArray[i] = getDisplayPixelColorPSX(pixelArray[i], tempColor, enablePsxSemiTransparent);
                 }
             } else {
                 // PSX version should use full alpha if transparency is disabled.
@@ -1609,9 +1633,14 @@ public class VloImage extends SCSharedGameData implements Cloneable, ITextureSou
             // Generate alpha based on ABR.
             // PC version needs full black to be set to zero.
             // Loaded PC images have 1 possible alpha value, 0xFF, so transparency is handled here, just like in-game.
-            if (enablePsxSemiTransparent || (enableTransparency && this.anyFullyBlackPixelPresentPC && testFlag(FLAG_BLACK_IS_TRANSPARENT)))
-                for (int i = 0; i < pixelArray.length; i++)
-                    pixelArray[i] = getDisplayPixelColorPC(pixelArray[i], enablePsxSemiTransparent);
+            if (enablePsxSemiTransparent || (enableTransparency && this.anyFullyBlackPixelPresentPC && testFlag(FLAG_BLACK_IS_TRANSPARENT))) {
+                if (useColorTable) {
+                    VloPixelColorTable.convertPixels(pixelArray, maxTableColors, pixelColor -> getDisplayPixelColorPC(pixelColor, enablePsxSemiTransparent));
+                } else {
+                    for (int i = 0; i < pixelArray.length; i++)
+                        pixelArray[i] = getDisplayPixelColorPC(pixelArray[i], enablePsxSemiTransparent);
+                }
+            }
         }
 
         // Padding highlight.
@@ -1641,10 +1670,27 @@ public class VloImage extends SCSharedGameData implements Cloneable, ITextureSou
             }
         }
 
-        this.cachedImages[settings] = image; // Cache the image.
         return image;
     }
 
+    private int getDisplayPixelColorPSX(int pixelColor, PSXClutColor tempColor, boolean enablePsxSemiTransparent) {
+        PSXClutColor clutColor = getClutColor(pixelColor, tempColor);
+
+        byte alpha;
+        if (enablePsxSemiTransparent) {
+            alpha = PSXClutColor.getAlpha(clutColor.isFullBlack(), clutColor.isStp(), true, this.abr);
+        } else {
+            // Regular transparency, but also, use alpha 127 for stp inversions.
+            if (clutColor.isStp() ^ getExpectedStpBit(clutColor)) {
+                alpha = IMAGE_ALPHA_INVERTED_STP_BIT;
+            } else {
+                alpha = PSXClutColor.getAlpha(clutColor.isFullBlack(), clutColor.isStp(), false, null);
+            }
+        }
+
+        return ColorUtils.setAlpha(pixelColor, alpha);
+    }
+
     private int getDisplayPixelColorPC(int pixelColor, boolean enablePsxSemiTransparent) {
         boolean fullBlack = ((pixelColor & PSXClutColor.ARGB8888_TO5BIT_COLOR_MASK) == 0);
         byte newAlpha = PSXClutColor.getAlpha(fullBlack, !fullBlack, enablePsxSemiTransparent, this.abr);
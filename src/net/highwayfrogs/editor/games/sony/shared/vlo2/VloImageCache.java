@@ -0,0 +1,191 @@
+package net.highwayfrogs.editor.games.sony.shared.vlo2;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import net.highwayfrogs.editor.Constants;
+import net.highwayfrogs.editor.utils.DataSizeUnit;
+
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caches the images created by VloImage.toBufferedImage(), shared between every VloImage in a game instance.
+ * Each game instance owns its own cache, so the cached images are released together with the instance.
+ * The cache is limited by the total number of pixel bytes held, and the least recently used images are evicted once the limit is reached.
+ * This is safe to use from multiple threads.
+ * Created by Kneesnap on 10/17/2026.
+ */
+public class VloImageCache {
+    @Getter private final long maxBytes;
+    private final LinkedHashMap<VloImageCacheKey, BufferedImage> cachedImages = new LinkedHashMap<>(16, .75F, true);
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private long cachedBytes;
+
+    public static final long DEFAULT_MAX_BYTES = 96 * DataSizeUnit.MEGABYTE.getIncrement();
+
+    public VloImageCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    public VloImageCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets the cached image for the given image and export settings.
+     * @param image the image to get the cached image for
+     * @param settings the export settings used to create the image
+     * @return cachedImage, or null if it is not cached
+     */
+    public BufferedImage get(VloImage image, int settings) {
+        BufferedImage cachedImage;
+        synchronized (this.cachedImages) {
+            cachedImage = this.cachedImages.get(new VloImageCacheKey(image, settings));
+        }
+
+        if (cachedImage != null) {
+            this.hits.incrementAndGet();
+        } else {
+            this.misses.incrementAndGet();
+        }
+
+        return cachedImage;
+    }
+
+    /**
+     * Adds an image to the cache, evicting the least recently used images if the cache is full.
+     * @param image the image which the cached image was created from
+     * @param settings the export settings used to create the image
+     * @param bufferedImage the image to cache
+     */
+    public void put(VloImage image, int settings, BufferedImage bufferedImage) {
+        long imageBytes = getImageBytes(bufferedImage);
+        if (imageBytes > this.maxBytes)
+            return;
+
+        synchronized (this.cachedImages) {
+            BufferedImage oldImage = this.cachedImages.put(new VloImageCacheKey(image, settings), bufferedImage);
+            if (oldImage != null)
+                this.cachedBytes -= getImageBytes(oldImage);
+            this.cachedBytes += imageBytes;
+
+            // Evict least recently used images.
+            Iterator<BufferedImage> iterator = this.cachedImages.values().iterator();
+            while (this.cachedBytes > this.maxBytes && iterator.hasNext()) {
+                this.cachedBytes -= getImageBytes(iterator.next());
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all cached images for the given image, for example when its pixels or palette have changed.
+     * @param image the image to remove cached images for
+     */
+    public void invalidate(VloImage image) {
+        synchronized (this.cachedImages) {
+            if (this.cachedImages.isEmpty())
+                return;
+
+            for (int settings = 0; settings < VloImage.IMAGE_EXPORT_CACHE_SIZE; settings++) {
+                BufferedImage oldImage = this.cachedImages.remove(new VloImageCacheKey(image, settings));
+                if (oldImage != null)
+                    this.cachedBytes -= getImageBytes(oldImage);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of lookups which found a cached image.
+     */
+    public int getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Gets the number of lookups which did not find a cached image.
+     */
+    public int getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Gets the fraction of lookups which found a cached image, between 0 and 1.
+     */
+    public double getHitRate() {
+        int hits = getHits();
+        int lookups = hits + getMisses();
+        return lookups > 0 ? (double) hits / lookups : 0;
+    }
+
+    /**
+     * Gets the number of pixel bytes held by the images currently in the cache.
+     */
+    public long getCachedBytes() {
+        synchronized (this.cachedImages) {
+            return this.cachedBytes;
+        }
+    }
+
+    /**
+     * Gets the number of images currently in the cache.
+     */
+    public int getCachedImageCount() {
+        synchronized (this.cachedImages) {
+            return this.cachedImages.size();
+        }
+    }
+
+    /**
+     * Resets the hit/miss counters.
+     */
+    public void resetStatistics() {
+        this.hits.set(0);
+        this.misses.set(0);
+    }
+
+    /**
+     * Gets a summary of the cache statistics, for display in logs.
+     */
+    public String getStatisticsString() {
+        return String.format("VloImage Cache: %d hit(s), %d miss(es) (%.1f%% hit rate), %d image(s) using %s of %s.",
+                getHits(), getMisses(), getHitRate() * 100, getCachedImageCount(), DataSizeUnit.formatSize(getCachedBytes()), DataSizeUnit.formatSize(this.maxBytes));
+    }
+
+    /**
+     * Removes all cached images.
+     */
+    public void clear() {
+        synchronized (this.cachedImages) {
+            this.cachedImages.clear();
+            this.cachedBytes = 0;
+        }
+    }
+
+    private static long getImageBytes(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * Constants.INTEGER_SIZE;
+    }
+
+    @RequiredArgsConstructor
+    private static final class VloImageCacheKey {
+        private final VloImage image;
+        private final int settings;
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof VloImageCacheKey))
+                return false;
+
+            VloImageCacheKey otherKey = (VloImageCacheKey) other;
+            return this.image == otherKey.image && this.settings == otherKey.settings;
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * System.identityHashCode(this.image)) + this.settings;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package net.highwayfrogs.editor.games.sony.shared.vlo2;
+
+import net.highwayfrogs.editor.games.sony.SCGameInstance;
+import net.highwayfrogs.editor.games.sony.SCGameType;
+import net.highwayfrogs.editor.system.Config;
+import net.highwayfrogs.editor.utils.image.ImageUtils;
+import net.highwayfrogs.editor.utils.logging.ILogger;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares the speed of converting every image in a list of VLO files to BufferedImages, converting every pixel individually vs using a VloPixelColorTable.
+ * Usage: VloImageConversionBenchmark <game type> <version config name> <executable file> <mwd file>
+ * The game is loaded without opening any UI, and every VLO file in the MWD is converted.
+ * Every export setting combination is tested, and the images created by both approaches are verified to be identical.
+ * The VloImageCache is bypassed, so every image is converted each round.
+ * Created by Kneesnap on 10/17/2026.
+ */
+public class VloImageConversionBenchmark {
+    private static final int WARMUP_ROUNDS = 1;
+    private static final int TIMED_ROUNDS = 3;
+
+    public static void main(String[] args) {
+        if (args.length != 4) {
+            System.out.println("Usage: VloImageConversionBenchmark <game type> <version config name> <executable file> <mwd file>");
+            return;
+        }
+
+        SCGameInstance instance = SCGameType.valueOf(args[0]).createGameInstance();
+        instance.loadGame(args[1], new Config("VloImageConversionBenchmark"), new File(args[3]), new File(args[2]), null);
+        run(instance.getLogger(), instance.getMainArchive().getAllFiles(VloFile.class));
+        System.exit(0); // The async task timer in Utils would otherwise keep the JVM alive.
+    }
+
+    /**
+     * Runs the benchmark, logging the results.
+     * @param logger the logger to write the results to
+     * @param vloFiles the vlo files to convert the images from
+     */
+    public static void run(ILogger logger, List<VloFile> vloFiles) {
+        int imageCount = 0;
+        long pixelCount = 0;
+        for (int i = 0; i < vloFiles.size(); i++) {
+            List<VloImage> images = vloFiles.get(i).getImages();
+            imageCount += images.size();
+            for (int j = 0; j < images.size(); j++)
+                pixelCount += (long) images.get(j).getPaddedWidth() * images.get(j).getPaddedHeight();
+        }
+
+        logger.info("Benchmarking image conversion for %d image(s) (%d pixels) across %d VLO file(s).", imageCount, pixelCount, vloFiles.size());
+        if (imageCount == 0)
+            return;
+
+        long totalPixelTimeNanos = 0;
+        long totalTableTimeNanos = 0;
+        for (int settings = 0; settings < VloImage.IMAGE_EXPORT_CACHE_SIZE; settings++) {
+            if ((settings & VloImage.IMAGE_EXPORT_FLAG_HIGHLIGHT_PADDING) == VloImage.IMAGE_EXPORT_FLAG_HIGHLIGHT_PADDING
+                    && (settings & VloImage.IMAGE_EXPORT_FLAG_INCLUDE_PADDING) != VloImage.IMAGE_EXPORT_FLAG_INCLUDE_PADDING)
+                continue; // toBufferedImage() never uses this combination.
+
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                convertAllImages(vloFiles, settings, false);
+                convertAllImages(vloFiles, settings, true);
+            }
+
+            long pixelTimeNanos = 0;
+            long tableTimeNanos = 0;
+            for (int i = 0; i < TIMED_ROUNDS; i++) {
+                pixelTimeNanos += convertAllImages(vloFiles, settings, false);
+                tableTimeNanos += convertAllImages(vloFiles, settings, true);
+            }
+
+            int mismatches = countMismatchedImages(vloFiles, settings);
+            totalPixelTimeNanos += pixelTimeNanos;
+            totalTableTimeNanos += tableTimeNanos;
+            logger.info("Settings %2d: Per-Pixel: %8.2f ms, Color Table: %8.2f ms (%.2fx), Mismatched Images: %d",
+                    settings, pixelTimeNanos / 1000000D / TIMED_ROUNDS, tableTimeNanos / 1000000D / TIMED_ROUNDS,
+                    tableTimeNanos > 0 ? (double) pixelTimeNanos / tableTimeNanos : 0D, mismatches);
+        }
+
+        logger.info("Total: Per-Pixel: %.2f ms, Color Table: %.2f ms (%.2fx)",
+                totalPixelTimeNanos / 1000000D / TIMED_ROUNDS, totalTableTimeNanos / 1000000D / TIMED_ROUNDS,
+                totalTableTimeNanos > 0 ? (double) totalPixelTimeNanos / totalTableTimeNanos : 0D);
+    }
+
+    private static long convertAllImages(List<VloFile> vloFiles, int settings, boolean useColorTable) {
+        long startTime = System.nanoTime();
+        for (int i = 0; i < vloFiles.size(); i++) {
+            List<VloImage> images = vloFiles.get(i).getImages();
+            for (int j = 0; j < images.size(); j++)
+                images.get(j).createBufferedImage(settings, useColorTable);
+        }
+
+        return System.nanoTime() - startTime;
+    }
+
+    private static int countMismatchedImages(List<VloFile> vloFiles, int settings) {
+        int mismatches = 0;
+        for (int i = 0; i < vloFiles.size(); i++) {
+            List<VloImage> images = vloFiles.get(i).getImages();
+            for (int j = 0; j < images.size(); j++) {
+                BufferedImage pixelImage = images.get(j).createBufferedImage(settings, false);
+                BufferedImage tableImage = images.get(j).createBufferedImage(settings, true);
+                if (!Arrays.equals(ImageUtils.getWritablePixelIntegerArray(pixelImage), ImageUtils.getWritablePixelIntegerArray(tableImage)))
+                    mismatches++;
+            }
+        }
+
+        return mismatches;
+    }
+}
@@ -0,0 +1,75 @@
+package net.highwayfrogs.editor.games.sony.shared.vlo2;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A lookup table used to convert the colors of an image's pixels, where each unique color is only converted once.
+ * VloImages which use a CLUT only contain as many unique colors as their CLUT (plus STP bit variations), so most pixels become a table lookup.
+ * Created by Kneesnap on 10/17/2026.
+ */
+final class VloPixelColorTable {
+    private final int[] sourceColors;
+    private final int[] convertedColors;
+    private final boolean[] usedSlots;
+    private final int hashShift;
+    private final int maxColors;
+    private int colorCount;
+
+    private static final int HASH_MULTIPLIER = 0x9E3779B9; // Spreads similar colors across the table.
+
+    private VloPixelColorTable(int maxColors) {
+        int capacity = Integer.highestOneBit(Math.max(2, maxColors) * 2 - 1) << 1; // At least twice as many slots as colors, so probing stays short, and there is always an empty slot.
+        this.sourceColors = new int[capacity];
+        this.convertedColors = new int[capacity];
+        this.usedSlots = new boolean[capacity];
+        this.hashShift = Integer.SIZE - Integer.numberOfTrailingZeros(capacity);
+        this.maxColors = maxColors;
+    }
+
+    /**
+     * Converts each pixel in the array to a new color, calling the converter once per unique color.
+     * If the image has more unique colors than maxColors, the colors beyond the limit are converted every time they are seen.
+     * @param pixels the pixels to convert in-place
+     * @param maxColors the maximum number of unique colors to remember
+     * @param converter the function converting a single pixel color, which must only depend on the color provided
+     */
+    static void convertPixels(int[] pixels, int maxColors, IntUnaryOperator converter) {
+        if (pixels.length == 0)
+            return;
+
+        VloPixelColorTable table = new VloPixelColorTable(maxColors);
+        int lastSourceColor = pixels[0];
+        int lastConvertedColor = table.convert(lastSourceColor, converter);
+        pixels[0] = lastConvertedColor;
+        for (int i = 1; i < pixels.length; i++) {
+            int sourceColor = pixels[i];
+            if (sourceColor != lastSourceColor) { // Neighboring pixels are frequently the same color.
+                lastSourceColor = sourceColor;
+                lastConvertedColor = table.convert(sourceColor, converter);
+            }
+
+            pixels[i] = lastConvertedColor;
+        }
+    }
+
+    private int convert(int sourceColor, IntUnaryOperator converter) {
+        int mask = this.sourceColors.length - 1;
+        int slot = (sourceColor * HASH_MULTIPLIER) >>> this.hashShift;
+        while (this.usedSlots[slot]) {
+            if (this.sourceColors[slot] == sourceColor)
+                return this.convertedColors[slot];
+
+            slot = (slot + 1) & mask;
+        }
+
+        int convertedColor = converter.applyAsInt(sourceColor);
+        if (this.colorCount < this.maxColors) {
+            this.usedSlots[slot] = true;
+            this.sourceColors[slot] = sourceColor;
+            this.convertedColors[slot] = convertedColor;
+            this.colorCount++;
+        }
+
+        return convertedColor;
+    }
+}
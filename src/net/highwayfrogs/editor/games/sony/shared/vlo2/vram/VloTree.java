@@ -21,7 +21,7 @@ public final class VloTree extends VloTreeNode {
     @Getter private final int transparentPages;
     final Map<MWIResourceEntry, VloFileTreeData> vloFileDataByResourceEntry = new HashMap<>(); // Do not use the VloFile directly as the key, just in-case it gets imported.
     final Map<String, VloTreeNode> nodesByName = new HashMap<>();
-    final Set<VloTreeNode> generatedNodes = new HashSet<>();
+    final Set<VloTreeNode> generatedNodes = Collections.synchronizedSet(new HashSet<>()); // Nodes are built in parallel.
 
     VloTree(SCGameInstance instance, String name, VloTreeNodeFillMethod fillMethod, int pages, int reservedPages, int extraPages, int originalPages, int clutPages, int transparentPages) {
         super(instance, null, name, fillMethod, pages, reservedPages, extraPages, originalPages, clutPages, Collections.emptyList());
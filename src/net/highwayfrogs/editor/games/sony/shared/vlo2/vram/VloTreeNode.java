@@ -11,14 +11,13 @@ import net.highwayfrogs.editor.gui.components.ProgressBarComponent;
 import net.highwayfrogs.editor.system.Config;
 import net.highwayfrogs.editor.system.Config.ConfigValueNode;
 import net.highwayfrogs.editor.utils.StringUtils;
+import net.highwayfrogs.editor.utils.ThreadUtils;
 import net.highwayfrogs.editor.utils.logging.ILogger;
 import net.highwayfrogs.editor.utils.objects.CountMap;
 import net.highwayfrogs.editor.utils.objects.StringNode;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.Future;
 
 /**
  * Represents a node forming a tree, used to group which VLO files can be used concurrently, used to build VLO file texture positions.
@@ -41,7 +40,9 @@ public class VloTreeNode {
     @Getter private final int usablePages;
     @Getter private final int originalPages;
     @Getter private final int clutPages;
+    @Getter private boolean dirty = true; // True until the texture positions have been recalculated, and nothing has changed since.
 
+    private static final boolean PARALLEL_BUILDING_ENABLED = true; // Disable to build nodes one at a time, which can be easier to debug.
     public static final int MAX_PAGE = 32;
     public static final String CONFIG_KEY_PAGES = "pages";
     public static final String CONFIG_KEY_RESERVED_PAGES = "reservedPages";
@@ -99,6 +100,14 @@ public class VloTreeNode {
         return this.immutableChildren;
     }
 
+    /**
+     * Gets the nodes whose VLO files are placed in VRAM alongside the VLO files of this node.
+     * @return includedNodes
+     */
+    public List<VloTreeNode> getIncludedNodes() {
+        return Collections.unmodifiableList(this.includedNodes);
+    }
+
     /**
      * Test if the provided page ID is reserved.
      * NOTE: This will NOT include if parent nodes reserve the page.
@@ -126,6 +135,43 @@ public class VloTreeNode {
         recursivelyBuildTree(progressBar, false);
     }
 
+    /**
+     * Rebuilds the texture positions only for nodes which are dirty, or depend upon a node which will be rebuilt.
+     * A node depends on its parent node and on any nodes it includes, since its textures are placed around theirs.
+     * The texture positions of all other nodes are kept, and are identical to what rebuildRecursive() would calculate, as nothing they are placed from has changed.
+     * @param progressBar the progress bar to display rebuild status with (Optional)
+     * @return the number of nodes which were rebuilt
+     */
+    public int rebuildDirtyRecursive(ProgressBarComponent progressBar) {
+        List<VloTreeNode> queue = new ArrayList<>();
+        queue.add(this);
+        addChildNodesToQueue(queue, this);
+
+        // The queue is ordered such that every node is seen after its parent (and after the nodes it includes).
+        Set<VloTreeNode> rebuiltNodes = new HashSet<>();
+        List<VloTreeNode> dirtyQueue = new ArrayList<>();
+        for (int i = 0; i < queue.size(); i++) {
+            VloTreeNode node = queue.get(i);
+            if (node.dirty || (node != this && rebuiltNodes.contains(node.parent)) || !Collections.disjoint(rebuiltNodes, node.includedNodes)) {
+                rebuiltNodes.add(node);
+                dirtyQueue.add(node);
+            }
+        }
+
+        if (!dirtyQueue.isEmpty())
+            recursivelyBuildTree(getTree(), dirtyQueue, progressBar, false);
+
+        return dirtyQueue.size();
+    }
+
+    /**
+     * Marks this node as dirty, so the texture positions for its vlo files (and the nodes which depend on it) will be recalculated by the next call to rebuildDirtyRecursive().
+     * This should be called whenever an image is added, removed, or changed in a way which could impact its position.
+     */
+    public void markDirty() {
+        this.dirty = true;
+    }
+
     private void recursivelyBuildTree(ProgressBarComponent progressBar, boolean loadFromGameData) {
         // Get a queue of all the nodes.
         List<VloTreeNode> queue = new ArrayList<>();
@@ -186,6 +232,9 @@ public class VloTreeNode {
             }
         }
 
+        // Texture positions read from game data have not been calculated by FrogLord, so they are not what a rebuild would produce.
+        this.dirty = loadFromGameData;
+
         // Building child nodes must only occur AFTER Vlos are setup, so they will have access to the dirty snapshot.
         // This is expected to be managed by the calling function.
     }
@@ -230,15 +279,66 @@ public class VloTreeNode {
                 tree = node.getTree();
 
             tree.generatedNodes.remove(node);
+            node.dirty = true; // If building fails part-way through, the nodes which were not built must be rebuilt later.
         }
 
         // Builds the nodes in queue order. (NOTE: Respect the queue order/ensure parents are built before child nodes)
-        for (int i = 0; i < queue.size(); i++) {
-            VloTreeNode node = queue.get(i);
-            node.buildNode(loadFromGameData);
-            tree.generatedNodes.add(node); // Do this upon completion, so no child node can reference this by name.
-            if (progressBar != null)
-                progressBar.addCompletedProgress(1);
+        if (!PARALLEL_BUILDING_ENABLED) {
+            for (int i = 0; i < queue.size(); i++)
+                buildNode(tree, queue.get(i), progressBar, loadFromGameData);
+            return;
+        }
+
+        // Nodes are built in waves, where each wave contains every node whose parent and included nodes have already been built.
+        // A node only reads from the snapshot of its parent and the textures of its included nodes, so nodes in the same wave can't see each other, and the result is the same as building them in queue order.
+        List<VloTreeNode> remainingNodes = new ArrayList<>(queue);
+        Set<VloTreeNode> unbuiltNodes = new HashSet<>(queue);
+        List<VloTreeNode> readyNodes = new ArrayList<>();
+        List<Future<?>> buildTasks = new ArrayList<>();
+        while (!remainingNodes.isEmpty()) {
+            readyNodes.clear();
+            for (int i = 0; i < remainingNodes.size(); i++) {
+                VloTreeNode node = remainingNodes.get(i);
+                if (!unbuiltNodes.contains(node.parent) && Collections.disjoint(unbuiltNodes, node.includedNodes))
+                    readyNodes.add(node);
+            }
+
+            if (readyNodes.isEmpty())
+                throw new IllegalStateException("The remaining " + remainingNodes.size() + " VloTreeNode(s) include each other, so none of them can be built first.");
+
+            remainingNodes.removeAll(readyNodes);
+            if (readyNodes.size() == 1) {
+                buildNode(tree, readyNodes.get(0), progressBar, loadFromGameData);
+            } else {
+                final VloTree finalTree = tree;
+                try {
+                    for (int i = 0; i < readyNodes.size(); i++) {
+                        VloTreeNode node = readyNodes.get(i);
+                        buildTasks.add(ThreadUtils.submitWorkerTask(() -> buildNode(finalTree, node, progressBar, loadFromGameData)));
+                    }
+
+                    for (int i = 0; i < buildTasks.size(); i++)
+                        ThreadUtils.waitForTask(buildTasks.get(i));
+                } finally {
+                    // Nodes must not continue to be built in the background if one of them failed.
+                    for (int i = 0; i < buildTasks.size(); i++)
+                        ThreadUtils.waitForTaskToFinish(buildTasks.get(i));
+                    buildTasks.clear();
+                }
+            }
+
+            unbuiltNodes.removeAll(readyNodes);
+        }
+    }
+
+    private static void buildNode(VloTree tree, VloTreeNode node, ProgressBarComponent progressBar, boolean loadFromGameData) {
+        long startTime = System.nanoTime();
+        node.buildNode(loadFromGameData);
+        tree.generatedNodes.add(node); // Do this upon completion, so no child node can reference this by name.
+        if (progressBar != null) {
+            long timeTakenMs = (System.nanoTime() - startTime) / 1000000L;
+            progressBar.update(-1, -1, "Vlo Texture Placement (Placed '" + node.getName() + "' in " + timeTakenMs + " ms)");
+            progressBar.addCompletedProgress(1);
         }
     }
 
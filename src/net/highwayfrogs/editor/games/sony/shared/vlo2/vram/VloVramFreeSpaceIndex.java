@@ -0,0 +1,195 @@
+package net.highwayfrogs.editor.games.sony.shared.vlo2.vram;
+
+import java.util.Arrays;
+
+/**
+ * Tracks which parts of a VloVramSnapshot are occupied, so texture placement can search for space a word (64 positions) at a time.
+ * For each row of each page, the length of the largest free span is also tracked, so rows which can't fit an entry are rejected without being searched.
+ * Entries are never removed from a snapshot (only cleared entirely), so the index only ever needs to mark positions as occupied.
+ * Created by Kneesnap on 10/17/2026.
+ */
+final class VloVramFreeSpaceIndex {
+    private final int width;
+    private final int pageWidth;
+    private final long[][] rowBits; // [y][x / 64], a bit is set if the position is occupied.
+    private final long[][] columnBits; // [x][y / 64], a bit is set if the position is occupied.
+    private final int[][] largestFreeSpans; // [y][pageGridX], the largest free span which starts at or passes through the page, measured from the page start if the span starts in an earlier page.
+
+    private static final int WORD_SHIFT = 6;
+    private static final int WORD_MASK = Long.SIZE - 1;
+
+    VloVramFreeSpaceIndex(int width, int height, int pageWidth) {
+        this.width = width;
+        this.pageWidth = pageWidth;
+        this.rowBits = new long[height][getWordCount(width)];
+        this.columnBits = new long[width][getWordCount(height)];
+        this.largestFreeSpans = new int[height][(width + pageWidth - 1) / pageWidth];
+        clear();
+    }
+
+    /**
+     * Marks every position as free.
+     */
+    void clear() {
+        for (int i = 0; i < this.rowBits.length; i++)
+            Arrays.fill(this.rowBits[i], 0L);
+        for (int i = 0; i < this.columnBits.length; i++)
+            Arrays.fill(this.columnBits[i], 0L);
+        for (int y = 0; y < this.largestFreeSpans.length; y++) {
+            int[] spans = this.largestFreeSpans[y];
+            for (int pageX = 0; pageX < spans.length; pageX++)
+                spans[pageX] = this.width - (pageX * this.pageWidth);
+        }
+    }
+
+    /**
+     * Copy the contents of this index to another index of the same size.
+     * @param otherIndex the index to copy to
+     */
+    void copyTo(VloVramFreeSpaceIndex otherIndex) {
+        for (int i = 0; i < this.rowBits.length; i++)
+            System.arraycopy(this.rowBits[i], 0, otherIndex.rowBits[i], 0, this.rowBits[i].length);
+        for (int i = 0; i < this.columnBits.length; i++)
+            System.arraycopy(this.columnBits[i], 0, otherIndex.columnBits[i], 0, this.columnBits[i].length);
+        for (int i = 0; i < this.largestFreeSpans.length; i++)
+            System.arraycopy(this.largestFreeSpans[i], 0, otherIndex.largestFreeSpans[i], 0, this.largestFreeSpans[i].length);
+    }
+
+    /**
+     * Marks the area as occupied.
+     * @param x the x position of the area
+     * @param y the y position of the area
+     * @param areaWidth the width of the area
+     * @param areaHeight the height of the area
+     */
+    void markOccupied(int x, int y, int areaWidth, int areaHeight) {
+        if (areaWidth <= 0 || areaHeight <= 0)
+            return;
+
+        for (int row = y; row < y + areaHeight; row++) {
+            setBits(this.rowBits[row], x, x + areaWidth);
+            updateLargestFreeSpans(row);
+        }
+
+        for (int column = x; column < x + areaWidth; column++)
+            setBits(this.columnBits[column], y, y + areaHeight);
+    }
+
+    /**
+     * Test if the row contains a free span of at least the given length, which starts in (or passes through) the given page.
+     * If this returns false, there is no position in the page on that row which an entry of the given width could be placed.
+     * @param y the row to test
+     * @param pageGridX the page grid x coordinate of the page to test
+     * @param length the minimum span length
+     * @return true iff such a free span exists
+     */
+    boolean hasFreeSpan(int y, int pageGridX, int length) {
+        return this.largestFreeSpans[y][pageGridX] >= length;
+    }
+
+    /**
+     * Finds the right-most occupied position on the row, within the given range.
+     * @param y the row to search
+     * @param minX the minimum x position to search (inclusive)
+     * @param maxX the maximum x position to search (inclusive)
+     * @return occupiedX, or -1 if every position in the range is free
+     */
+    int findLastOccupiedX(int y, int minX, int maxX) {
+        return findLastSetBit(this.rowBits[y], minX, maxX);
+    }
+
+    /**
+     * Finds the top-most occupied position in the column, within the given range.
+     * @param x the column to search
+     * @param minY the minimum y position to search (inclusive)
+     * @param maxY the maximum y position to search (inclusive)
+     * @return occupiedY, or -1 if every position in the range is free
+     */
+    int findFirstOccupiedY(int x, int minY, int maxY) {
+        return findNextBit(this.columnBits[x], minY, maxY, true);
+    }
+
+    private void updateLargestFreeSpans(int y) {
+        long[] row = this.rowBits[y];
+        int[] spans = this.largestFreeSpans[y];
+        Arrays.fill(spans, 0);
+
+        int spanStart = findNextBit(row, 0, this.width - 1, false);
+        while (spanStart >= 0) {
+            int spanEnd = findNextBit(row, spanStart, this.width - 1, true);
+            if (spanEnd < 0)
+                spanEnd = this.width;
+
+            for (int pageX = spanStart / this.pageWidth; pageX <= (spanEnd - 1) / this.pageWidth; pageX++) {
+                int spanLength = spanEnd - Math.max(spanStart, pageX * this.pageWidth);
+                if (spanLength > spans[pageX])
+                    spans[pageX] = spanLength;
+            }
+
+            spanStart = spanEnd < this.width ? findNextBit(row, spanEnd, this.width - 1, false) : -1;
+        }
+    }
+
+    private static int getWordCount(int bitCount) {
+        return (bitCount + WORD_MASK) >> WORD_SHIFT;
+    }
+
+    private static void setBits(long[] bits, int fromIndex, int toIndex) {
+        if (fromIndex >= toIndex)
+            return;
+
+        int startWord = fromIndex >> WORD_SHIFT;
+        int endWord = (toIndex - 1) >> WORD_SHIFT;
+        long firstWordMask = -1L << (fromIndex & WORD_MASK);
+        long lastWordMask = -1L >>> (WORD_MASK - ((toIndex - 1) & WORD_MASK));
+        if (startWord == endWord) {
+            bits[startWord] |= firstWordMask & lastWordMask;
+            return;
+        }
+
+        bits[startWord] |= firstWordMask;
+        for (int i = startWord + 1; i < endWord; i++)
+            bits[i] = -1L;
+        bits[endWord] |= lastWordMask;
+    }
+
+    private static int findNextBit(long[] bits, int minIndex, int maxIndex, boolean set) {
+        if (minIndex > maxIndex)
+            return -1;
+
+        int wordIndex = minIndex >> WORD_SHIFT;
+        int lastWordIndex = maxIndex >> WORD_SHIFT;
+        long word = (set ? bits[wordIndex] : ~bits[wordIndex]) & (-1L << (minIndex & WORD_MASK));
+        while (true) {
+            if (word != 0) {
+                int foundIndex = (wordIndex << WORD_SHIFT) + Long.numberOfTrailingZeros(word);
+                return foundIndex <= maxIndex ? foundIndex : -1;
+            }
+
+            if (++wordIndex > lastWordIndex)
+                return -1;
+
+            word = set ? bits[wordIndex] : ~bits[wordIndex];
+        }
+    }
+
+    private static int findLastSetBit(long[] bits, int minIndex, int maxIndex) {
+        if (minIndex > maxIndex)
+            return -1;
+
+        int wordIndex = maxIndex >> WORD_SHIFT;
+        int firstWordIndex = minIndex >> WORD_SHIFT;
+        long word = bits[wordIndex] & (-1L >>> (WORD_MASK - (maxIndex & WORD_MASK)));
+        while (true) {
+            if (word != 0) {
+                int foundIndex = (wordIndex << WORD_SHIFT) + WORD_MASK - Long.numberOfLeadingZeros(word);
+                return foundIndex >= minIndex ? foundIndex : -1;
+            }
+
+            if (--wordIndex < firstWordIndex)
+                return -1;
+
+            word = bits[wordIndex];
+        }
+    }
+}
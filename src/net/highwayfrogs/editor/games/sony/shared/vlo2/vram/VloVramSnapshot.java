@@ -28,6 +28,7 @@ public class VloVramSnapshot extends SCSharedGameObject {
     private final int height;
     private final VloVramEntry[][] cachedTextureLocations;
     private final int[][] cachedTextureStartXPositions;
+    private final VloVramFreeSpaceIndex freeSpaceIndex;
     private final List<VloVramEntry> entries = new ArrayList<>();
 
     public static final int PSX_VRAM_BOTTOM_PAGE_BIT_MASK = 0xFFFF0000; // Bits 16-31 represent pages on the bottom of Vram on PSX, which is where Cluts are preferred to be placed.
@@ -44,6 +45,7 @@ public class VloVramSnapshot extends SCSharedGameObject {
         int pageHeight = VloUtils.getPageHeight(psxMode);
         this.cachedTextureStartXPositions = new int[pageCount][pageHeight];
         this.cachedTextureLocations = new VloVramEntry[this.height][this.width];
+        this.freeSpaceIndex = new VloVramFreeSpaceIndex(this.width, this.height, VloUtils.getUnitPageWidth(psxMode));
     }
 
     /**
@@ -54,6 +56,7 @@ public class VloVramSnapshot extends SCSharedGameObject {
             Arrays.fill(this.cachedTextureStartXPositions[i], 0);
         for (int i = 0; i < this.cachedTextureLocations.length; i++)
             Arrays.fill(this.cachedTextureLocations[i], null);
+        this.freeSpaceIndex.clear();
         this.entries.clear();
     }
 
@@ -69,6 +72,7 @@ public class VloVramSnapshot extends SCSharedGameObject {
             System.arraycopy(this.cachedTextureStartXPositions[i], 0, otherSnapshot.cachedTextureStartXPositions[i], 0, this.cachedTextureStartXPositions[i].length);
         for (int i = 0; i < this.cachedTextureLocations.length; i++)
             System.arraycopy(this.cachedTextureLocations[i], 0, otherSnapshot.cachedTextureLocations[i], 0, this.cachedTextureLocations[i].length);
+        this.freeSpaceIndex.copyTo(otherSnapshot.freeSpaceIndex);
         otherSnapshot.entries.clear();
         otherSnapshot.entries.addAll(this.entries);
     }
@@ -349,6 +353,10 @@ public class VloVramSnapshot extends SCSharedGameObject {
         if (endY > this.height)
             return false;
 
+        // Every position on the top and bottom rows of the entry is checked below, so if either row lacks a long enough free span, the entry can't fit on this line.
+        if (!this.freeSpaceIndex.hasFreeSpan(y, startPageGridX, entryWidth) || !this.freeSpaceIndex.hasFreeSpan(endY - 1, startPageGridX, entryWidth))
+            return false;
+
         x = fixClutX(entry, x);
         while (maxPageX > x && this.width >= x + entryWidth) {
             int endX = x + entryWidth;
@@ -390,17 +398,32 @@ public class VloVramSnapshot extends SCSharedGameObject {
             // Because of this, ALL rectangles which overlap with the current test position MUST cross one of the edges of the test rectangle.
             // Therefore, all we need to do is check if the borders overlap. This takes the amount of checks down from the area to the perimeter, which is a massive improvement.
 
+            // The free space index searches 64 positions at a time, but finds the same entry which checking one position at a time would have found.
             boolean foundSpot = true;
 
-            // Vertical Checks:
-            for (int searchY = y + 1; searchY < endY - 1 && foundSpot; searchY++)
-                if (((temp = this.cachedTextureLocations[searchY][endX - 1]) != null) || ((temp = this.cachedTextureLocations[searchY][x]) != null))
-                    foundSpot = false;
+            // Vertical Checks: (Searches downward, checking the right edge before the left edge.)
+            int rightEdgeY = this.freeSpaceIndex.findFirstOccupiedY(endX - 1, y + 1, endY - 2);
+            int leftEdgeY = this.freeSpaceIndex.findFirstOccupiedY(x, y + 1, endY - 2);
+            if (rightEdgeY >= 0 && (leftEdgeY < 0 || leftEdgeY >= rightEdgeY)) {
+                temp = this.cachedTextureLocations[rightEdgeY][endX - 1];
+                foundSpot = false;
+            } else if (leftEdgeY >= 0) {
+                temp = this.cachedTextureLocations[leftEdgeY][x];
+                foundSpot = false;
+            }
 
             // Horizontal Checks:
-            for (int searchX = endX - 1; searchX > x && foundSpot; searchX--) // Search in backwards direction to find the furthest right position to place the texture at. (Most notable when near small textures)
-                if (((temp = this.cachedTextureLocations[y][searchX]) != null) || ((temp = this.cachedTextureLocations[endY - 1][searchX]) != null))
+            if (foundSpot) { // Search in backwards direction to find the furthest right position to place the texture at. (Most notable when near small textures)
+                int topEdgeX = this.freeSpaceIndex.findLastOccupiedX(y, x + 1, endX - 1);
+                int bottomEdgeX = this.freeSpaceIndex.findLastOccupiedX(endY - 1, x + 1, endX - 1);
+                if (topEdgeX >= 0 && topEdgeX >= bottomEdgeX) {
+                    temp = this.cachedTextureLocations[y][topEdgeX];
                     foundSpot = false;
+                } else if (bottomEdgeX >= 0) {
+                    temp = this.cachedTextureLocations[endY - 1][bottomEdgeX];
+                    foundSpot = false;
+                }
+            }
 
             if (!foundSpot) { // We'll just skip past it.
                 if (temp instanceof VloVramEntryClut && !(entry instanceof VloVramEntryClut))
@@ -457,6 +480,8 @@ public class VloVramSnapshot extends SCSharedGameObject {
             Arrays.fill(this.cachedTextureLocations[cacheY], entryX, entryX + entry.getWidth(), entry);
         }
 
+        this.freeSpaceIndex.markOccupied(entryX, entryY, entry.getWidth(), entry.getHeight());
+
         if (addToParent && this.node != null && this.node.getSnapshot() != this)
             this.node.getSnapshot().applyEntryToCache(entry, false);
     }
@@ -611,6 +611,49 @@ public class FileUtils {
         }
     }
 
+    /**
+     * Writes the given bytes to a file, only rewriting the ranges of bytes which differ from the existing file contents.
+     * If the file does not exist or has a different size, the whole file is written instead.
+     * @param outputFile The file to write the data to
+     * @param bytes The bytes which the file should contain
+     * @return the number of bytes written
+     * @throws IOException Thrown if the file could not be read or written.
+     */
+    public static long writeChangedBytesToFile(File outputFile, byte[] bytes) throws IOException {
+        if (outputFile == null)
+            throw new NullPointerException("outputFile");
+        if (bytes == null)
+            throw new NullPointerException("bytes");
+
+        if (!outputFile.isFile() || outputFile.length() != bytes.length) {
+            deleteFile(outputFile);
+            Files.write(outputFile.toPath(), bytes);
+            return bytes.length;
+        }
+
+        byte[] oldBytes = Files.readAllBytes(outputFile.toPath());
+        long bytesWritten = 0;
+        try (RandomAccessFile file = new RandomAccessFile(outputFile, "rw")) {
+            int index = 0;
+            while (index < bytes.length) {
+                if (oldBytes[index] == bytes[index]) {
+                    index++;
+                    continue;
+                }
+
+                int startIndex = index;
+                while (index < bytes.length && oldBytes[index] != bytes[index])
+                    index++;
+
+                file.seek(startIndex);
+                file.write(bytes, startIndex, index - startIndex);
+                bytesWritten += index - startIndex;
+            }
+        }
+
+        return bytesWritten;
+    }
+
     /**
      * Tests if a string is alphanumeric or not.
      * @param testString The string to test.
@@ -0,0 +1,91 @@
+package net.highwayfrogs.editor.utils;
+
+import java.util.concurrent.*;
+
+/**
+ * Contains static utilities relating to threads and running work in parallel.
+ * Created by Kneesnap on 10/17/2026.
+ */
+public class ThreadUtils {
+    public static final int WORKER_THREAD_COUNT = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private static final ExecutorService WORKER_THREAD_POOL = Executors.newWorkStealingPool(WORKER_THREAD_COUNT);
+
+    /**
+     * Gets the thread pool shared by background work which runs in parallel, such as file loading and compression.
+     */
+    public static ExecutorService getWorkerThreadPool() {
+        return WORKER_THREAD_POOL;
+    }
+
+    /**
+     * Submits a task to run on the shared worker thread pool.
+     * @param task the task to run
+     * @return future
+     */
+    public static <T> Future<T> submitWorkerTask(Callable<T> task) {
+        if (task == null)
+            throw new NullPointerException("task");
+
+        return WORKER_THREAD_POOL.submit(task);
+    }
+
+    /**
+     * Submits a task to run on the shared worker thread pool.
+     * @param task the task to run
+     * @return future
+     */
+    public static Future<?> submitWorkerTask(Runnable task) {
+        if (task == null)
+            throw new NullPointerException("task");
+
+        return WORKER_THREAD_POOL.submit(task);
+    }
+
+    /**
+     * Waits for a task to complete, and returns its result.
+     * If the task threw an exception, it will be re-thrown as a RuntimeException.
+     * @param future the task to wait for
+     * @return taskResult
+     */
+    public static <T> T waitForTask(Future<T> future) {
+        if (future == null)
+            throw new NullPointerException("future");
+
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a task to complete.", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+
+            throw new RuntimeException("The task failed to complete.", cause);
+        }
+    }
+
+    /**
+     * Waits for a task to stop running, ignoring any error it threw.
+     * This is useful when a task must not be left running, but its result is not needed, such as while handling another error.
+     * @param future the task to wait for
+     */
+    public static void waitForTaskToFinish(Future<?> future) {
+        if (future == null)
+            throw new NullPointerException("future");
+
+        boolean interrupted = false;
+        while (!future.isDone()) {
+            try {
+                future.get();
+            } catch (InterruptedException ex) {
+                interrupted = true; // Keep waiting, but restore the interrupt flag afterward.
+            } catch (ExecutionException | CancellationException ex) {
+                // The task has finished.
+            }
+        }
+
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+}
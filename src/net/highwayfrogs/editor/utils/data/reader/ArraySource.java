@@ -2,42 +2,113 @@ package net.highwayfrogs.editor.utils.data.reader;
 
 import lombok.Getter;
 import lombok.Setter;
+import net.highwayfrogs.editor.Constants;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 /**
  * Allows reading from a byte array.
+ * The source may cover only part of the array, in which case it cannot read outside that part.
  * Created by Kneesnap on 8/11/2018.
  */
 @Getter
 public class ArraySource implements DataSource {
     @Setter private int index;
-    private byte[] data;
+    private final byte[] data;
+    private final int offset; // The index into the array where this source starts.
+    private final int length; // The number of bytes in the array which this source can read.
 
     public ArraySource(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    public ArraySource(byte[] data, int offset, int length) {
+        if (data == null)
+            throw new NullPointerException("data");
+        if (offset < 0 || length < 0 || offset > data.length - length)
+            throw new IndexOutOfBoundsException("Cannot create a source of " + length + " bytes at offset " + offset + " into an array containing " + data.length + " bytes.");
+
         this.data = data;
+        this.offset = offset;
+        this.length = length;
     }
 
     @Override
     public byte readByte() {
-        return data[this.index++];
+        if (this.index < 0 || this.index >= this.length)
+            throw new ArrayIndexOutOfBoundsException("Cannot read index " + this.index + " from a source containing " + this.length + " bytes.");
+
+        return this.data[this.offset + this.index++];
+    }
+
+    @Override
+    public short readShort() {
+        requireReadable(Constants.SHORT_SIZE);
+        int position = this.offset + this.index;
+        this.index += Constants.SHORT_SIZE;
+        return (short) ((this.data[position] & 0xFF) | (this.data[position + 1] & 0xFF) << 8);
+    }
+
+    @Override
+    public int readInt() {
+        requireReadable(Constants.INTEGER_SIZE);
+        int position = this.offset + this.index;
+        this.index += Constants.INTEGER_SIZE;
+        return (this.data[position] & 0xFF) | (this.data[position + 1] & 0xFF) << 8
+                | (this.data[position + 2] & 0xFF) << 16 | (this.data[position + 3] & 0xFF) << 24;
+    }
+
+    @Override
+    public float readFloat() {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    @Override
+    public void readShorts(short[] output, int offset, int amount) {
+        wrapForBulkRead(amount, Constants.SHORT_SIZE).asShortBuffer().get(output, offset, amount);
+        this.index += amount * Constants.SHORT_SIZE;
+    }
+
+    @Override
+    public void readInts(int[] output, int offset, int amount) {
+        wrapForBulkRead(amount, Constants.INTEGER_SIZE).asIntBuffer().get(output, offset, amount);
+        this.index += amount * Constants.INTEGER_SIZE;
+    }
+
+    @Override
+    public void readFloats(float[] output, int offset, int amount) {
+        wrapForBulkRead(amount, Constants.FLOAT_SIZE).asFloatBuffer().get(output, offset, amount);
+        this.index += amount * Constants.FLOAT_SIZE;
+    }
+
+    private ByteBuffer wrapForBulkRead(int amount, int valueSize) {
+        if (amount < 0 || amount > Integer.MAX_VALUE / valueSize)
+            throw new IllegalArgumentException("Cannot read " + amount + " values.");
+
+        int byteLength = amount * valueSize;
+        requireReadable(byteLength);
+        return ByteBuffer.wrap(this.data, this.offset + this.index, byteLength).order(ByteOrder.LITTLE_ENDIAN);
     }
 
     @Override
     public byte[] readBytes(int amount) {
+        requireReadable(amount);
         byte[] readBytes = new byte[amount];
-        System.arraycopy(this.data, this.index, readBytes, 0, amount);
+        System.arraycopy(this.data, this.offset + this.index, readBytes, 0, amount);
         this.index += amount;
         return readBytes;
     }
 
     @Override
     public int readBytes(byte[] output, int offset, int amount) throws IOException {
-        amount = Math.max(0, Math.min(amount, this.data.length - this.index));
+        amount = Math.max(0, Math.min(amount, this.length - this.index));
         if (amount == 0)
             return 0;
 
-        System.arraycopy(this.data, this.index, output, offset, amount);
+        requireReadable(amount);
+        System.arraycopy(this.data, this.offset + this.index, output, offset, amount);
         this.index += amount;
         return amount;
     }
@@ -47,9 +118,21 @@ public class ArraySource implements DataSource {
         this.index += byteCount;
     }
 
-
     @Override
     public int getSize() {
-        return data.length;
+        return this.length;
+    }
+
+    @Override
+    public ArraySource slice(int offset, int length) {
+        if (offset < 0 || length < 0 || offset > this.length - length)
+            throw new IndexOutOfBoundsException("Cannot slice " + length + " bytes at offset " + offset + " from a source containing " + this.length + " bytes.");
+
+        return new ArraySource(this.data, this.offset + offset, length);
+    }
+
+    private void requireReadable(int amount) {
+        if (this.index < 0 || amount < 0 || amount > this.length - this.index)
+            throw new ArrayIndexOutOfBoundsException("Cannot read " + amount + " bytes at index " + this.index + " from a source containing " + this.length + " bytes.");
     }
-}
\ No newline at end of file
+}
@@ -144,7 +144,11 @@ public class DataReader {
      * @return floatValue
      */
     public float readFloat() {
-        return DataUtils.readFloatFromBytes(readBytes(Constants.FLOAT_SIZE));
+        try {
+            return this.source.readFloat();
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to read float.", ex);
+        }
     }
 
     /**
@@ -153,7 +157,11 @@ public class DataReader {
      * @return intValue
      */
     public int readInt() {
-        return readInt(Constants.INTEGER_SIZE);
+        try {
+            return this.source.readInt();
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to read integer.", ex);
+        }
     }
 
     /**
@@ -162,10 +170,104 @@ public class DataReader {
      * @return shortValue
      */
     public short readShort() {
-        short value = 0;
-        for (int i = 0; i < Constants.SHORT_SIZE; i++)
-            value += (short) ((readByte() & 0xFF) << (Constants.BITS_PER_BYTE * i));
-        return value;
+        try {
+            return this.source.readShort();
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to read short.", ex);
+        }
+    }
+
+    /**
+     * Read shorts into an array with a single bulk read, instead of reading them one at a time.
+     * @param destination the array to read the values into
+     * @param offset the index into the array to start placing values at
+     * @param amount the number of values to read
+     * @return destination
+     */
+    public short[] readShorts(short[] destination, int offset, int amount) {
+        if (destination == null)
+            throw new NullPointerException("destination");
+        if (offset < 0 || amount < 0 || offset > destination.length - amount)
+            throw new IndexOutOfBoundsException("Cannot read " + amount + " values into an array of length " + destination.length + " at offset " + offset + ".");
+
+        try {
+            this.source.readShorts(destination, offset, amount);
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to read " + amount + " shorts. (Remaining: " + getRemaining() + ")", ex);
+        }
+
+        return destination;
+    }
+
+    /**
+     * Read shorts to fill an array with a single bulk read, instead of reading them one at a time.
+     * @param destination the array to read the values into
+     * @return destination
+     */
+    public short[] readShorts(short[] destination) {
+        return readShorts(destination, 0, destination.length);
+    }
+
+    /**
+     * Read integers into an array with a single bulk read, instead of reading them one at a time.
+     * @param destination the array to read the values into
+     * @param offset the index into the array to start placing values at
+     * @param amount the number of values to read
+     * @return destination
+     */
+    public int[] readInts(int[] destination, int offset, int amount) {
+        if (destination == null)
+            throw new NullPointerException("destination");
+        if (offset < 0 || amount < 0 || offset > destination.length - amount)
+            throw new IndexOutOfBoundsException("Cannot read " + amount + " values into an array of length " + destination.length + " at offset " + offset + ".");
+
+        try {
+            this.source.readInts(destination, offset, amount);
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to read " + amount + " integers. (Remaining: " + getRemaining() + ")", ex);
+        }
+
+        return destination;
+    }
+
+    /**
+     * Read integers to fill an array with a single bulk read, instead of reading them one at a time.
+     * @param destination the array to read the values into
+     * @return destination
+     */
+    public int[] readInts(int[] destination) {
+        return readInts(destination, 0, destination.length);
+    }
+
+    /**
+     * Read floats into an array with a single bulk read, instead of reading them one at a time.
+     * @param destination the array to read the values into
+     * @param offset the index into the array to start placing values at
+     * @param amount the number of values to read
+     * @return destination
+     */
+    public float[] readFloats(float[] destination, int offset, int amount) {
+        if (destination == null)
+            throw new NullPointerException("destination");
+        if (offset < 0 || amount < 0 || offset > destination.length - amount)
+            throw new IndexOutOfBoundsException("Cannot read " + amount + " values into an array of length " + destination.length + " at offset " + offset + ".");
+
+        try {
+            this.source.readFloats(destination, offset, amount);
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to read " + amount + " floats. (Remaining: " + getRemaining() + ")", ex);
+        }
+
+        return destination;
+    }
+
+    /**
+     * Read floats to fill an array with a single bulk read, instead of reading them one at a time.
+     * @param destination the array to read the values into
+     * @return destination
+     */
+    public float[] readFloats(float[] destination) {
+        return readFloats(destination, 0, destination.length);
     }
 
     /**
@@ -174,6 +276,9 @@ public class DataReader {
      * @return intValue
      */
     public int readInt(int bytes) {
+        if (bytes == Constants.INTEGER_SIZE)
+            return readInt();
+
         int value = 0;
         for (int i = 0; i < bytes; i++)
             value += (readByte() & 0xFF) << (Constants.BITS_PER_BYTE * i);
@@ -472,15 +577,34 @@ public class DataReader {
     }
 
     /**
-     * Create a sub-reader.
-     * @param length The offset to start reading from.
+     * Create a sub-reader for the next bytes, and skip past them.
+     * The data is shared with this reader when possible, instead of being copied.
+     * @param length The number of bytes the new reader can read.
      * @return newReader
      */
     public DataReader readBytesAndCreateNewReader(int length) {
         if (length < 0)
             throw new IllegalArgumentException("Invalid length: " + length);
 
-        byte[] bytes = readBytes(length);
-        return new DataReader(new ArraySource(bytes));
+        DataReader newReader = slice(getIndex(), length);
+        skipBytes(length);
+        return newReader;
+    }
+
+    /**
+     * Creates a reader which can only read a section of the data available to this reader.
+     * Index 0 of the new reader is the given offset into this reader, and the new reader cannot read past the end of the section.
+     * The data is shared with this reader when possible, instead of being copied.
+     * The index of this reader is not changed.
+     * @param offset the index into this reader where the section starts
+     * @param length the number of bytes in the section
+     * @return newReader
+     */
+    public DataReader slice(int offset, int length) {
+        try {
+            return new DataReader(this.source.slice(offset, length));
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to slice " + length + " bytes at offset " + offset + ".", ex);
+        }
     }
 }
\ No newline at end of file
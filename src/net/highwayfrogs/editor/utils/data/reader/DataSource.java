@@ -30,6 +30,65 @@ public interface DataSource {
      */
     public int readBytes(byte[] output, int offset, int amount) throws IOException;
 
+    /**
+     * Read a little endian short from the current index.
+     * Sources which can read the value directly should override this, since the default reads each byte separately.
+     * @return shortValue
+     */
+    public default short readShort() throws IOException {
+        return (short) ((readByte() & 0xFF) | (readByte() & 0xFF) << 8);
+    }
+
+    /**
+     * Read a little endian integer from the current index.
+     * Sources which can read the value directly should override this, since the default reads each byte separately.
+     * @return intValue
+     */
+    public default int readInt() throws IOException {
+        return (readByte() & 0xFF) | (readByte() & 0xFF) << 8 | (readByte() & 0xFF) << 16 | (readByte() & 0xFF) << 24;
+    }
+
+    /**
+     * Read a little endian float from the current index.
+     * @return floatValue
+     */
+    public default float readFloat() throws IOException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    /**
+     * Read little endian shorts from the current index into an array.
+     * @param output the array to read the values into
+     * @param offset the index into the array to start placing values at
+     * @param amount the number of values to read
+     */
+    public default void readShorts(short[] output, int offset, int amount) throws IOException {
+        for (int i = 0; i < amount; i++)
+            output[offset + i] = readShort();
+    }
+
+    /**
+     * Read little endian integers from the current index into an array.
+     * @param output the array to read the values into
+     * @param offset the index into the array to start placing values at
+     * @param amount the number of values to read
+     */
+    public default void readInts(int[] output, int offset, int amount) throws IOException {
+        for (int i = 0; i < amount; i++)
+            output[offset + i] = readInt();
+    }
+
+    /**
+     * Read little endian floats from the current index into an array.
+     * @param output the array to read the values into
+     * @param offset the index into the array to start placing values at
+     * @param amount the number of values to read
+     */
+    public default void readFloats(float[] output, int offset, int amount) throws IOException {
+        for (int i = 0; i < amount; i++)
+            output[offset + i] = readFloat();
+    }
+
     /**
      * Skip a given number of bytes, from the current index.
      * @param byteCount The bytes to skip.
@@ -53,4 +112,27 @@ public interface DataSource {
      * @return size
      */
     public int getSize() throws IOException;
+
+    /**
+     * Creates a new source which reads a section of this source.
+     * Index 0 of the new source is the given offset into this source, and the new source cannot read past the end of the section.
+     * Sources which keep their data in memory share it with the new source instead of copying it.
+     * The index of this source is not changed.
+     * @param offset the index into this source where the section starts
+     * @param length the number of bytes in the section
+     * @return slicedSource
+     */
+    public default DataSource slice(int offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || offset > getSize() - length)
+            throw new IndexOutOfBoundsException("Cannot slice " + length + " bytes at offset " + offset + " from a source containing " + getSize() + " bytes.");
+
+        // The data can't be shared, so copy it.
+        int oldIndex = getIndex();
+        try {
+            setIndex(offset);
+            return new ArraySource(readBytes(length));
+        } finally {
+            setIndex(oldIndex);
+        }
+    }
 }
\ No newline at end of file
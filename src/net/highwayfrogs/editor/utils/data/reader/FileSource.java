@@ -61,4 +61,9 @@ public class FileSource implements DataSource {
     public int getSize() throws IOException {
         return this.fileData.length;
     }
+
+    @Override
+    public ArraySource slice(int offset, int length) {
+        return new ArraySource(this.fileData, offset, length);
+    }
 }
\ No newline at end of file
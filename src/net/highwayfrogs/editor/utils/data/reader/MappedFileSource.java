@@ -0,0 +1,217 @@
+package net.highwayfrogs.editor.utils.data.reader;
+
+import lombok.Getter;
+import net.highwayfrogs.editor.Constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads data from a file which has been mapped into memory by the operating system.
+ * Unlike FileSource, the file contents are not copied onto the heap, so very large archives can be read without holding the entire file in memory.
+ * Data is always read as little endian.
+ * Slices share the same mapped memory, and are invalid once the source they were created from has been closed.
+ * Created by Kneesnap on 10/17/2026.
+ */
+public class MappedFileSource implements DataSource, AutoCloseable {
+    @Getter private final File file;
+    private final MappedFileSource parent;
+    private ByteBuffer buffer;
+
+    public MappedFileSource(File file) throws IOException {
+        if (file == null)
+            throw new NullPointerException("file");
+
+        this.file = file;
+        this.parent = null;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize > Integer.MAX_VALUE)
+                throw new IOException("The file '" + file.getName() + "' is too large to read. (" + fileSize + " bytes)");
+
+            // The mapping remains valid after the channel is closed.
+            this.buffer = channel.map(MapMode.READ_ONLY, 0, fileSize).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    private MappedFileSource(MappedFileSource parent, ByteBuffer buffer) {
+        this.file = parent.file;
+        this.parent = parent;
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public byte readByte() {
+        return this.buffer.get();
+    }
+
+    @Override
+    public byte[] readBytes(int amount) {
+        byte[] bytes = new byte[amount];
+        this.buffer.get(bytes);
+        return bytes;
+    }
+
+    @Override
+    public int readBytes(byte[] output, int offset, int amount) {
+        amount = Math.max(0, Math.min(amount, this.buffer.remaining()));
+        if (amount == 0)
+            return 0;
+
+        this.buffer.get(output, offset, amount);
+        return amount;
+    }
+
+    /**
+     * Reads a little endian short from the current index.
+     * @return shortValue
+     */
+    @Override
+    public short readShort() {
+        return this.buffer.getShort();
+    }
+
+    /**
+     * Reads a little endian integer from the current index.
+     * @return intValue
+     */
+    @Override
+    public int readInt() {
+        return this.buffer.getInt();
+    }
+
+    /**
+     * Reads a little endian float from the current index.
+     * @return floatValue
+     */
+    @Override
+    public float readFloat() {
+        return this.buffer.getFloat();
+    }
+
+    /**
+     * Reads little endian shorts from the current index into an array.
+     * @param output the array to read the values into
+     * @param offset the index into the array to start placing values at
+     * @param amount the number of values to read
+     */
+    @Override
+    public void readShorts(short[] output, int offset, int amount) {
+        ShortBuffer shortBuffer = this.buffer.asShortBuffer();
+        shortBuffer.get(output, offset, amount);
+        skip(amount * Constants.SHORT_SIZE);
+    }
+
+    /**
+     * Reads little endian integers from the current index into an array.
+     * @param output the array to read the values into
+     * @param offset the index into the array to start placing values at
+     * @param amount the number of values to read
+     */
+    @Override
+    public void readInts(int[] output, int offset, int amount) {
+        IntBuffer intBuffer = this.buffer.asIntBuffer();
+        intBuffer.get(output, offset, amount);
+        skip(amount * Constants.INTEGER_SIZE);
+    }
+
+    /**
+     * Reads little endian floats from the current index into an array.
+     * @param output the array to read the values into
+     * @param offset the index into the array to start placing values at
+     * @param amount the number of values to read
+     */
+    @Override
+    public void readFloats(float[] output, int offset, int amount) {
+        FloatBuffer floatBuffer = this.buffer.asFloatBuffer();
+        floatBuffer.get(output, offset, amount);
+        skip(amount * Constants.FLOAT_SIZE);
+    }
+
+    /**
+     * Creates a new source which reads a section of this source, without copying any data.
+     * Index 0 of the new source is the given offset into this source, and the new source cannot read past the end of the section.
+     * The index of this source is not changed.
+     * @param offset the index into this source where the section starts
+     * @param length the number of bytes in the section
+     * @return slicedSource
+     */
+    @Override
+    public MappedFileSource slice(int offset, int length) {
+        if (offset < 0 || length < 0 || offset > this.buffer.limit() - length)
+            throw new IndexOutOfBoundsException("Cannot slice " + length + " bytes at offset " + offset + " from a source containing " + this.buffer.limit() + " bytes.");
+
+        ByteBuffer duplicate = this.buffer.duplicate();
+        duplicate.limit(offset + length);
+        duplicate.position(offset);
+        return new MappedFileSource(this.parent != null ? this.parent : this, duplicate.slice());
+    }
+
+    @Override
+    public void skip(int byteCount) {
+        this.buffer.position(this.buffer.position() + byteCount);
+    }
+
+    @Override
+    public void setIndex(int newIndex) {
+        this.buffer.position(newIndex);
+    }
+
+    @Override
+    public int getIndex() {
+        return this.buffer.position();
+    }
+
+    @Override
+    public int getSize() {
+        return this.buffer.limit();
+    }
+
+    /**
+     * Releases the mapped memory, allowing the file to be modified or deleted.
+     * Windows will not allow a file to be overwritten while it is mapped, so this should be called once reading has finished.
+     * After this is called, neither this source nor any slice of it may be used.
+     * Closing a slice does nothing, only the original source can release the mapping.
+     */
+    @Override
+    public void close() {
+        if (this.parent != null || this.buffer == null)
+            return;
+
+        ByteBuffer oldBuffer = this.buffer;
+        this.buffer = null;
+        unmapBuffer(oldBuffer);
+    }
+
+    private static void unmapBuffer(ByteBuffer buffer) {
+        // Java has no public API for releasing a mapping early, so this is done on a best-effort basis.
+        // If it fails, the mapping will be released when the buffer is garbage collected.
+        try {
+            // Java 9+
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field unsafeField = unsafeClass.getDeclaredField("theUnsafe");
+            unsafeField.setAccessible(true);
+            invokeCleaner.invoke(unsafeField.get(null), buffer);
+            return;
+        } catch (Throwable th) {
+            // Not available, try the Java 8 approach.
+        }
+
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null)
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+        } catch (Throwable th) {
+            // Leave it for the garbage collector.
+        }
+    }
+}
@@ -6,21 +6,61 @@ import net.highwayfrogs.editor.Constants;
 
 /**
  * Reads bits from a ByteArray.
+ * Instead of extracting one bit at a time from the array, upcoming bits are loaded into a 64-bit word, which reads are taken from.
  * Created by Kneesnap on 10/5/2018.
  */
-@Getter
 public class BitReader {
-    private final byte[] data;
-    private int bytePos;
-    private int bitPos = 0;
-    @Setter private boolean reverseBits;
-    @Setter private boolean reverseBytes;
+    @Getter private final byte[] data;
+    private final int startPos;
+    private long bitsRead; // The number of bits which have been read, counting from the start position.
+    private long bitBuffer; // Upcoming bits, in the order they will be read, starting from the most significant bit.
+    private int bitBufferSize; // The number of bits loaded into the bit buffer.
+    private int nextLoadPos; // The index (before reversing bytes) of the next byte to load into the bit buffer.
+    @Getter private boolean reverseBits;
+    @Getter private boolean reverseBytes;
 
     private static final int MAX_BIT = Constants.BITS_PER_BYTE - 1;
+    private static final int BIT_BUFFER_SIZE = Long.SIZE;
+    private static final int MAX_READ_BITS = Constants.BITS_PER_INTEGER;
+    private static final byte[] REVERSED_BITS = new byte[256];
 
     public BitReader(final byte[] data, final int pos) {
         this.data = data;
-        this.bytePos = pos;
+        this.startPos = pos;
+        this.nextLoadPos = pos;
+    }
+
+    /**
+     * Sets whether the bits within each byte are read starting from the most significant bit.
+     * @param reverseBits whether to read bits in reverse order
+     */
+    public void setReverseBits(boolean reverseBits) {
+        this.reverseBits = reverseBits;
+        discardBitBuffer();
+    }
+
+    /**
+     * Sets whether the bytes are read starting from the end of the array.
+     * @param reverseBytes whether to read bytes in reverse order
+     */
+    public void setReverseBytes(boolean reverseBytes) {
+        this.reverseBytes = reverseBytes;
+        discardBitBuffer();
+    }
+
+    /**
+     * Gets the index of the byte which the next bit will be read from.
+     * If reverseBytes is enabled, this is counted from the end of the array.
+     */
+    public int getBytePos() {
+        return this.startPos + (int) (this.bitsRead / Constants.BITS_PER_BYTE);
+    }
+
+    /**
+     * Gets the number of bits which have been read from the current byte.
+     */
+    public int getBitPos() {
+        return (int) (this.bitsRead % Constants.BITS_PER_BYTE);
     }
 
     /**
@@ -28,17 +68,7 @@ public class BitReader {
      * @return bitValue
      */
     public int readBit() {
-        int readBitPos = isReverseBits() ? (MAX_BIT - this.bitPos) : this.bitPos;
-        int readBytePos = isReverseBytes() ? (this.data.length - 1 - this.bytePos) : this.bytePos;
-
-        if (this.bitPos == MAX_BIT) { // Reached the end of the bit.
-            this.bitPos = 0;
-            this.bytePos++;
-        } else {
-            this.bitPos++;
-        }
-
-        return (this.data[readBytePos] >> readBitPos) & Constants.BIT_TRUE; // Get the bit at the next position.
+        return readBits(1);
     }
 
     /**
@@ -47,10 +77,50 @@ public class BitReader {
      * @return readValue
      */
     public int readBits(int amount) {
-        int num = 0;
-        for (int i = 0; i < amount; i++)
-            num = (num << 1) | readBit(); // Shift the existing read bits left, and add the next available bit. If you read four bits, it will read it like an integer.
-        return num;
+        if (amount < 0 || amount > MAX_READ_BITS)
+            throw new IllegalArgumentException("Cannot read " + amount + " bits into an integer.");
+        if (amount == 0)
+            return 0;
+
+        if (amount > this.bitBufferSize) {
+            fillBitBuffer();
+            if (amount > this.bitBufferSize)
+                throw new ArrayIndexOutOfBoundsException("Cannot read " + amount + " bits, only " + this.bitBufferSize + " bits remain.");
+        }
+
+        // The first bit read becomes the most significant bit of the result, just like an integer.
+        int result = (int) (this.bitBuffer >>> (BIT_BUFFER_SIZE - amount));
+        this.bitBuffer <<= amount;
+        this.bitBufferSize -= amount;
+        this.bitsRead += amount;
+        return result;
+    }
+
+    private void fillBitBuffer() {
+        while (this.bitBufferSize <= BIT_BUFFER_SIZE - Constants.BITS_PER_BYTE && this.nextLoadPos < this.data.length) {
+            int readBytePos = isReverseBytes() ? (this.data.length - 1 - this.nextLoadPos) : this.nextLoadPos;
+            int value = this.data[readBytePos] & 0xFF;
+            if (!isReverseBits()) // Bits are stored in the buffer in the order they are read, and by default the least significant bit is read first.
+                value = REVERSED_BITS[value] & 0xFF;
+
+            this.bitBuffer |= (long) value << (BIT_BUFFER_SIZE - Constants.BITS_PER_BYTE - this.bitBufferSize);
+            this.bitBufferSize += Constants.BITS_PER_BYTE;
+            this.nextLoadPos++;
+        }
+    }
+
+    private void discardBitBuffer() {
+        // Bits which were loaded under the old settings must be loaded again.
+        int bytePos = getBytePos();
+        int bitPos = getBitPos();
+        this.bitBuffer = 0;
+        this.bitBufferSize = 0;
+        this.nextLoadPos = bytePos;
+        if (bitPos > 0 && bytePos < this.data.length) {
+            fillBitBuffer();
+            this.bitBuffer <<= bitPos;
+            this.bitBufferSize -= bitPos;
+        }
     }
 
     /**
@@ -58,16 +128,22 @@ public class BitReader {
      * @return hasRemaining
      */
     public boolean hasRemaining() {
-        return this.data.length > this.bytePos;
+        return this.data.length > getBytePos();
     }
 
     /**
      * Gets the number of remaining bits.
      */
     public int getRemainingBits() {
-        if (this.bytePos >= this.data.length)
+        int bytePos = getBytePos();
+        if (bytePos >= this.data.length)
             return 0;
 
-        return (Constants.BITS_PER_BYTE * (this.data.length - this.bytePos - 1)) + (MAX_BIT - this.bitPos);
+        return (Constants.BITS_PER_BYTE * (this.data.length - bytePos - 1)) + (MAX_BIT - getBitPos());
+    }
+
+    static {
+        for (int i = 0; i < REVERSED_BITS.length; i++)
+            REVERSED_BITS[i] = (byte) (Integer.reverse(i) >>> (Integer.SIZE - Constants.BITS_PER_BYTE));
     }
 }
@@ -1,12 +1,12 @@
 package net.highwayfrogs.editor.utils.data.writer;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import net.highwayfrogs.editor.Constants;
 import net.highwayfrogs.editor.utils.Utils;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * Write bits into a buffer.
@@ -17,19 +17,30 @@ import java.util.List;
  */
 @Getter
 public class BitWriter {
-    private final List<Byte> bytes = new ArrayList<>();
+    @Getter(AccessLevel.NONE) private byte[] bytes;
+    private int completedByteCount;
     private int currentBit = Constants.BITS_PER_BYTE;
     private byte currentByte;
     @Setter private boolean reverseBytes;
     @Setter private boolean reverseBits;
 
+    private static final int DEFAULT_CAPACITY = 256;
+
+    public BitWriter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public BitWriter(int startingCapacity) {
+        this.bytes = new byte[Math.max(1, startingCapacity)];
+    }
+
     /**
      * Gets the current number of bytes this takes up.
      * Even if only 1 bit is used in a byte, that counts.
      * @return byteCount
      */
     public int getByteCount() {
-        return this.bytes.size() + (this.currentBit != Constants.BITS_PER_BYTE ? 1 : 0);
+        return this.completedByteCount + (this.currentBit != Constants.BITS_PER_BYTE ? 1 : 0);
     }
 
     /**
@@ -53,24 +64,33 @@ public class BitWriter {
             this.currentByte |= (bit << getCurrentBitID());
 
         // If the current byte is complete, add it to the list of bytes.
-        if (--this.currentBit == 0) {
-            this.bytes.add(this.currentByte);
-            this.currentByte = 0;
-            this.currentBit = Constants.BITS_PER_BYTE;
-        }
+        if (--this.currentBit == 0)
+            completeCurrentByte();
     }
 
     private int getCurrentBitID() {
         return isReverseBits() ? this.currentBit - 1 : Constants.BITS_PER_BYTE - this.currentBit;
     }
 
+    private void completeCurrentByte() {
+        if (this.completedByteCount == this.bytes.length)
+            this.bytes = Arrays.copyOf(this.bytes, this.bytes.length * 2);
+
+        this.bytes[this.completedByteCount++] = this.currentByte;
+        this.currentByte = 0;
+        this.currentBit = Constants.BITS_PER_BYTE;
+    }
+
     /**
      * Write a number of false bits.
      * @param count The number of bits to write.
      */
     public void writeFalseBits(int count) {
-        for (int i = 0; i < count; i++)
-            writeBit(0);
+        while (count > 0) {
+            int bitsToWrite = Math.min(count, Constants.BITS_PER_INTEGER);
+            writeBits(0, bitsToWrite);
+            count -= bitsToWrite;
+        }
     }
 
     /**
@@ -79,12 +99,27 @@ public class BitWriter {
      * @param bitCount the number of bits.
      */
     public void writeBits(int number, int bitCount) {
-        if (this.reverseBits) {
-            for (int i = 0; i < bitCount; i++)
-                writeBit(((number & (Constants.BIT_TRUE << i)) != 0) ? Constants.BIT_TRUE : Constants.BIT_FALSE);
-        } else {
-            for (int i = bitCount - 1; i >= 0; i--)
-                writeBit((number >> i) & Constants.BIT_TRUE);
+        if (bitCount < 0 || bitCount > Constants.BITS_PER_INTEGER)
+            throw new IllegalArgumentException("Cannot write " + bitCount + " bits from an integer.");
+
+        // Rather than writing one bit at a time, as many bits as fit in the current byte are placed at once.
+        // In both modes, the first bit written goes to the position given by getCurrentBitID(), and each following bit moves one position further.
+        while (bitCount > 0) {
+            int chunkSize = Math.min(bitCount, this.currentBit);
+            int chunk;
+            if (this.reverseBits) { // Bits are written starting from the least significant bit, into positions from high to low.
+                chunk = number & ((1 << chunkSize) - 1);
+                number >>>= chunkSize;
+                this.currentByte |= (Integer.reverse(chunk) >>> (Constants.BITS_PER_INTEGER - chunkSize)) << (this.currentBit - chunkSize);
+            } else { // Bits are written starting from the most significant bit, into positions from low to high.
+                chunk = (number >>> (bitCount - chunkSize)) & ((1 << chunkSize) - 1);
+                this.currentByte |= (Integer.reverse(chunk) >>> (Constants.BITS_PER_INTEGER - chunkSize)) << (Constants.BITS_PER_BYTE - this.currentBit);
+            }
+
+            bitCount -= chunkSize;
+            this.currentBit -= chunkSize;
+            if (this.currentBit == 0)
+                completeCurrentByte();
         }
     }
 
@@ -93,13 +128,7 @@ public class BitWriter {
      * @param value The byte to write bits from.
      */
     public void writeByte(byte value) {
-        if (this.reverseBits) {
-            for (int i = 0; i < Constants.BITS_PER_BYTE; i++)
-                writeBit(((value & (Constants.BIT_TRUE << i)) != 0) ? Constants.BIT_TRUE : Constants.BIT_FALSE);
-        } else {
-            for (int i = Constants.BITS_PER_BYTE - 1; i >= 0; i--)
-                writeBit((value >> i) & Constants.BIT_TRUE);
-        }
+        writeBits(value & 0xFF, Constants.BITS_PER_BYTE);
     }
 
     /**
@@ -119,11 +148,14 @@ public class BitWriter {
     public byte[] toByteArray(int extraBytesBefore, int extraBytesAfter) {
         finishCurrentByte();
 
-        // Write in backwards order, because PP20 does that.
-        byte[] arr = new byte[extraBytesBefore + this.bytes.size() + extraBytesAfter];
-        int i = isReverseBytes() ? arr.length - 1 - extraBytesAfter : extraBytesBefore;
-        for (Byte aByte : this.bytes)
-            arr[isReverseBytes() ? i-- : i++] = aByte;
+        byte[] arr = new byte[extraBytesBefore + this.completedByteCount + extraBytesAfter];
+        if (isReverseBytes()) { // Write in backwards order, because PP20 does that.
+            int i = arr.length - 1 - extraBytesAfter;
+            for (int j = 0; j < this.completedByteCount; j++)
+                arr[i--] = this.bytes[j];
+        } else {
+            System.arraycopy(this.bytes, 0, arr, extraBytesBefore, this.completedByteCount);
+        }
 
         return arr;
     }
@@ -132,12 +164,11 @@ public class BitWriter {
      * Finish the current byte being written.
      */
     public int finishCurrentByte() {
-        int writtenBits = 0;
-        while (this.currentBit != Constants.BITS_PER_BYTE) {
-            writeBit(0); // Finish the current byte.
-            writtenBits++;
-        }
+        if (this.currentBit == Constants.BITS_PER_BYTE)
+            return 0;
 
+        int writtenBits = this.currentBit;
+        completeCurrentByte(); // The unwritten bits are already zero.
         return writtenBits;
     }
 }
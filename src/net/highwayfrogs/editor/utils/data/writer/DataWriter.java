@@ -26,7 +26,7 @@ public class DataWriter {
     private final Stack<Integer> anchorPoints = new Stack<>();
     private int currentAnchorPoint;
 
-    private static final ByteBuffer FLOAT_BUFFER = ByteBuffer.allocate(Constants.INTEGER_SIZE);
+    private static final int BULK_WRITE_BUFFER_SIZE = 8192;
 
     public DataWriter(DataReceiver output) {
         this.output = output;
@@ -226,8 +226,7 @@ public class DataWriter {
      * @param value The integer to write.
      */
     public void writeFloat(float value) {
-        FLOAT_BUFFER.clear();
-        writeBytes(FLOAT_BUFFER.order(getEndian()).putFloat(value).array());
+        writeInt(Float.floatToRawIntBits(value));
     }
 
     /**
@@ -248,6 +247,106 @@ public class DataWriter {
         }
     }
 
+    /**
+     * Write shorts from an array to the receiver, encoding them in bulk instead of writing them one at a time.
+     * @param values the array of values to write
+     * @param offset the index into the array of the first value to write
+     * @param amount the number of values to write
+     */
+    public void writeShorts(short[] values, int offset, int amount) {
+        if (values == null)
+            throw new NullPointerException("values");
+        if (offset < 0 || amount < 0 || offset > values.length - amount)
+            throw new IndexOutOfBoundsException("Cannot write " + amount + " values from an array of length " + values.length + " at offset " + offset + ".");
+
+        ByteBuffer buffer = createBulkWriteBuffer(amount * Constants.SHORT_SIZE);
+        int valuesPerWrite = buffer.capacity() / Constants.SHORT_SIZE;
+        while (amount > 0) {
+            int writeAmount = Math.min(amount, valuesPerWrite);
+            buffer.clear();
+            buffer.asShortBuffer().put(values, offset, writeAmount);
+            writeBytes(buffer.array(), 0, writeAmount * Constants.SHORT_SIZE);
+            offset += writeAmount;
+            amount -= writeAmount;
+        }
+    }
+
+    /**
+     * Write all shorts in an array to the receiver, encoding them in bulk instead of writing them one at a time.
+     * @param values the array of values to write
+     */
+    public void writeShorts(short[] values) {
+        writeShorts(values, 0, values.length);
+    }
+
+    /**
+     * Write integers from an array to the receiver, encoding them in bulk instead of writing them one at a time.
+     * @param values the array of values to write
+     * @param offset the index into the array of the first value to write
+     * @param amount the number of values to write
+     */
+    public void writeInts(int[] values, int offset, int amount) {
+        if (values == null)
+            throw new NullPointerException("values");
+        if (offset < 0 || amount < 0 || offset > values.length - amount)
+            throw new IndexOutOfBoundsException("Cannot write " + amount + " values from an array of length " + values.length + " at offset " + offset + ".");
+
+        ByteBuffer buffer = createBulkWriteBuffer(amount * Constants.INTEGER_SIZE);
+        int valuesPerWrite = buffer.capacity() / Constants.INTEGER_SIZE;
+        while (amount > 0) {
+            int writeAmount = Math.min(amount, valuesPerWrite);
+            buffer.clear();
+            buffer.asIntBuffer().put(values, offset, writeAmount);
+            writeBytes(buffer.array(), 0, writeAmount * Constants.INTEGER_SIZE);
+            offset += writeAmount;
+            amount -= writeAmount;
+        }
+    }
+
+    /**
+     * Write all integers in an array to the receiver, encoding them in bulk instead of writing them one at a time.
+     * @param values the array of values to write
+     */
+    public void writeInts(int[] values) {
+        writeInts(values, 0, values.length);
+    }
+
+    /**
+     * Write floats from an array to the receiver, encoding them in bulk instead of writing them one at a time.
+     * @param values the array of values to write
+     * @param offset the index into the array of the first value to write
+     * @param amount the number of values to write
+     */
+    public void writeFloats(float[] values, int offset, int amount) {
+        if (values == null)
+            throw new NullPointerException("values");
+        if (offset < 0 || amount < 0 || offset > values.length - amount)
+            throw new IndexOutOfBoundsException("Cannot write " + amount + " values from an array of length " + values.length + " at offset " + offset + ".");
+
+        ByteBuffer buffer = createBulkWriteBuffer(amount * Constants.FLOAT_SIZE);
+        int valuesPerWrite = buffer.capacity() / Constants.FLOAT_SIZE;
+        while (amount > 0) {
+            int writeAmount = Math.min(amount, valuesPerWrite);
+            buffer.clear();
+            buffer.asFloatBuffer().put(values, offset, writeAmount);
+            writeBytes(buffer.array(), 0, writeAmount * Constants.FLOAT_SIZE);
+            offset += writeAmount;
+            amount -= writeAmount;
+        }
+    }
+
+    /**
+     * Write all floats in an array to the receiver, encoding them in bulk instead of writing them one at a time.
+     * @param values the array of values to write
+     */
+    public void writeFloats(float[] values) {
+        writeFloats(values, 0, values.length);
+    }
+
+    private ByteBuffer createBulkWriteBuffer(int byteLength) {
+        return ByteBuffer.allocate(Math.max(Constants.INTEGER_SIZE, Math.min(byteLength, BULK_WRITE_BUFFER_SIZE))).order(this.endian);
+    }
+
     /**
      * Write a pointer which we'll come back to later.
      * @return address
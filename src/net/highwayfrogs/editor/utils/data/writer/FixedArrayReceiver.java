@@ -2,8 +2,6 @@ package net.highwayfrogs.editor.utils.data.writer;
 
 import lombok.Getter;
 
-import java.io.IOException;
-
 /**
  * An in-memory data receiver.
  * Created by Kneesnap on 12/1/2018.
@@ -24,18 +22,17 @@ public class FixedArrayReceiver implements DataReceiver {
 
     @Override
     public void writeBytes(byte[] values) {
-        for (byte value : values)
-            writeByte(value);
+        writeBytes(values, 0, values.length);
     }
 
     @Override
-    public void writeBytes(byte[] values, int offset, int amount) throws IOException {
-        amount = Math.max(0, Math.min(amount, values.length - offset - 1));
+    public void writeBytes(byte[] values, int offset, int amount) {
+        amount = Math.max(0, Math.min(amount, values.length - offset));
         if (amount == 0)
             return;
 
-        for (int i = 0; i < amount; i++)
-            writeByte(values[offset + i]);
+        System.arraycopy(values, offset, this.array, this.index, amount);
+        this.index += amount;
     }
 
     @Override
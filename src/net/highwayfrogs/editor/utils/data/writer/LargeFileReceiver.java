@@ -1,55 +1,133 @@
 package net.highwayfrogs.editor.utils.data.writer;
 
+import lombok.Getter;
 import lombok.SneakyThrows;
 import net.highwayfrogs.editor.utils.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Writes data to large files without storing it in memory.
+ * Writes are combined in a buffer before being sent to the file, so writing one byte at a time does not require one system call per byte.
+ * The buffer holds a contiguous section of the file, and is flushed when it fills up, or when the write index is moved outside of it.
+ * This allows seeking backwards to patch data which has already been written, such as pointers and headers.
  * Created by Kneesnap on 8/24/2023.
  */
 public class LargeFileReceiver implements DataReceiver {
-    private final File targetFile;
-    private final RandomAccessFile randomAccessFile;
+    @Getter private final File targetFile;
+    private final FileChannel fileChannel;
+    private final byte[] buffer;
+    private long bufferStartIndex; // The file index which the first byte of the buffer will be written to.
+    private int bufferPosition; // The index into the buffer where the next byte will be written.
+    private int bufferLength; // The number of bytes in the buffer which have been written, and must be flushed.
+
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
 
-    @SneakyThrows
     public LargeFileReceiver(File file) {
+        this(file, DEFAULT_BUFFER_SIZE);
+    }
+
+    @SneakyThrows
+    public LargeFileReceiver(File file, int bufferSize) {
+        if (bufferSize <= 0)
+            throw new IllegalArgumentException("Invalid buffer size: " + bufferSize);
+
         this.targetFile = file;
+        this.buffer = new byte[bufferSize];
         FileUtils.deleteFile(file);
-        this.randomAccessFile = new RandomAccessFile(file, "rw");
+        this.fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
     }
 
     @Override
     public void writeByte(byte value) throws IOException {
-        this.randomAccessFile.writeByte(value);
+        if (this.bufferPosition >= this.buffer.length)
+            flush();
+
+        this.buffer[this.bufferPosition++] = value;
+        if (this.bufferPosition > this.bufferLength)
+            this.bufferLength = this.bufferPosition;
     }
 
     @Override
     public void writeBytes(byte[] values) throws IOException {
-        this.randomAccessFile.write(values);
+        writeBytes(values, 0, values.length);
     }
 
     @Override
     public void writeBytes(byte[] values, int offset, int amount) throws IOException {
-        this.randomAccessFile.write(values, offset, amount);
+        if (offset < 0 || amount < 0 || offset > values.length - amount)
+            throw new IndexOutOfBoundsException("Cannot write " + amount + " bytes from offset " + offset + " of an array containing " + values.length + " bytes.");
+
+        if (amount > this.buffer.length - this.bufferPosition) {
+            flush();
+
+            // Large writes go directly to the file, since buffering them would only add an extra copy.
+            if (amount >= this.buffer.length) {
+                writeFully(ByteBuffer.wrap(values, offset, amount), this.bufferStartIndex);
+                this.bufferStartIndex += amount;
+                return;
+            }
+        }
+
+        System.arraycopy(values, offset, this.buffer, this.bufferPosition, amount);
+        this.bufferPosition += amount;
+        if (this.bufferPosition > this.bufferLength)
+            this.bufferLength = this.bufferPosition;
     }
 
     @Override
     public void setIndex(int newIndex) throws IOException {
-        this.randomAccessFile.seek(newIndex);
+        if (newIndex < 0)
+            throw new IllegalArgumentException("Cannot seek to a negative index. (" + newIndex + ")");
+
+        // Seeking within the buffered section (or to the end of it) only moves the buffer position.
+        long bufferIndex = newIndex - this.bufferStartIndex;
+        if (bufferIndex >= 0 && bufferIndex <= this.bufferLength) {
+            this.bufferPosition = (int) bufferIndex;
+            return;
+        }
+
+        flush();
+        this.bufferStartIndex = newIndex;
     }
 
     @Override
     public int getIndex() throws IOException {
-        return (int) this.randomAccessFile.getFilePointer();
+        return (int) (this.bufferStartIndex + this.bufferPosition);
+    }
+
+    /**
+     * Writes any buffered data to the file.
+     * The write index is not changed.
+     */
+    public void flush() throws IOException {
+        if (this.bufferLength > 0)
+            writeFully(ByteBuffer.wrap(this.buffer, 0, this.bufferLength), this.bufferStartIndex);
+
+        this.bufferStartIndex += this.bufferPosition;
+        this.bufferPosition = 0;
+        this.bufferLength = 0;
+    }
+
+    private void writeFully(ByteBuffer source, long fileIndex) throws IOException {
+        while (source.hasRemaining())
+            fileIndex += this.fileChannel.write(source, fileIndex);
     }
 
     @Override
     @SneakyThrows
     public void close() {
-        this.randomAccessFile.close();
+        if (!this.fileChannel.isOpen())
+            return;
+
+        try {
+            flush();
+        } finally {
+            this.fileChannel.close();
+        }
     }
-}
\ No newline at end of file
+}
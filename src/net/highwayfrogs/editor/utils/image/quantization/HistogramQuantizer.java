@@ -0,0 +1,411 @@
+package net.highwayfrogs.editor.utils.image.quantization;
+
+import net.highwayfrogs.editor.utils.image.ImageUtils;
+
+import java.awt.image.BufferedImage;
+import java.util.*;
+
+/**
+ * Reduces the number of colors in an image with Xiaolin Wu's color quantizer, which works on a histogram with 5 bits per color channel.
+ * 5 bits per channel is the precision of PSX 15-bit color, so the output colors are exactly representable as PSX CLUT colors.
+ * Unlike the other quantizers, the work done is mostly based on the (fixed) histogram size, not on the number of unique colors in the image.
+ * <p>
+ * Colors of different alpha values are quantized separately unless merging them is permitted, because VloImage uses alpha to store the PSX semi-transparency (STP) bit.
+ * Full black (all 5-bit components zero) is also kept separate from every other color, because the PSX decides what the STP bit means based on whether a color is full black.
+ * <p>
+ * Reference: Xiaolin Wu, "Efficient Statistical Computations for Optimal Color Quantization", Graphics Gems II (1991).
+ * Created by Kneesnap on 10/17/2026.
+ */
+public class HistogramQuantizer {
+    private static final int CHANNEL_BITS = 5;
+    private static final int CHANNEL_SHIFT = 8 - CHANNEL_BITS;
+    private static final int CHANNEL_LEVELS = 1 << CHANNEL_BITS;
+    private static final int SIDE = CHANNEL_LEVELS + 1; // Index 0 is always zero, so the cumulative moments don't need bounds checks.
+    private static final int SIDE_SQUARED = SIDE * SIDE;
+    private static final int HISTOGRAM_SIZE = SIDE * SIDE_SQUARED;
+    private static final int RED = 0;
+    private static final int GREEN = 1;
+    private static final int BLUE = 2;
+
+    /**
+     * Quantize the image to use only up to the given number of colors.
+     * @param argbPixels the input pixels to quantize. This array will be modified directly.
+     * @param maxColors the maximum number of unique colors
+     * @param mergeAlpha if merging colors of different alpha values is permitted
+     */
+    public static void quantizeImage(int[] argbPixels, int maxColors, boolean mergeAlpha) {
+        if (argbPixels == null)
+            throw new NullPointerException("argbPixels");
+        if (maxColors <= 0)
+            throw new IllegalArgumentException("Invalid maxColors: " + maxColors);
+
+        // If there are less than the max number of colors found, then we can just return the image as-is, it's already quantized to the given specification.
+        if (hasAtMostColors(argbPixels, maxColors))
+            return;
+
+        // Build the histograms.
+        Map<Integer, ColorPartition> partitionsByAlpha = new HashMap<>();
+        ColorPartition mergedPartition = mergeAlpha ? new ColorPartition() : null;
+        ColorPartition lastPartition = null;
+        int lastAlpha = -1;
+        for (int i = 0; i < argbPixels.length; i++) {
+            int argb = argbPixels[i];
+            int alpha = (argb >>> 24);
+            ColorPartition partition = mergedPartition;
+            if (partition == null) {
+                if (alpha != lastAlpha || lastPartition == null) {
+                    lastPartition = partitionsByAlpha.computeIfAbsent(alpha, key -> new ColorPartition());
+                    lastAlpha = alpha;
+                }
+
+                partition = lastPartition;
+            }
+
+            partition.addColor(argb);
+        }
+
+        List<ColorPartition> partitions = mergedPartition != null ? Collections.singletonList(mergedPartition) : new ArrayList<>(partitionsByAlpha.values());
+
+        // Each partition needs at least one color, plus another if it has full black.
+        List<ColorBox> boxes = new ArrayList<>();
+        int availableColors = maxColors;
+        for (int i = 0; i < partitions.size(); i++) {
+            ColorPartition partition = partitions.get(i);
+            if (partition.blackCount > 0)
+                availableColors--;
+
+            if (partition.totalWeight > 0) {
+                partition.calculateCumulativeMoments();
+                ColorBox box = new ColorBox(partition);
+                box.hi[RED] = box.hi[GREEN] = box.hi[BLUE] = CHANNEL_LEVELS;
+                box.updateVariance();
+                boxes.add(box);
+            }
+        }
+
+        if (boxes.size() > availableColors) {
+            if (mergeAlpha)
+                throw new IllegalArgumentException("Cannot reduce down to " + maxColors + " colors.");
+
+            throw new IllegalArgumentException("Cannot reduce down to " + maxColors + " colors without merging colors of different alpha values.");
+        }
+
+        // Repeatedly split the box with the highest variance, until there are enough boxes.
+        while (boxes.size() < availableColors) {
+            ColorBox splitBox = null;
+            for (int i = 0; i < boxes.size(); i++)
+                if (boxes.get(i).variance > 0 && (splitBox == null || boxes.get(i).variance > splitBox.variance))
+                    splitBox = boxes.get(i);
+
+            if (splitBox == null)
+                break; // Every box holds a single color.
+
+            ColorBox newBox = splitBox.split();
+            if (newBox != null) {
+                boxes.add(newBox);
+            } else {
+                splitBox.variance = 0;
+            }
+        }
+
+        // Assign each histogram cell to the color of the box containing it.
+        for (int i = 0; i < boxes.size(); i++)
+            boxes.get(i).applyColorToCells();
+
+        // Apply quantized colors to the image.
+        lastPartition = null;
+        lastAlpha = -1;
+        for (int i = 0; i < argbPixels.length; i++) {
+            int argb = argbPixels[i];
+            ColorPartition partition = mergedPartition;
+            if (partition == null) {
+                int alpha = (argb >>> 24);
+                if (alpha != lastAlpha || lastPartition == null) {
+                    lastPartition = partitionsByAlpha.get(alpha);
+                    lastAlpha = alpha;
+                }
+
+                partition = lastPartition;
+            }
+
+            argbPixels[i] = partition.getQuantizedColor(argb);
+        }
+    }
+
+    /**
+     * Quantize the image to use only up to the given number of colors.
+     * @param input the input image to quantize. Sometimes, this image will be modified directly.
+     * @param maxColors the maximum number of unique colors
+     * @param mergeAlpha if merging colors of different alpha values is permitted
+     * @return quantizedImage in ARGB8888 format.
+     */
+    public static BufferedImage quantizeImage(BufferedImage input, int maxColors, boolean mergeAlpha) {
+        if (input == null)
+            throw new NullPointerException("input");
+        if (maxColors <= 0)
+            throw new IllegalArgumentException("Invalid maxColors: " + maxColors);
+
+        BufferedImage output = ImageUtils.convertBufferedImageToFormat(input, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ImageUtils.getWritablePixelIntegerArray(output);
+        quantizeImage(pixels, maxColors, mergeAlpha);
+        return output;
+    }
+
+    private static boolean hasAtMostColors(int[] argbPixels, int maxColors) {
+        Set<Integer> colors = new HashSet<>();
+        int lastColor = 0;
+        for (int i = 0; i < argbPixels.length; i++) {
+            int argb = argbPixels[i];
+            if ((i > 0 && argb == lastColor) || !colors.add(argb))
+                continue;
+
+            lastColor = argb;
+            if (colors.size() > maxColors)
+                return false;
+        }
+
+        return true;
+    }
+
+    private static int getCellIndex(int red, int green, int blue) {
+        return (red * SIDE_SQUARED) + (green * SIDE) + blue;
+    }
+
+    private static boolean isFullBlack(int argb) {
+        return ((argb >>> CHANNEL_SHIFT) & 0x1F1F1F) == 0;
+    }
+
+    private static int toChannelLevel(long total, long weight) {
+        long level = ((total + (weight / 2)) / weight + (1 << (CHANNEL_SHIFT - 1))) >> CHANNEL_SHIFT;
+        return (int) Math.min(level, CHANNEL_LEVELS - 1);
+    }
+
+    /**
+     * Holds the histogram for all the pixels which may be merged together.
+     * The moments are stored as cumulative sums (after calculateCumulativeMoments), so the sum over any box is found from eight values.
+     */
+    private static class ColorPartition {
+        private long[] weights; // The histogram is only allocated once a color which isn't full black is seen, since PSX images often have an alpha value used only by black.
+        private long[] redMoments;
+        private long[] greenMoments;
+        private long[] blueMoments;
+        private long[] alphaMoments;
+        private double[] squaredMoments;
+        private int[] cellColors; // The quantized color for each histogram cell.
+        private long totalWeight;
+        private long blackCount;
+        private long blackAlphaTotal;
+
+        private void addColor(int argb) {
+            int alpha = (argb >>> 24);
+            if (isFullBlack(argb)) {
+                this.blackCount++;
+                this.blackAlphaTotal += alpha;
+                return;
+            }
+
+            if (this.weights == null) {
+                this.weights = new long[HISTOGRAM_SIZE];
+                this.redMoments = new long[HISTOGRAM_SIZE];
+                this.greenMoments = new long[HISTOGRAM_SIZE];
+                this.blueMoments = new long[HISTOGRAM_SIZE];
+                this.alphaMoments = new long[HISTOGRAM_SIZE];
+                this.squaredMoments = new double[HISTOGRAM_SIZE];
+            }
+
+            int red = (argb >>> 16) & 0xFF;
+            int green = (argb >>> 8) & 0xFF;
+            int blue = argb & 0xFF;
+            int cellIndex = getCellIndex((red >>> CHANNEL_SHIFT) + 1, (green >>> CHANNEL_SHIFT) + 1, (blue >>> CHANNEL_SHIFT) + 1);
+            this.weights[cellIndex]++;
+            this.redMoments[cellIndex] += red;
+            this.greenMoments[cellIndex] += green;
+            this.blueMoments[cellIndex] += blue;
+            this.alphaMoments[cellIndex] += alpha;
+            this.squaredMoments[cellIndex] += (red * red) + (green * green) + (blue * blue);
+            this.totalWeight++;
+        }
+
+        private void calculateCumulativeMoments() {
+            accumulate(this.weights);
+            accumulate(this.redMoments);
+            accumulate(this.greenMoments);
+            accumulate(this.blueMoments);
+            accumulate(this.alphaMoments);
+            accumulate(this.squaredMoments);
+        }
+
+        private int getQuantizedColor(int argb) {
+            if (isFullBlack(argb))
+                return (int) ((this.blackAlphaTotal + (this.blackCount / 2)) / this.blackCount) << 24;
+
+            int red = (argb >>> (16 + CHANNEL_SHIFT)) & 0x1F;
+            int green = (argb >>> (8 + CHANNEL_SHIFT)) & 0x1F;
+            int blue = (argb >>> CHANNEL_SHIFT) & 0x1F;
+            return this.cellColors[getCellIndex(red + 1, green + 1, blue + 1)];
+        }
+
+        private static void accumulate(long[] moments) {
+            for (int red = 1; red < SIDE; red++) {
+                for (int green = 1; green < SIDE; green++) {
+                    int cellIndex = getCellIndex(red, green, 1);
+                    for (int blue = 1; blue < SIDE; blue++, cellIndex++)
+                        moments[cellIndex] += moments[cellIndex - 1] + moments[cellIndex - SIDE] - moments[cellIndex - SIDE - 1];
+                }
+
+                // Add the previous red plane.
+                for (int cellIndex = getCellIndex(red, 0, 0); cellIndex < getCellIndex(red + 1, 0, 0); cellIndex++)
+                    moments[cellIndex] += moments[cellIndex - SIDE_SQUARED];
+            }
+        }
+
+        private static void accumulate(double[] moments) {
+            for (int red = 1; red < SIDE; red++) {
+                for (int green = 1; green < SIDE; green++) {
+                    int cellIndex = getCellIndex(red, green, 1);
+                    for (int blue = 1; blue < SIDE; blue++, cellIndex++)
+                        moments[cellIndex] += moments[cellIndex - 1] + moments[cellIndex - SIDE] - moments[cellIndex - SIDE - 1];
+                }
+
+                // Add the previous red plane.
+                for (int cellIndex = getCellIndex(red, 0, 0); cellIndex < getCellIndex(red + 1, 0, 0); cellIndex++)
+                    moments[cellIndex] += moments[cellIndex - SIDE_SQUARED];
+            }
+        }
+    }
+
+    /**
+     * Represents a box of histogram cells, which will become a single color.
+     * The lower bound of each axis is exclusive, and the upper bound is inclusive.
+     */
+    private static class ColorBox {
+        private final ColorPartition partition;
+        private final int[] lo = new int[3];
+        private final int[] hi = new int[3];
+        private double variance;
+
+        private ColorBox(ColorPartition partition) {
+            this.partition = partition;
+        }
+
+        private long sum(long[] moments) {
+            return sum(moments, this.hi[RED], this.hi[GREEN], this.hi[BLUE]);
+        }
+
+        private long sum(long[] moments, int redHi, int greenHi, int blueHi) {
+            int redLo = this.lo[RED], greenLo = this.lo[GREEN], blueLo = this.lo[BLUE];
+            return moments[getCellIndex(redHi, greenHi, blueHi)] - moments[getCellIndex(redHi, greenHi, blueLo)]
+                    - moments[getCellIndex(redHi, greenLo, blueHi)] + moments[getCellIndex(redHi, greenLo, blueLo)]
+                    - moments[getCellIndex(redLo, greenHi, blueHi)] + moments[getCellIndex(redLo, greenHi, blueLo)]
+                    + moments[getCellIndex(redLo, greenLo, blueHi)] - moments[getCellIndex(redLo, greenLo, blueLo)];
+        }
+
+        private double sum(double[] moments) {
+            int redLo = this.lo[RED], greenLo = this.lo[GREEN], blueLo = this.lo[BLUE];
+            int redHi = this.hi[RED], greenHi = this.hi[GREEN], blueHi = this.hi[BLUE];
+            return moments[getCellIndex(redHi, greenHi, blueHi)] - moments[getCellIndex(redHi, greenHi, blueLo)]
+                    - moments[getCellIndex(redHi, greenLo, blueHi)] + moments[getCellIndex(redHi, greenLo, blueLo)]
+                    - moments[getCellIndex(redLo, greenHi, blueHi)] + moments[getCellIndex(redLo, greenHi, blueLo)]
+                    + moments[getCellIndex(redLo, greenLo, blueHi)] - moments[getCellIndex(redLo, greenLo, blueLo)];
+        }
+
+        private void updateVariance() {
+            long weight = sum(this.partition.weights);
+            int volume = (this.hi[RED] - this.lo[RED]) * (this.hi[GREEN] - this.lo[GREEN]) * (this.hi[BLUE] - this.lo[BLUE]);
+            if (weight <= 0 || volume <= 1) {
+                this.variance = 0;
+                return;
+            }
+
+            double red = sum(this.partition.redMoments);
+            double green = sum(this.partition.greenMoments);
+            double blue = sum(this.partition.blueMoments);
+            this.variance = sum(this.partition.squaredMoments) - (((red * red) + (green * green) + (blue * blue)) / weight);
+        }
+
+        /**
+         * Splits this box in two, at the position along the axis which minimizes the variance of the resulting boxes.
+         * @return newBox, or null if the box cannot be split
+         */
+        private ColorBox split() {
+            long weight = sum(this.partition.weights);
+            long red = sum(this.partition.redMoments);
+            long green = sum(this.partition.greenMoments);
+            long blue = sum(this.partition.blueMoments);
+
+            int bestAxis = -1;
+            int bestCut = -1;
+            double bestScore = 0;
+            int[] upperBounds = new int[3];
+            for (int axis = RED; axis <= BLUE; axis++) {
+                System.arraycopy(this.hi, 0, upperBounds, 0, upperBounds.length);
+                for (int cut = this.lo[axis] + 1; cut < this.hi[axis]; cut++) {
+                    upperBounds[axis] = cut;
+                    long lowerWeight = sum(this.partition.weights, upperBounds[RED], upperBounds[GREEN], upperBounds[BLUE]);
+                    long upperWeight = weight - lowerWeight;
+                    if (lowerWeight == 0 || upperWeight == 0)
+                        continue;
+
+                    double lowerRed = sum(this.partition.redMoments, upperBounds[RED], upperBounds[GREEN], upperBounds[BLUE]);
+                    double lowerGreen = sum(this.partition.greenMoments, upperBounds[RED], upperBounds[GREEN], upperBounds[BLUE]);
+                    double lowerBlue = sum(this.partition.blueMoments, upperBounds[RED], upperBounds[GREEN], upperBounds[BLUE]);
+                    double upperRed = red - lowerRed;
+                    double upperGreen = green - lowerGreen;
+                    double upperBlue = blue - lowerBlue;
+
+                    // Maximizing this is the same as minimizing the summed variance of both halves.
+                    double score = (((lowerRed * lowerRed) + (lowerGreen * lowerGreen) + (lowerBlue * lowerBlue)) / lowerWeight)
+                            + (((upperRed * upperRed) + (upperGreen * upperGreen) + (upperBlue * upperBlue)) / upperWeight);
+                    if (score > bestScore) {
+                        bestScore = score;
+                        bestAxis = axis;
+                        bestCut = cut;
+                    }
+                }
+            }
+
+            if (bestAxis < 0)
+                return null;
+
+            ColorBox newBox = new ColorBox(this.partition);
+            System.arraycopy(this.lo, 0, newBox.lo, 0, this.lo.length);
+            System.arraycopy(this.hi, 0, newBox.hi, 0, this.hi.length);
+            this.hi[bestAxis] = bestCut;
+            newBox.lo[bestAxis] = bestCut;
+            updateVariance();
+            newBox.updateVariance();
+            return newBox;
+        }
+
+        private void applyColorToCells() {
+            long weight = sum(this.partition.weights);
+            int red = toChannelLevel(sum(this.partition.redMoments), weight);
+            int green = toChannelLevel(sum(this.partition.greenMoments), weight);
+            int blue = toChannelLevel(sum(this.partition.blueMoments), weight);
+            int alpha = (int) ((sum(this.partition.alphaMoments) + (weight / 2)) / weight);
+
+            // The average of colors which are not full black must never become full black, or the PSX would treat it differently.
+            if (red == 0 && green == 0 && blue == 0) {
+                long redTotal = sum(this.partition.redMoments);
+                long greenTotal = sum(this.partition.greenMoments);
+                long blueTotal = sum(this.partition.blueMoments);
+                if (redTotal >= greenTotal && redTotal >= blueTotal) {
+                    red = 1;
+                } else if (greenTotal >= blueTotal) {
+                    green = 1;
+                } else {
+                    blue = 1;
+                }
+            }
+
+            int color = (alpha << 24) | (red << (16 + CHANNEL_SHIFT)) | (green << (8 + CHANNEL_SHIFT)) | (blue << CHANNEL_SHIFT);
+            if (this.partition.cellColors == null)
+                this.partition.cellColors = new int[HISTOGRAM_SIZE];
+
+            for (int r = this.lo[RED] + 1; r <= this.hi[RED]; r++)
+                for (int g = this.lo[GREEN] + 1; g <= this.hi[GREEN]; g++)
+                    for (int b = this.lo[BLUE] + 1; b <= this.hi[BLUE]; b++)
+                        this.partition.cellColors[getCellIndex(r, g, b)] = color;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package net.highwayfrogs.editor.utils.image.quantization;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import net.highwayfrogs.editor.utils.image.quantization.octree.OctreeQuantizer;
+
+/**
+ * The algorithms available for reducing the number of colors in an image, such as when an image is imported into a CLUT-based texture.
+ * Created by Kneesnap on 10/17/2026.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ImageQuantizer {
+    OCTREE("Octree (Original)") { // Produces the same results as previous versions, but slows down as the number of unique colors grows.
+        @Override
+        public void quantizeImage(int[] argbPixels, int maxColors, boolean mergeAlpha) {
+            OctreeQuantizer.quantizeImage(argbPixels, maxColors, mergeAlpha);
+        }
+    },
+    HISTOGRAM("Histogram (Fast)") { // Wu's quantizer over a 5-bit per channel histogram, see HistogramQuantizer.
+        @Override
+        public void quantizeImage(int[] argbPixels, int maxColors, boolean mergeAlpha) {
+            HistogramQuantizer.quantizeImage(argbPixels, maxColors, mergeAlpha);
+        }
+    };
+
+    private final String displayName;
+
+    /**
+     * Quantize the image to use only up to the given number of colors.
+     * @param argbPixels the input pixels to quantize. This array will be modified directly.
+     * @param maxColors the maximum number of unique colors
+     * @param mergeAlpha if merging colors of different alpha values is permitted
+     */
+    public abstract void quantizeImage(int[] argbPixels, int maxColors, boolean mergeAlpha);
+}
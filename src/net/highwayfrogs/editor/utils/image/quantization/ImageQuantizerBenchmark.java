@@ -0,0 +1,169 @@
+package net.highwayfrogs.editor.utils.image.quantization;
+
+import net.highwayfrogs.editor.utils.FileUtils;
+import net.highwayfrogs.editor.utils.Utils;
+import net.highwayfrogs.editor.utils.image.ImageUtils;
+import net.highwayfrogs.editor.utils.logging.ClassNameLogger;
+import net.highwayfrogs.editor.utils.logging.ILogger;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the speed & quality of each ImageQuantizer against MedianCutQuantizer, using a corpus of images.
+ * Quality is measured as the mean distance between each original pixel and its quantized color, treating ARGB as a 4D space.
+ * Created by Kneesnap on 10/17/2026.
+ */
+public class ImageQuantizerBenchmark {
+    private static final int[] PALETTE_SIZES = {16, 256}; // The palette sizes of CLUT4 & CLUT8 textures.
+    private static final int WARMUP_ROUNDS = 1;
+    private static final int TIMED_ROUNDS = 3;
+    private static final String MEDIAN_CUT_NAME = "Median Cut";
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: ImageQuantizerBenchmark <folder>...");
+            return;
+        }
+
+        ILogger logger = ClassNameLogger.getLogger(null, ImageQuantizerBenchmark.class);
+        List<int[]> corpus = new ArrayList<>();
+        for (String path : args)
+            corpus.addAll(loadCorpus(logger, new File(path)));
+
+        run(logger, corpus);
+        System.exit(0); // The async task timer in Utils would otherwise keep the JVM alive.
+    }
+
+    /**
+     * Loads every image found in the directory (including subdirectories) as a benchmark corpus.
+     * Like a texture import, alpha is reduced to fully opaque or fully transparent, where transparent pixels become black.
+     * @param logger the logger to log problems to
+     * @param directory the directory to load images from
+     * @return corpus
+     */
+    public static List<int[]> loadCorpus(ILogger logger, File directory) {
+        List<int[]> corpus = new ArrayList<>();
+        addImagesToCorpus(logger, corpus, directory);
+        return corpus;
+    }
+
+    private static void addImagesToCorpus(ILogger logger, List<int[]> corpus, File directory) {
+        String[] imageExtensions = ImageIO.getReaderFileSuffixes();
+        for (File file : FileUtils.listFiles(directory)) {
+            if (file.isDirectory()) {
+                addImagesToCorpus(logger, corpus, file);
+                continue;
+            }
+
+            String fileName = file.getName();
+            String extension = fileName.substring(FileUtils.stripExtension(fileName).length());
+            if (extension.length() <= 1 || !Utils.contains(imageExtensions, extension.substring(1)))
+                continue;
+
+            BufferedImage image;
+            try {
+                image = ImageIO.read(file);
+            } catch (IOException ex) {
+                Utils.handleError(logger, ex, false, "Failed to load image file '%s'.", fileName);
+                continue;
+            }
+
+            if (image == null)
+                continue;
+
+            int[] pixels = ImageUtils.getWritablePixelIntegerArray(ImageUtils.convertBufferedImageToFormat(image, BufferedImage.TYPE_INT_ARGB)).clone();
+            for (int i = 0; i < pixels.length; i++)
+                pixels[i] = (pixels[i] >>> 24) >= 128 ? (pixels[i] | 0xFF000000) : 0;
+
+            corpus.add(pixels);
+        }
+    }
+
+    /**
+     * Runs the benchmark, logging the results.
+     * @param logger the logger to write the results to
+     * @param corpus the pixels of each image to quantize. These arrays are not modified.
+     */
+    public static void run(ILogger logger, List<int[]> corpus) {
+        long pixelCount = 0;
+        for (int i = 0; i < corpus.size(); i++)
+            pixelCount += corpus.get(i).length;
+
+        logger.info("Benchmarking image quantization for %d image(s) (%d pixels).", corpus.size(), pixelCount);
+        if (corpus.isEmpty())
+            return;
+
+        for (int paletteSize : PALETTE_SIZES) {
+            logger.info("Palette Size: %d", paletteSize);
+            runQuantizer(logger, corpus, paletteSize, MEDIAN_CUT_NAME, null);
+            for (ImageQuantizer quantizer : ImageQuantizer.values())
+                runQuantizer(logger, corpus, paletteSize, quantizer.getDisplayName(), quantizer);
+        }
+    }
+
+    private static void runQuantizer(ILogger logger, List<int[]> corpus, int paletteSize, String name, ImageQuantizer quantizer) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++)
+            quantizeCorpus(corpus, paletteSize, quantizer, null);
+
+        long timeNanos = 0;
+        int failures = 0;
+        List<int[]> results = new ArrayList<>();
+        for (int i = 0; i < TIMED_ROUNDS; i++) {
+            results.clear();
+            long startTime = System.nanoTime();
+            failures = quantizeCorpus(corpus, paletteSize, quantizer, results);
+            timeNanos += System.nanoTime() - startTime;
+        }
+
+        double totalError = 0;
+        long comparedPixels = 0;
+        for (int i = 0; i < corpus.size(); i++) {
+            int[] originalPixels = corpus.get(i);
+            int[] quantizedPixels = results.get(i);
+            if (quantizedPixels == null)
+                continue;
+
+            for (int j = 0; j < originalPixels.length; j++)
+                totalError += getColorDistance(originalPixels[j], quantizedPixels[j]);
+            comparedPixels += originalPixels.length;
+        }
+
+        logger.info(" - %-20s %10.2f ms, Mean Error: %7.3f%s", name + ":", timeNanos / 1000000D / TIMED_ROUNDS,
+                comparedPixels > 0 ? totalError / comparedPixels : 0D, failures > 0 ? ", Failed Images: " + failures : "");
+    }
+
+    private static int quantizeCorpus(List<int[]> corpus, int paletteSize, ImageQuantizer quantizer, List<int[]> results) {
+        int failures = 0;
+        for (int i = 0; i < corpus.size(); i++) {
+            int[] pixels = corpus.get(i).clone();
+            try {
+                if (quantizer != null) {
+                    quantizer.quantizeImage(pixels, paletteSize, false);
+                } else {
+                    pixels = MedianCutQuantizer.quantizeARGB8888Buffer(pixels, paletteSize);
+                }
+            } catch (Throwable th) {
+                pixels = null;
+                failures++;
+            }
+
+            if (results != null)
+                results.add(pixels);
+        }
+
+        return failures;
+    }
+
+    private static double getColorDistance(int argb, int otherArgb) {
+        int alpha = (argb >>> 24) - (otherArgb >>> 24);
+        int red = ((argb >>> 16) & 0xFF) - ((otherArgb >>> 16) & 0xFF);
+        int green = ((argb >>> 8) & 0xFF) - ((otherArgb >>> 8) & 0xFF);
+        int blue = (argb & 0xFF) - (otherArgb & 0xFF);
+        return Math.sqrt((alpha * alpha) + (red * red) + (green * green) + (blue * blue));
+    }
+}